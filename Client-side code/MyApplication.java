@@ -16,6 +16,7 @@ import viewmodel.ViewModelFactory;
 public class MyApplication extends Application {
     
     private LocalModel model;
+    private ViewModelFactory viewModelFactory;
 
     /**
      * A method to start the application
@@ -25,9 +26,19 @@ public class MyApplication extends Application {
     @Override
     public void start(Stage primaryStage) {
         model = new LocalModelManager();
-        ViewModelFactory viewModelFactory = new ViewModelFactory(model);
+        viewModelFactory = new ViewModelFactory(model);
         ViewHandler view = new ViewHandler(viewModelFactory);
 
         view.start(primaryStage);
     }
+
+    /**
+     * A method called when the application is closed, closing the session of the logged in user and
+     * printing out the image cache statistics
+     */
+    @Override
+    public void stop() {
+        viewModelFactory.getLoginViewModel().logout();
+        System.out.println("Image cache: " + viewModelFactory.getImageCache());
+    }
 }
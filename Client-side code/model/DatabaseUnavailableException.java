@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * The DatabaseUnavailableException class is thrown right away, without trying the database, while the circuit
+ * breaker of the server is open after repeated connection failures. Failing fast keeps the RMI threads from piling
+ * up behind a database that is down, and the breaker lets calls through again once it is back. A client receiving
+ * it can try the same call again later.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class DatabaseUnavailableException extends DataAccessException
+{
+  /**
+   * A constructor setting the message of the exception
+   * @param message
+   *        a description of why the call was not tried
+   */
+  public DatabaseUnavailableException(String message)
+  {
+    super(message, null);
+  }
+}
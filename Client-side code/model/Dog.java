@@ -1,7 +1,6 @@
 package model;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 /**
  * Dog is a class which holds the needed information about a dog such as
@@ -16,6 +15,7 @@ public class Dog implements Serializable
   private int dogId;
   private String name;
   private byte[] imageURL;
+  private String imageHash;
   private String info;
   private String ownerName;
   private int likes;
@@ -88,6 +88,26 @@ public class Dog implements Serializable
     return imageURL;
   }
 
+  /**
+   * Getter for the hash of the dog photo. Dogs read from the server only carry the hash of their photo,
+   * the photo itself is retrieved separately with <code>getImage</code>.
+   * @return a reference to the hash of the photo, or <code>null</code> if the dog has no photo
+   */
+  public String getImageHash()
+  {
+    return imageHash;
+  }
+
+  /**
+   * Setter for the hash of the dog photo
+   * @param imageHash
+   *        the hash the photo of the dog is stored under
+   */
+  public void setImageHash(String imageHash)
+  {
+    this.imageHash = imageHash;
+  }
+
   /**
    * Getter for the dog bio
    * @return a reference to the <code>info</code> of the current Dog object
@@ -115,16 +135,26 @@ public class Dog implements Serializable
     return likes;
   }
 
+  /**
+   * Setter for the number of likes for a Dog
+   * @param likes
+   *        the number of likes the dog has on the platform
+   */
+  public void setLikes(int likes)
+  {
+    this.likes = likes;
+  }
+
   /**
    * A String representation of the Dog object
    * @return a <code>String</code> with the dog attributes separated by commas and
    *         encompassed in a set of curly braces {}
-   *         Example: "Dog{dogId=1, name='Bruno', imageUrl=324f8a4g, info='My fluffy boy', ownerName='John', likes=54}
+   *         Example: "Dog{dogId=1, name='Bruno', imageHash=324f8a4g..., info='My fluffy boy', ownerName='John', likes=54}
    */
   @Override public String toString()
   {
-    return "Dog{" + "dogId=" + dogId + ", name='" + name + '\'' + ", imageURL="
-            + Arrays.toString(imageURL) + ", info='" + info + '\'' + ", ownerName='"
+    return "Dog{" + "dogId=" + dogId + ", name='" + name + '\'' + ", imageHash="
+            + imageHash + ", info='" + info + '\'' + ", ownerName='"
             + ownerName + '\'' + ", likes=" + likes + '}';
   }
 }
@@ -0,0 +1,290 @@
+package model;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The ImageCache class keeps the images shown by the views decoded in memory, so that a card drawn again after
+ * a refresh does not fetch and decode its image a second time. Images are keyed by their content hash and the
+ * rendition they are drawn in. The least recently used images are evicted once the decoded images take up more
+ * than the memory budget. Fetching and decoding happen on background threads and the result is handed to the
+ * caller on the JavaFX Application Thread.
+ * The memory budget and the number of decoding threads can be configured with the
+ * <code>puppr.images.cache.mb</code> and <code>puppr.images.cache.threads</code> system properties.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ImageCache {
+    private final LocalModel model;
+    private final long byteBudget;
+    private final LinkedHashMap<String, Image> images;
+    private final HashMap<String, List<Consumer<Image>>> pending;
+    private final ExecutorService decoders;
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long decoded;
+    private long decodeNanos;
+
+    /**
+     * A constructor creating a cache with the memory budget and the number of decoding threads
+     * taken from the system properties
+     * @param model
+     *          the model the images are fetched from
+     */
+    public ImageCache(LocalModel model) {
+        this(model, Long.getLong("puppr.images.cache.mb", 64) * 1024 * 1024,
+                Integer.getInteger("puppr.images.cache.threads", 2));
+    }
+
+    /**
+     * A constructor creating a cache with the given memory budget
+     * @param model
+     *          the model the images are fetched from
+     * @param byteBudget
+     *          the maximum number of bytes the decoded images can take up
+     * @param threads
+     *          the number of threads fetching and decoding images
+     */
+    public ImageCache(LocalModel model, long byteBudget, int threads) {
+        this.model = model;
+        this.byteBudget = byteBudget;
+        this.images = new LinkedHashMap<>(64, 0.75f, true);
+        this.pending = new HashMap<>();
+        AtomicInteger count = new AtomicInteger();
+        this.decoders = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "puppr-images-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A method returning an image only if it is already decoded
+     * @param hash
+     *          the hash of the image
+     * @param rendition
+     *          the size the image is drawn in
+     * @return the decoded image, or <code>null</code> if it is not in the cache
+     */
+    public synchronized Image getIfPresent(String hash, ImageRendition rendition) {
+        if (hash == null)
+            return null;
+        return images.get(key(hash, rendition));
+    }
+
+    /**
+     * A method handing an image to the caller. A cached image is handed over right away, otherwise the image is
+     * fetched and decoded in the background and handed over on the JavaFX Application Thread once it is ready.
+     * Callers asking for the same image while it is being loaded share the same fetch. Nothing is handed over
+     * if the hash is <code>null</code> or the image cannot be loaded.
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action receiving the decoded image
+     */
+    public void load(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        if (hash == null)
+            return;
+        String key = key(hash, rendition);
+        Image image;
+        synchronized (this) {
+            image = images.get(key);
+            if (image != null) {
+                hits++;
+            } else {
+                misses++;
+                List<Consumer<Image>> waiting = pending.get(key);
+                if (waiting != null) {
+                    waiting.add(onLoaded);
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(onLoaded);
+                pending.put(key, waiting);
+            }
+        }
+        if (image != null) {
+            onLoaded.accept(image);
+            return;
+        }
+        decoders.execute(() -> {
+            byte[] data = null;
+            try {
+                data = model.getImage(hash, rendition);
+            } catch (RuntimeException e) {
+                System.err.println(e.getClass().getName() + ": " + e.getMessage());
+            }
+            complete(key, rendition, data);
+        });
+    }
+
+    /**
+     * A method loading all the given images that are not yet cached with a single call to the model, so that a
+     * whole page of cards does not cost one round trip per image. Images being loaded already are skipped.
+     * @param hashes
+     *          the hashes of the images, <code>null</code> entries are ignored
+     * @param rendition
+     *          the size the images are drawn in
+     */
+    public void prefetch(List<String> hashes, ImageRendition rendition) {
+        ArrayList<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String hash : hashes) {
+                if (hash == null)
+                    continue;
+                String key = key(hash, rendition);
+                if (!images.containsKey(key) && !pending.containsKey(key)) {
+                    pending.put(key, new ArrayList<>());
+                    missing.add(hash);
+                }
+            }
+        }
+        if (missing.isEmpty())
+            return;
+        decoders.execute(() -> {
+            HashMap<String, byte[]> found = null;
+            try {
+                found = model.getImages(missing, rendition);
+            } catch (RuntimeException e) {
+                System.err.println(e.getClass().getName() + ": " + e.getMessage());
+            }
+            for (String hash : missing)
+                complete(key(hash, rendition), rendition, found == null ? null : found.get(hash));
+        });
+    }
+
+    /**
+     * A method dropping all the decoded images
+     */
+    public synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Getter for the share of lookups served from the cache
+     * @return the hit rate as a number between 0 and 1
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * A method returning a short summary of the cache size and the lookup statistics.
+     * Example: "images[count=42, used=12.3MB, budget=64.0MB, hits=310, misses=42, hitRate=88.1%, evictions=0,
+     *          avgDecode=3.10ms]"
+     * @return a String representation of the cache state
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "images[count=%d, used=%.1fMB, budget=%.1fMB, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, avgDecode=%.2fms]",
+                images.size(), bytes / 1048576.0, byteBudget / 1048576.0, hits, misses, getHitRate() * 100, evictions,
+                decoded == 0 ? 0 : decodeNanos / (decoded * 1_000_000.0));
+    }
+
+    /**
+     * A private method decoding a fetched image, storing it and handing it to everyone waiting for it. Images
+     * requested in a smaller rendition are decoded at most in its size, since the server sends the original
+     * image until the rendition is created.
+     * @param key
+     *          the cache key of the image
+     * @param rendition
+     *          the size the image was requested in
+     * @param data
+     *          the bytes of the image, or <code>null</code> if it could not be fetched
+     */
+    private void complete(String key, ImageRendition rendition, byte[] data) {
+        Image image = null;
+        if (data != null) {
+            long start = System.nanoTime();
+            int size = rendition.getMaxSize();
+            image = size == 0 ? new Image(new ByteArrayInputStream(data))
+                    : new Image(new ByteArrayInputStream(data), size, size, true, true);
+            if (image.isError())
+                image = null;
+            synchronized (this) {
+                decoded++;
+                decodeNanos += System.nanoTime() - start;
+            }
+        }
+        List<Consumer<Image>> waiting;
+        synchronized (this) {
+            waiting = pending.remove(key);
+            if (image != null)
+                put(key, image);
+        }
+        if (image == null || waiting == null || waiting.isEmpty())
+            return;
+        Image loaded = image;
+        Platform.runLater(() -> waiting.forEach(action -> action.accept(loaded)));
+    }
+
+    /**
+     * A private method storing a decoded image and evicting the least recently used ones until the cache fits in
+     * its budget. Images larger than the whole budget are handed over but never stored.
+     * @param key
+     *          the cache key of the image
+     * @param image
+     *          the decoded image
+     */
+    private void put(String key, Image image) {
+        long size = weight(image);
+        if (size > byteBudget)
+            return;
+        Image old = images.put(key, image);
+        if (old != null)
+            bytes -= weight(old);
+        bytes += size;
+        Iterator<Map.Entry<String, Image>> eldest = images.entrySet().iterator();
+        while (bytes > byteBudget && eldest.hasNext()) {
+            Map.Entry<String, Image> entry = eldest.next();
+            if (entry.getKey().equals(key))
+                continue;
+            bytes -= weight(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * A private method estimating the memory taken up by a decoded image, at four bytes per pixel
+     * @param image
+     *          the decoded image
+     * @return the estimated size in bytes
+     */
+    private static long weight(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    /**
+     * A private method building the cache key of an image
+     * @param hash
+     *          the hash of the image
+     * @param rendition
+     *          the size the image is drawn in
+     * @return the key the image is stored under
+     */
+    private static String key(String hash, ImageRendition rendition) {
+        return hash + ":" + rendition;
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * The ImageRendition enum lists the sizes an image can be requested in. The server creates the smaller
+ * renditions once, when the image is uploaded, so that the clients only download the size they draw.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public enum ImageRendition
+{
+  /**
+   * An 80 by 80 pixels square cut out of the middle of the image, used for the round profile pictures
+   */
+  AVATAR(80, true),
+  /**
+   * The whole image scaled down to at most 600 pixels on its longer side, used for the post and dog cards
+   */
+  CARD(600, false),
+  /**
+   * The image exactly as it was uploaded
+   */
+  ORIGINAL(0, false);
+
+  private final int maxSize;
+  private final boolean square;
+
+  /**
+   * A constructor setting the size of the rendition
+   * @param maxSize
+   *        the maximum width and height of the rendition in pixels, or 0 for no limit
+   * @param square
+   *        true if the rendition is cut to a square, false if the whole image is kept
+   */
+  ImageRendition(int maxSize, boolean square)
+  {
+    this.maxSize = maxSize;
+    this.square = square;
+  }
+
+  /**
+   * Getter for the maximum size of the rendition
+   * @return the maximum width and height of the rendition in pixels, or 0 for no limit
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+  /**
+   * A method checking if the rendition is cut to a square
+   * @return true if the rendition is a square cut out of the middle of the image, false otherwise
+   */
+  public boolean isSquare()
+  {
+    return square;
+  }
+}
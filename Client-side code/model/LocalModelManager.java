@@ -9,6 +9,7 @@ import utility.observer.subject.PropertyChangeAction;
 import utility.observer.subject.PropertyChangeProxy;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * The LocalModelManager is a class which implements the LocalModel interface, overrides and gives functionality to all of its methods.
@@ -16,7 +17,7 @@ import java.util.ArrayList;
  * @author Natali-Munk Jakobsen
  * @version 1.0
  */
-public class LocalModelManager implements LocalModel
+public class LocalModelManager implements LocalModel, LocalListener<Object, Object>
 {
   private LocalClientModel localClientModel;
   private PropertyChangeAction<Object, Object> property;
@@ -27,7 +28,9 @@ public class LocalModelManager implements LocalModel
    */
   public LocalModelManager()
   {
+    this.property = new PropertyChangeProxy<>(this);
     this.localClientModel =new RmiClient(this);
+    this.localClientModel.addListener(this, "change");
   }
 
   /**
@@ -273,105 +276,306 @@ public class LocalModelManager implements LocalModel
   }
 
   /**
-   * A method for adding a like to a comment and sending the information to the server by calling
-   * the LocalClientModel method.
+   * A method for liking a post. The like information is saved and the likes count of the post
+   * is incremented by one. Liking the same post twice has no effect.
+   * @param postId
+   *        the id of the post that was liked
+   * @param handle
+   *        the handle of the user who liked the post
+   * @return true if the like was recorded, false if the user had already liked the post
+   */
+  @Override public boolean likePost(int postId, String handle)
+  {
+    return localClientModel.likePost(postId, handle);
+  }
+
+  /**
+   * A method for liking a dog. The like information is saved and the likes count of the dog
+   * is incremented by one. Liking the same dog twice has no effect.
+   * @param dogId
+   *        the id of the Dog object that was liked
+   * @param handle
+   *        the handle of the user who liked the dog
+   * @return true if the like was recorded, false if the user had already liked the dog
+   */
+  @Override public boolean likeDog(int dogId, String handle)
+  {
+    return localClientModel.likeDog(dogId, handle);
+  }
+
+  /**
+   * A method for liking a comment. The like information is saved and the likes count of the comment
+   * is incremented by one. Liking the same comment twice has no effect.
    * @param commentId
-   *        the comment id of the Comment object on which the like was added
+   *        the id of the comment that was liked
+   * @param handle
+   *        the handle of the user who liked the comment
+   * @return true if the like was recorded, false if the user had already liked the comment
    */
-  @Override public void addLikeToComment(int commentId)
+  @Override public boolean likeComment(int commentId, String handle)
   {
-    localClientModel.addLikeToComment(commentId);
+    return localClientModel.likeComment(commentId, handle);
   }
 
   /**
-   * A method for adding a like to a post and sending the information further to the server
-   * by calling the LocalClientModel method.
-   * @param postId
-   *        the unique post id of the Post object on which the like was added
+   * A method for getting one page of the post feed, newest first
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page and the cursor of the next page
    */
-  @Override public void addLikeToPost(int postId)
+  @Override public PostPage getFeedPage(PostCursor cursor, int limit)
   {
-    localClientModel.addLikeToPost(postId);
+    return localClientModel.getFeedPage(cursor, limit);
   }
 
   /**
-   * A method used to add a like to a Dog object and also sending the information further to the server
-   * by calling the LocalClientModel method.
-   * @param dogId
-   *        the unique dog id of the dog on which the like was added
+   * Getter for one page of the posts made by a specific user, newest first
+   * @param handle
+   *        the handle of the user who made the posts
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+   * for the first page, the total number of posts made by the user
+   */
+  @Override public PostPage getPostsForUser(String handle, PostCursor cursor, int limit)
+  {
+    return localClientModel.getPostsForUser(handle, cursor, limit);
+  }
+
+  /**
+   * Getter for a whole image
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
    */
-  @Override public void addLikeToDog(int dogId)
+  @Override public byte[] getImage(String hash)
   {
-    localClientModel.addLikeToDog(dogId);
+    return localClientModel.getImage(hash);
   }
 
   /**
-   * A method used to add a liked to a post and save the user info of the user who liked the post.
-   * This information is to be sent to the server by calling the LocalClientModel.
-   * @param postId
-   *        the id of the post the like was added on
+   * Getter for a range of the bytes of an image, so that large images can be read in parts.
+   * A returned range shorter than requested marks the end of the image.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param offset
+   *        the index of the first byte of the range, starting from 0
+   * @param length
+   *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+   * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, int offset, int length)
+  {
+    return localClientModel.getImage(hash, offset, length);
+  }
+
+  /**
+   * Getter for several whole images at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes)
+  {
+    return localClientModel.getImages(hashes);
+  }
+
+  /**
+   * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+   * is not ready yet, the original image is returned.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param rendition
+   *        the size the image is drawn in
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, ImageRendition rendition)
+  {
+    return localClientModel.getImage(hash, rendition);
+  }
+
+  /**
+   * Getter for several images of the same size at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @param rendition
+   *        the size the images are drawn in
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition)
+  {
+    return localClientModel.getImages(hashes, rendition);
+  }
+
+  /**
+   * Getter for the ids of the posts liked by a user, out of the given ones
    * @param handle
-   *        the handle of the user who liked the specified post
+   *        the handle of the user
+   * @param postIds
+   *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+   * @return the ids of the liked posts in ascending order
    */
-  @Override public void addLike(int postId, String handle) {
-    localClientModel.addLike(postId,handle);
+  @Override public int[] getLikedPostIds(String handle, int[] postIds)
+  {
+    return localClientModel.getLikedPostIds(handle, postIds);
   }
 
   /**
-   * A method for getting all the postId and handle info for all the likes added and requesting the
-   * information from the server through the LocalClientModel.
-   * @return an ArrayList of String data type containing all the postId and handle pairs for every like
-   *         on all the posts ever added
+   * Getter for the ids of the dogs liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param dogIds
+   *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+   * @return the ids of the liked dogs in ascending order
    */
-  @Override public ArrayList<String> getLikes() {
-    return localClientModel.getLikes();
+  @Override public int[] getLikedDogIds(String handle, int[] dogIds)
+  {
+    return localClientModel.getLikedDogIds(handle, dogIds);
   }
 
   /**
-   * A method used to add a like to a Dog object and save the user info of the user who liked the dog.
-   * The method calls the <code>addDogLike</code> method of the LocalClientModel interface in order to
-   * send the information to the server.
-   * @param dogId
-   *        the id of the Dog object that the like was added on
+   * Getter for the ids of the comments liked by a user, out of the given ones
    * @param handle
-   *        the handle of the user that liked the specified dog
+   *        the handle of the user
+   * @param commentIds
+   *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+   * @return the ids of the liked comments in ascending order
    */
-  @Override public void addDogLike(int dogId, String handle)
+  @Override public int[] getLikedCommentIds(String handle, int[] commentIds)
   {
-    localClientModel.addDogLike(dogId, handle);
+    return localClientModel.getLikedCommentIds(handle, commentIds);
   }
 
   /**
-   * A method for getting a list of all the dogId and handle info of all the likes for dogs from the server.
-   * @return the dogId and handle pairs for each like added on all the Dog objects that exist in the database
+   * A method checking the login credentials of a user on the server and opening a session for them.
+   * The session of a blocked user carries no token.
+   * @param handle
+   *        the handle of the user logging in
+   * @param password
+   *        the password as typed in by the user
+   * @return the session of the user, or <code>null</code> if the handle or the password is wrong
    */
-  @Override public ArrayList<String> getDogLikes()
+  @Override public Session authenticate(String handle, String password)
   {
-    return localClientModel.getDogLikes();
+    return localClientModel.authenticate(handle, password);
   }
 
   /**
-   * A method for adding a new like to a comment and saving the commentId - handle
-   * information in the database.
-   * @param commentId
-   *        the id of the comment that was added
+   * A method changing the password of the user a session belongs to, after checking their current password
+   * @param token
+   *        the token of the session
+   * @param oldPassword
+   *        the current password as typed in by the user
+   * @param newPassword
+   *        the new password as typed in by the user
+   * @return true if the password was changed, false if the session expired or the current password is wrong
+   */
+  @Override public boolean changePassword(String token, String oldPassword, String newPassword)
+  {
+    return localClientModel.changePassword(token, oldPassword, newPassword);
+  }
+
+  /**
+   * A method closing the session of a user
+   * @param token
+   *        the token of the session
+   */
+  @Override public void logout(String token)
+  {
+    localClientModel.logout(token);
+  }
+
+  /**
+   * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+   * from memory and only the others are looked up in the database.
    * @param handle
-   *        the handle of the user who liked the comment
+   *        the handle that is checked
+   * @return true if no user has the handle, false otherwise
    */
-  @Override
-  public void addCommentLike(int commentId, String handle) {
-    localClientModel.addCommentLike(commentId, handle);
+  @Override public boolean isHandleAvailable(String handle)
+  {
+    return localClientModel.isHandleAvailable(handle);
   }
 
   /**
-   * Getter for a list of all the comment likes
-   * @return an ArrayList of String data type containing all the pairs in the
-   * form of commentId - handle.
-   * Example: "13 - sunny".
+   * A method checking if an email can be used by a new user. Emails that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param email
+   *        the email that is checked
+   * @return true if no user has the email, false otherwise
    */
-  @Override
-  public ArrayList<String> getCommentLikes() {
-    return localClientModel.getCommentLikes();
+  @Override public boolean isEmailAvailable(String email)
+  {
+    return localClientModel.isEmailAvailable(email);
+  }
+
+  /**
+   * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call
+   * @param handles
+   *        the handles of the users; repeated handles are looked up once
+   * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+   */
+  @Override public HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles)
+  {
+    return localClientModel.getUsersByHandles(handles);
+  }
+
+  /**
+   * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+   * updated with every like, so no dogs are read from the database.
+   * @param k
+   *        the number of dogs wanted
+   * @return an ArrayList with at most k dogs, the most liked first
+   */
+  @Override public ArrayList<Dog> getTopDogs(int k)
+  {
+    return localClientModel.getTopDogs(k);
+  }
+
+  /**
+   * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+   * time they are asked for and then kept up to date in memory by every post, comment, dog and like.
+   * @param handle
+   *        the handle of the user
+   * @return the totals of the user
+   */
+  @Override public ProfileStats getProfileStats(String handle)
+  {
+    return localClientModel.getProfileStats(handle);
+  }
+
+  /**
+   * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+   * recent comments, the whole thread is read page by page with this method.
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of comments on the page
+   * @return a CommentPage object containing the comments of the page and the cursor of the next page
+   */
+  @Override public CommentPage getComments(int postId, CommentCursor cursor, int limit)
+  {
+    return localClientModel.getComments(postId, cursor, limit);
+  }
+
+  /**
+   * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+   * the user are moved to the new handle in a single transaction on the server.
+   * @param token
+   *        the token of the session
+   * @param newHandle
+   *        the new handle of the user
+   * @return true if the handle was changed, false if the session expired or the new handle is already taken
+   */
+  @Override public boolean renameHandle(String token, String newHandle)
+  {
+    return localClientModel.renameHandle(token, newHandle);
   }
 
   /**
@@ -382,5 +586,43 @@ public class LocalModelManager implements LocalModel
     localClientModel.close();
   }
 
+  /**
+   * A method that is called whenever the server sends a change. The event is passed on to the
+   * listeners of this class.
+   * @param event
+   *        the event sent by the server
+   */
+  @Override public void propertyChange(ObserverEvent<Object, Object> event)
+  {
+    property.firePropertyChange(event);
+  }
 
+  /**
+   * A method for adding a new listener to the current class.
+   * @param listener
+   *        the listener that is being added
+   * @param propertyNames
+   *        the list of name the listener is listening for
+   * @return a boolean value representing if the listener was added or not
+   */
+  @Override public boolean addListener(GeneralListener<Object, Object> listener,
+      String... propertyNames)
+  {
+    return property.addListener(listener, propertyNames);
+  }
+
+  /**
+   * A method for removing a listener from the current class.
+   * @param listener
+   *        the listener that is being removed
+   * @param propertyNames
+   *        the list of names for which the listener is being removed
+   * @return a boolean value representing the successful removal of
+   * the listener.
+   */
+  @Override public boolean removeListener(GeneralListener<Object, Object> listener,
+      String... propertyNames)
+  {
+    return property.removeListener(listener, propertyNames);
+  }
 }
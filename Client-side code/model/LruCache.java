@@ -0,0 +1,147 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The LruCache class is a bounded map keeping the most recently used entries. Once it holds as many entries as
+ * its capacity, adding a new entry drops the one that was used the longest time ago.
+ * Every invalidation bumps a version number kept for the key. A value that was loaded while its key was invalidated
+ * is not stored, so a slow read can never put back a value that a write already replaced. The versions are kept in
+ * a fixed number of slots shared by the keys with the same hash, so changes to other keys rarely stop a value from
+ * being stored and no memory is kept for keys that are not cached.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LruCache<K, V>
+{
+  private final int capacity;
+  private final LinkedHashMap<K, V> entries;
+  private final long[] versions;
+  private long hits;
+  private long misses;
+
+  /**
+   * A constructor setting the maximum number of entries kept
+   * @param capacity
+   *        the maximum number of entries
+   */
+  public LruCache(int capacity)
+  {
+    this.capacity = Math.max(1, capacity);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+      {
+        return size() > LruCache.this.capacity;
+      }
+    };
+    this.versions = new long[64];
+  }
+
+  /**
+   * Getter for the value of a key. Finding the value counts as using it.
+   * @param key
+   *        the key of the value
+   * @return the value, or <code>null</code> if it is not cached
+   */
+  public synchronized V get(K key)
+  {
+    V value = entries.get(key);
+    if (value == null)
+      misses++;
+    else
+      hits++;
+    return value;
+  }
+
+  /**
+   * Getter for the current version of a key. It is read before loading a value that is to be stored
+   * with putIfVersion.
+   * @param key
+   *        the key of the value about to be loaded
+   * @return the number of invalidations of the key, and of the keys sharing its slot, so far
+   */
+  public synchronized long version(K key)
+  {
+    return versions[slot(key)];
+  }
+
+  /**
+   * A method storing a loaded value, unless its key was invalidated since the value started loading
+   * @param key
+   *        the key of the value
+   * @param value
+   *        the loaded value, <code>null</code> values are not stored
+   * @param loadedAt
+   *        the version of the key read before the value was loaded
+   */
+  public synchronized void putIfVersion(K key, V value, long loadedAt)
+  {
+    if (value != null && versions[slot(key)] == loadedAt)
+      entries.put(key, value);
+  }
+
+  /**
+   * A method changing the value of a key in place, if it is cached. Like an invalidation, the change bumps
+   * the version of the key, so a value loaded before the change is not stored.
+   * @param key
+   *        the key of the value
+   * @param change
+   *        the function computing the new value out of the cached one
+   */
+  public synchronized void update(K key, UnaryOperator<V> change)
+  {
+    versions[slot(key)]++;
+    V value = entries.get(key);
+    if (value != null)
+      entries.put(key, change.apply(value));
+  }
+
+  /**
+   * A method dropping the value of a key
+   * @param key
+   *        the key of the value
+   */
+  public synchronized void invalidate(K key)
+  {
+    versions[slot(key)]++;
+    entries.remove(key);
+  }
+
+  /**
+   * A method dropping all the values
+   */
+  public synchronized void clear()
+  {
+    for (int i = 0; i < versions.length; i++)
+      versions[i]++;
+    entries.clear();
+  }
+
+  /**
+   * A private method finding the slot holding the version of a key
+   * @param key
+   *        the key
+   * @return the index of the slot
+   */
+  private int slot(K key)
+  {
+    int hash = key == null ? 0 : key.hashCode();
+    return (hash ^ (hash >>> 16)) & (versions.length - 1);
+  }
+
+  /**
+   * A method returning a short summary of the cache.
+   * Example: "{size=120, capacity=1024, hits=3400, misses=130}"
+   * @return a String representation of the LruCache object
+   */
+  @Override public synchronized String toString()
+  {
+    return "{" + "size=" + entries.size() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + '}';
+  }
+}
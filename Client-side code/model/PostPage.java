@@ -0,0 +1,72 @@
+package model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * The PostPage class holds one page of posts, newest first, together with the cursor needed to
+ * request the page that follows it and, when it was counted, the total number of posts the pages are taken from.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PostPage implements Serializable
+{
+  private ArrayList<Post> posts;
+  private PostCursor nextCursor;
+  private int totalCount;
+
+  /**
+   * A constructor setting all the attributes of the page
+   * @param posts
+   *        the posts on the page, newest first
+   * @param nextCursor
+   *        the cursor of the next page, or <code>null</code> if this is the last page
+   * @param totalCount
+   *        the total number of posts the pages are taken from, or -1 if it was not counted
+   */
+  public PostPage(ArrayList<Post> posts, PostCursor nextCursor, int totalCount)
+  {
+    this.posts = posts;
+    this.nextCursor = nextCursor;
+    this.totalCount = totalCount;
+  }
+
+  /**
+   * Getter for the posts on the page
+   * @return an ArrayList of Post data type containing the posts of the page, newest first
+   */
+  public ArrayList<Post> getPosts()
+  {
+    return posts;
+  }
+
+  /**
+   * Getter for the cursor of the next page
+   * @return the cursor that is to be sent when requesting the next page, or <code>null</code>
+   * if there are no more posts
+   */
+  public PostCursor getNextCursor()
+  {
+    return nextCursor;
+  }
+
+  /**
+   * Getter for the total number of posts the pages are taken from
+   * @return the total number of posts, or -1 if it was not counted for this page
+   */
+  public int getTotalCount()
+  {
+    return totalCount;
+  }
+
+  /**
+   * A method checking if there are more posts after this page
+   * @return true if there is a next page, false otherwise
+   */
+  public boolean hasMore()
+  {
+    return nextCursor != null;
+  }
+}
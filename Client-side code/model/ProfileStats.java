@@ -0,0 +1,132 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The ProfileStats class holds the totals shown on a profile page: the number of posts of the user and the likes
+ * they got, the number of comments the user wrote, and the number of dogs of the user and the likes they got.
+ * The totals are kept on the server and sent instead of the posts and dogs they are counted from.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ProfileStats implements Serializable
+{
+  private String handle;
+  private int posts;
+  private int postLikes;
+  private int comments;
+  private int dogs;
+  private int dogLikes;
+
+  /**
+   * A constructor setting every total of the profile
+   * @param handle
+   *        the handle of the user
+   * @param posts
+   *        the number of posts of the user
+   * @param postLikes
+   *        the number of likes on all the posts of the user
+   * @param comments
+   *        the number of comments written by the user
+   * @param dogs
+   *        the number of dogs of the user
+   * @param dogLikes
+   *        the number of likes on all the dogs of the user
+   */
+  public ProfileStats(String handle, int posts, int postLikes, int comments, int dogs, int dogLikes)
+  {
+    this.handle = handle;
+    this.posts = posts;
+    this.postLikes = postLikes;
+    this.comments = comments;
+    this.dogs = dogs;
+    this.dogLikes = dogLikes;
+  }
+
+  /**
+   * A method returning the totals changed by the given amounts. The object itself is not changed.
+   * @param posts
+   *        the change in the number of posts
+   * @param postLikes
+   *        the change in the number of post likes
+   * @param comments
+   *        the change in the number of comments
+   * @param dogs
+   *        the change in the number of dogs
+   * @param dogLikes
+   *        the change in the number of dog likes
+   * @return a new ProfileStats object with the changed totals
+   */
+  public ProfileStats add(int posts, int postLikes, int comments, int dogs, int dogLikes)
+  {
+    return new ProfileStats(handle, this.posts + posts, this.postLikes + postLikes, this.comments + comments,
+        this.dogs + dogs, this.dogLikes + dogLikes);
+  }
+
+  /**
+   * Getter for the <code>handle</code> attribute
+   * @return a reference to the handle of the user
+   */
+  public String getHandle()
+  {
+    return handle;
+  }
+
+  /**
+   * Getter for the number of posts of the user
+   * @return the number of posts
+   */
+  public int getPosts()
+  {
+    return posts;
+  }
+
+  /**
+   * Getter for the number of likes on the posts of the user
+   * @return the number of post likes
+   */
+  public int getPostLikes()
+  {
+    return postLikes;
+  }
+
+  /**
+   * Getter for the number of comments written by the user
+   * @return the number of comments
+   */
+  public int getComments()
+  {
+    return comments;
+  }
+
+  /**
+   * Getter for the number of dogs of the user
+   * @return the number of dogs
+   */
+  public int getDogs()
+  {
+    return dogs;
+  }
+
+  /**
+   * Getter for the number of likes on the dogs of the user
+   * @return the number of dog likes
+   */
+  public int getDogLikes()
+  {
+    return dogLikes;
+  }
+
+  /**
+   * A method returning the String interpretation of a ProfileStats object.
+   * Example: "{handle=sunny, posts=12, postLikes=80, comments=31, dogs=2, dogLikes=17}"
+   * @return a String representation of the ProfileStats object.
+   */
+  @Override public String toString()
+  {
+    return "{" + "handle=" + handle + ", posts=" + posts + ", postLikes=" + postLikes + ", comments=" + comments
+        + ", dogs=" + dogs + ", dogLikes=" + dogLikes + '}';
+  }
+}
@@ -12,6 +12,7 @@ import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * The RmiClient class establishes the communication with the server by looking up the server stub
@@ -26,15 +27,24 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   private RemoteModel remoteModel;
   private LocalModel localModel;
   private PropertyChangeAction<Object, Object> property;
+  private LruCache<String, User> users;
+  private LruCache<String, UserSummary> summaries;
 
   /**
    * A constructor looking up the name of the server stub in the registry and downloading it
    * in order to send and receive objects from the server.
+   * Up to <code>puppr.users.cache.size</code> users and <code>puppr.summaries.cache.size</code> user summaries
+   * are kept on the client, see getUserByHandle and getUsersByHandles.
    * @param localModel an instance of the LocalModel interface used to communicate with the
    *                   local model classes.
    */
   public RmiClient(LocalModel localModel)
   {
+    // the server already sends the events of a client one at a time and in order, so they are
+    // passed on in the same thread instead of one thread per event
+    property=new PropertyChangeProxy<>(this);
+    users = new LruCache<>(Integer.getInteger("puppr.users.cache.size", 256));
+    summaries = new LruCache<>(Integer.getInteger("puppr.summaries.cache.size", 256));
     try
     {
       this.localModel=localModel;
@@ -47,7 +57,6 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
     {
       e.printStackTrace();
     }
-    property=new PropertyChangeProxy<>(this,true);
 
   }
 
@@ -73,6 +82,7 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   public void setBio(User user) {
     try {
       remoteModel.setBio(user);
+      forgetUser(user.getHandle());
     } catch (RemoteException e) {
       e.printStackTrace();
     }
@@ -417,6 +427,7 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
     try
     {
       remoteModel.removeUser(user);
+      forgetUser(user.getHandle());
     }
     catch (RemoteException e)
     {
@@ -436,6 +447,7 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
     try
     {
       remoteModel.editUser(user);
+      forgetUser(user.getHandle());
     }
     catch (RemoteException e)
     {
@@ -464,16 +476,45 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   /**
    * Getter for a user based on their handle. The user information
    * is retrieved from the database by communicating with the
-   * server through the RemoteModel interface.
+   * server through the RemoteModel interface. Users already retrieved are
+   * kept on the client until the server reports a change to them.
    * @param handle
    *        the unique handle used to identify a user from another
    * @return an User object with the same handle value as the specified parameter value
    */
   @Override public User getUserByHandle(String handle)
   {
+    User user = users.get(handle);
+    if (user != null)
+      return user;
     try
     {
-      return remoteModel.getUserByHandle(handle);
+      long version = users.version(handle);
+      user = remoteModel.getUserByHandle(handle);
+      users.putIfVersion(handle, user, version);
+      return user;
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+
+  /**
+   * A method for liking a post. The like information is saved and the likes count of the post
+   * is incremented by one. Liking the same post twice has no effect.
+   * @param postId
+   *        the id of the post that was liked
+   * @param handle
+   *        the handle of the user who liked the post
+   * @return true if the like was recorded, false if the user had already liked the post
+   */
+  @Override public boolean likePost(int postId, String handle)
+  {
+    try
+    {
+      return remoteModel.likePost(postId, handle);
     }
     catch (RemoteException e)
     {
@@ -482,106 +523,303 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   }
 
   /**
-   * A method used to add a like to a comment. The new like information
-   * is sent to the server using the RemoteModel method.
+   * A method for liking a dog. The like information is saved and the likes count of the dog
+   * is incremented by one. Liking the same dog twice has no effect.
+   * @param dogId
+   *        the id of the Dog object that was liked
+   * @param handle
+   *        the handle of the user who liked the dog
+   * @return true if the like was recorded, false if the user had already liked the dog
+   */
+  @Override public boolean likeDog(int dogId, String handle)
+  {
+    try
+    {
+      return remoteModel.likeDog(dogId, handle);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * A method for liking a comment. The like information is saved and the likes count of the comment
+   * is incremented by one. Liking the same comment twice has no effect.
    * @param commentId
-   *        the id of the comment that has been liked
+   *        the id of the comment that was liked
+   * @param handle
+   *        the handle of the user who liked the comment
+   * @return true if the like was recorded, false if the user had already liked the comment
    */
-  @Override public void addLikeToComment(int commentId)
+  @Override public boolean likeComment(int commentId, String handle)
   {
     try
     {
-      remoteModel.addLikeToComment(commentId);
+      return remoteModel.likeComment(commentId, handle);
     }
     catch (RemoteException e)
     {
-      e.printStackTrace();
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
   /**
-   * A method for liking a post. The like information is sent to the
-   * server using the RemoteModel method.
-   * @param postId
-   *        the id of the post that has been liked
+   * A method for getting one page of the post feed, newest first
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page and the cursor of the next page
    */
-  @Override public void addLikeToPost(int postId)
+  @Override public PostPage getFeedPage(PostCursor cursor, int limit)
   {
     try
     {
-      remoteModel.addLikeToPost(postId);
+      return remoteModel.getFeedPage(cursor, limit);
     }
     catch (RemoteException e)
     {
-      e.printStackTrace();
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
   /**
-   * A method for liking a dog. The like information is sent to the
-   * server using the RemoteModel method.
-   * @param dogId
-   *        the id of the dog that has been liked
+   * Getter for one page of the posts made by a specific user, newest first
+   * @param handle
+   *        the handle of the user who made the posts
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+   * for the first page, the total number of posts made by the user
    */
-  @Override public void addLikeToDog(int dogId)
+  @Override public PostPage getPostsForUser(String handle, PostCursor cursor, int limit)
   {
     try
     {
-      remoteModel.addLikeToDog(dogId);
+      return remoteModel.getPostsForUser(handle, cursor, limit);
     }
     catch (RemoteException e)
     {
-      e.printStackTrace();
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
+  /**
+   * Getter for a whole image
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash)
+  {
+    try
+    {
+      return remoteModel.getImage(hash);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
 
   /**
-   * A method for adding a like to a post and linking the user's handle.
-   * The like information is sent to the server using the RemoteModel method.
-   * @param postId
-   *        the id of the post the like was added on
+   * Getter for a range of the bytes of an image, so that large images can be read in parts.
+   * A returned range shorter than requested marks the end of the image.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param offset
+   *        the index of the first byte of the range, starting from 0
+   * @param length
+   *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+   * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, int offset, int length)
+  {
+    try
+    {
+      return remoteModel.getImage(hash, offset, length);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for several whole images at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes)
+  {
+    try
+    {
+      return remoteModel.getImages(hashes);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+   * is not ready yet, the original image is returned.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param rendition
+   *        the size the image is drawn in
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, ImageRendition rendition)
+  {
+    try
+    {
+      return remoteModel.getImage(hash, rendition);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for several images of the same size at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @param rendition
+   *        the size the images are drawn in
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition)
+  {
+    try
+    {
+      return remoteModel.getImages(hashes, rendition);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for the ids of the posts liked by a user, out of the given ones
    * @param handle
-   *        the handle of the user who liked the post
+   *        the handle of the user
+   * @param postIds
+   *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+   * @return the ids of the liked posts in ascending order
    */
-  @Override
-  public void addLike(int postId, String handle) {
-    try {
-      remoteModel.addLike(postId,handle);
-    } catch (RemoteException e) {
-      e.printStackTrace();
+  @Override public int[] getLikedPostIds(String handle, int[] postIds)
+  {
+    try
+    {
+      return remoteModel.getLikedPostIds(handle, postIds);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
   /**
-   * Getter for all the likes added of posts. The information
-   * is retrieved directly form the server using the RemoteModel
-   * method.
-   * @return an ArrayList of String data type containing all
-   * the postId - handle pairs for the likes.
-   * Example: "12 - dogOwner1".
+   * Getter for the ids of the dogs liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param dogIds
+   *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+   * @return the ids of the liked dogs in ascending order
    */
-  @Override
-  public ArrayList<String> getLikes() {
-    try {
-      return remoteModel.getLikes();
-    } catch (RemoteException e) {
+  @Override public int[] getLikedDogIds(String handle, int[] dogIds)
+  {
+    try
+    {
+      return remoteModel.getLikedDogIds(handle, dogIds);
+    }
+    catch (RemoteException e)
+    {
       throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
   /**
-   * Method for adding a like to a dog and linking the user's handle to the like.
-   * @param dogId
-   *        the id of the Dog object that the like was added on
+   * Getter for the ids of the comments liked by a user, out of the given ones
    * @param handle
-   *        the handle of the user who liked the dog
+   *        the handle of the user
+   * @param commentIds
+   *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+   * @return the ids of the liked comments in ascending order
+   */
+  @Override public int[] getLikedCommentIds(String handle, int[] commentIds)
+  {
+    try
+    {
+      return remoteModel.getLikedCommentIds(handle, commentIds);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * A method checking the login credentials of a user on the server and opening a session for them.
+   * The session of a blocked user carries no token.
+   * @param handle
+   *        the handle of the user logging in
+   * @param password
+   *        the password as typed in by the user
+   * @return the session of the user, or <code>null</code> if the handle or the password is wrong
    */
-  @Override public void addDogLike(int dogId, String handle)
+  @Override public Session authenticate(String handle, String password)
   {
     try
     {
-      remoteModel.addDogLike(dogId, handle);
+      return remoteModel.authenticate(handle, password);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * A method changing the password of the user a session belongs to, after checking their current password
+   * @param token
+   *        the token of the session
+   * @param oldPassword
+   *        the current password as typed in by the user
+   * @param newPassword
+   *        the new password as typed in by the user
+   * @return true if the password was changed, false if the session expired or the current password is wrong
+   */
+  @Override public boolean changePassword(String token, String oldPassword, String newPassword)
+  {
+    try
+    {
+      return remoteModel.changePassword(token, oldPassword, newPassword);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * A method closing the session of a user
+   * @param token
+   *        the token of the session
+   */
+  @Override public void logout(String token)
+  {
+    try
+    {
+      remoteModel.logout(token);
     }
     catch (RemoteException e)
     {
@@ -590,18 +828,17 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   }
 
   /**
-   * Getter for all the dog likes. The information is retrieved
-   * directly from the database by communicating with the server through the
-   * RemoteModel interface
-   * @return an ArrayList of String data type containing all the
-   * dogId - handle pairs for the likes.
-   * Example: "1 - dogOwner232"
+   * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param handle
+   *        the handle that is checked
+   * @return true if no user has the handle, false otherwise
    */
-  @Override public ArrayList<String> getDogLikes()
+  @Override public boolean isHandleAvailable(String handle)
   {
     try
     {
-      return remoteModel.getDogLikes();
+      return remoteModel.isHandleAvailable(handle);
     }
     catch (RemoteException e)
     {
@@ -610,42 +847,142 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   }
 
   /**
-   * A method for adding a new like to a comment and saving the commentId - handle
-   * information in the database.
-   * @param commentId
-   *        the id of the comment that was added
+   * A method checking if an email can be used by a new user. Emails that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param email
+   *        the email that is checked
+   * @return true if no user has the email, false otherwise
+   */
+  @Override public boolean isEmailAvailable(String email)
+  {
+    try
+    {
+      return remoteModel.isEmailAvailable(email);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call.
+   * Summaries already retrieved are kept on the client, and only the missing ones are asked from the server.
+   * @param handles
+   *        the handles of the users; repeated handles are looked up once
+   * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+   */
+  @Override public HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles)
+  {
+    HashMap<String, UserSummary> found = new HashMap<>();
+    ArrayList<String> missing = new ArrayList<>();
+    for (String handle : handles)
+    {
+      UserSummary summary = summaries.get(handle);
+      if (summary != null)
+        found.put(handle, summary);
+      else if (handle != null && !missing.contains(handle))
+        missing.add(handle);
+    }
+    if (missing.isEmpty())
+      return found;
+    try
+    {
+      HashMap<String, Long> versions = new HashMap<>();
+      for (String handle : missing)
+        versions.put(handle, summaries.version(handle));
+      HashMap<String, UserSummary> loaded = remoteModel.getUsersByHandles(missing);
+      for (UserSummary summary : loaded.values())
+        summaries.putIfVersion(summary.getHandle(), summary, versions.getOrDefault(summary.getHandle(), -1L));
+      found.putAll(loaded);
+      return found;
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+   * updated with every like, so no dogs are read from the database.
+   * @param k
+   *        the number of dogs wanted
+   * @return an ArrayList with at most k dogs, the most liked first
+   */
+  @Override public ArrayList<Dog> getTopDogs(int k)
+  {
+    try
+    {
+      return remoteModel.getTopDogs(k);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+   * time they are asked for and then kept up to date in memory by every post, comment, dog and like.
    * @param handle
-   *        the handle of the user who made the comment
+   *        the handle of the user
+   * @return the totals of the user
    */
-  @Override
-  public void addCommentLike(int commentId, String handle) {
+  @Override public ProfileStats getProfileStats(String handle)
+  {
     try
     {
-      remoteModel.addCommentLike(commentId,handle);
+      return remoteModel.getProfileStats(handle);
     }
-    catch(RemoteException e)
+    catch (RemoteException e)
     {
-      e.printStackTrace();
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
   }
 
   /**
-   * Getter for a list of all the comment likes
-   * @return an ArrayList of String data type containing all the pairs in the
-   * for of commentId - handle.
-   * Example: "13 - sunny".
+   * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+   * recent comments, the whole thread is read page by page with this method.
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of comments on the page
+   * @return a CommentPage object containing the comments of the page and the cursor of the next page
    */
-  @Override
-  public ArrayList<String> getCommentLikes() {
+  @Override public CommentPage getComments(int postId, CommentCursor cursor, int limit)
+  {
     try
     {
-      return remoteModel.getCommentLikes();
+      return remoteModel.getComments(postId, cursor, limit);
     }
-    catch(RemoteException e)
+    catch (RemoteException e)
     {
-      e.printStackTrace();
+      throw new IllegalStateException(getExceptionMessage(e), e);
+    }
+  }
+
+  /**
+   * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+   * the user are moved to the new handle in a single transaction on the server.
+   * @param token
+   *        the token of the session
+   * @param newHandle
+   *        the new handle of the user
+   * @return true if the handle was changed, false if the session expired or the new handle is already taken
+   */
+  @Override public boolean renameHandle(String token, String newHandle)
+  {
+    try
+    {
+      return remoteModel.renameHandle(token, newHandle);
+    }
+    catch (RemoteException e)
+    {
+      throw new IllegalStateException(getExceptionMessage(e), e);
     }
-    return null;
   }
 
   /**
@@ -656,22 +993,58 @@ public class RmiClient implements LocalClientModel, RemoteListener<Object, Objec
   {
     try
     {
+      remoteModel.removeListener(this);
       UnicastRemoteObject.unexportObject(this,true);
     }
     catch (NoSuchObjectException e)
     {
       e.printStackTrace();
     }
+    catch (RemoteException e)
+    {
+      System.out.println(getExceptionMessage(e));
+    }
+  }
+
+  /**
+   * A private method dropping a user from the client's caches
+   * @param handle
+   *        the handle of the user
+   */
+  private void forgetUser(String handle)
+  {
+    users.invalidate(handle);
+    summaries.invalidate(handle);
   }
 
   /**
    * A method that is called whenever a new property change is received by the listeners.
+   * Changes to a user or to their dogs drop the user from the client's caches before the
+   * event is passed on.
    * @param event
    *        the new event that was heard by the listeners
    */
   @Override public void propertyChange(ObserverEvent<Object, Object> event)
 
   {
+    if (event.getValue2() instanceof ChangeEvent)
+    {
+      ChangeEvent change = (ChangeEvent) event.getValue2();
+      switch (change.getKind())
+      {
+        case USER_EDITED:
+        case USER_REMOVED:
+        case DOG_ADDED:
+        case DOG_EDITED:
+        case DOG_REMOVED:
+          forgetUser(change.getHandle());
+          break;
+        case RESYNC:
+          users.clear();
+          summaries.clear();
+          break;
+      }
+    }
     property.firePropertyChange(event);
   }
 
@@ -74,14 +74,6 @@ public class ChangePasswordController {
         return root;
     }
 
-    /**
-     * A method for checking if the introduced password value matches the one saved in the database
-     * @return a boolean value equaling true if the value match of false otherwise
-     */
-    public boolean checkPassword() {
-        return passwordField.getText().equals(viewModel.getUserPassword());
-    }
-
     /**
      * A private method checking for blank fields
      * @return a boolean value signaling if any obligatory fields were left null
@@ -125,24 +117,23 @@ public class ChangePasswordController {
             passwordField.setStyle("-fx-border-style: none ; ");
             newPasswordField.setStyle("-fx-border-style: none ; ");
             repeatPasswordField.setStyle("-fx-border-style: none ; ");
-            if (checkPassword() && (newPasswordField.getText().equals(repeatPasswordField.getText()))) {
-                viewModel.savePassword();
+            if (!(newPasswordField.getText().equals(repeatPasswordField.getText()))) {
+                System.out.println("Passwords do not match");
+                newPasswordField.setStyle("-fx-border-color: red ; -fx-border-width: 2px ;");
+                repeatPasswordField.setStyle("-fx-border-color: red ; -fx-border-width: 2px ;");
+                newPasswordField.clear();
+                repeatPasswordField.clear();
+            }
+            else if (viewModel.savePassword()) {
                 reset();
                 viewHandler.openView("home");
             }
-            if (!checkPassword()) {
+            else {
                 passwordField.setStyle("-fx-border-color: red ; -fx-border-width: 2px ;");
                 passwordField.clear();
                 newPasswordField.clear();
                 repeatPasswordField.clear();
             }
-            if (!(newPasswordField.getText().equals(repeatPasswordField.getText()))) {
-                System.out.println("Passwords do not match");
-                newPasswordField.setStyle("-fx-border-color: red ; -fx-border-width: 2px ;");
-                repeatPasswordField.setStyle("-fx-border-color: red ; -fx-border-width: 2px ;");
-                newPasswordField.clear();
-                repeatPasswordField.clear();
-            }
         }
     }
 
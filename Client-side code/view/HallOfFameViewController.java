@@ -4,7 +4,6 @@ import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Region;
@@ -14,10 +13,10 @@ import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import model.Dog;
-import model.User;
+import model.ImageRendition;
+import model.UserSummary;
 import viewmodel.HallOfFameViewModel;
 
-import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 
 /**
@@ -66,7 +65,7 @@ public class HallOfFameViewController {
         this.viewHandler = viewHandler;
         this.viewModel = hallOfFameViewModel;
         this.root = root;
-        dogs = viewModel.allDogs();
+        dogs = viewModel.getTopDogs();
         if (dogs != null)
             if (dogs.size() > 0)
                 setDogs();
@@ -78,7 +77,7 @@ public class HallOfFameViewController {
      */
     public void reset() {
         vBox1.getChildren().clear();
-        dogs = viewModel.allDogs();
+        dogs = viewModel.getTopDogs();
         if (dogs != null)
             if (dogs.size() > 0)
                 setDogs();
@@ -110,12 +109,12 @@ public class HallOfFameViewController {
         if (dogs != null)
             size = dogs.size();
         if (size >= 3) {
-            if (dogs.get(0).getImageURL() != null)
-                firstPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(0).getImageURL()))));
-            if (dogs.get(1).getImageURL() != null)
-                secondPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(1).getImageURL()))));
-            if (dogs.get(2).getImageURL() != null)
-                thirdPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(2).getImageURL()))));
+            if (dogs.get(0).getImageHash() != null)
+                viewModel.loadImage(dogs.get(0).getImageHash(), ImageRendition.CARD, img -> firstPhoto.setFill(new ImagePattern(img)));
+            if (dogs.get(1).getImageHash() != null)
+                viewModel.loadImage(dogs.get(1).getImageHash(), ImageRendition.CARD, img -> secondPhoto.setFill(new ImagePattern(img)));
+            if (dogs.get(2).getImageHash() != null)
+                viewModel.loadImage(dogs.get(2).getImageHash(), ImageRendition.CARD, img -> thirdPhoto.setFill(new ImagePattern(img)));
 
             firstName.setText(dogs.get(0).getName());
             secondName.setText(dogs.get(1).getName());
@@ -124,17 +123,17 @@ public class HallOfFameViewController {
             secondOwner.setText("@ " + dogs.get(1).getOwnerName());
             thirdOwner.setText("@ " + dogs.get(2).getOwnerName());
         } else if (size == 2) {
-            if (dogs.get(0).getImageURL() != null)
-                firstPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(0).getImageURL()))));
-            if (dogs.get(1).getImageURL() != null)
-                secondPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(1).getImageURL()))));
+            if (dogs.get(0).getImageHash() != null)
+                viewModel.loadImage(dogs.get(0).getImageHash(), ImageRendition.CARD, img -> firstPhoto.setFill(new ImagePattern(img)));
+            if (dogs.get(1).getImageHash() != null)
+                viewModel.loadImage(dogs.get(1).getImageHash(), ImageRendition.CARD, img -> secondPhoto.setFill(new ImagePattern(img)));
             firstName.setText(dogs.get(0).getName());
             secondName.setText(dogs.get(1).getName());
             firstOwner.setText("@ " + dogs.get(0).getOwnerName());
             secondOwner.setText("@ " + dogs.get(1).getOwnerName());
         } else if (size == 1) {
-            if (dogs.get(0).getImageURL() != null)
-                firstPhoto.setFill(new ImagePattern(new Image(new ByteArrayInputStream(dogs.get(0).getImageURL()))));
+            if (dogs.get(0).getImageHash() != null)
+                viewModel.loadImage(dogs.get(0).getImageHash(), ImageRendition.CARD, img -> firstPhoto.setFill(new ImagePattern(img)));
             firstName.setText(dogs.get(0).getName());
             firstOwner.setText("@ " + dogs.get(0).getOwnerName());
         }
@@ -204,14 +203,12 @@ public class HallOfFameViewController {
         Circle portrait = new Circle();
         portrait.setRadius(35);
 
-        User user = viewModel.getUserByHandle(dog.getOwnerName());
-        byte[] imageurl = user.getImageURL();
-        if (imageurl != null) {
-            Image img = new Image(new ByteArrayInputStream(imageurl));
+        UserSummary user = viewModel.getAuthor(dog.getOwnerName());
+        viewModel.loadImage(user.getImageHash(), ImageRendition.AVATAR, img -> {
             portrait.setStroke(Color.web("#5B8266"));
             portrait.setStrokeWidth(2);
             portrait.setFill(new ImagePattern(img));
-        }                                                                                                // profile pic
+        });                                                                                                // profile pic
         portrait.setPickOnBounds(true);
 
         portrait.setOnMouseClicked(e -> {
@@ -222,8 +219,7 @@ public class HallOfFameViewController {
         left.setAlignment(Pos.TOP_CENTER);
         left.setSpacing(0);
 
-        User user1 = viewModel.getUserByHandle(dog.getOwnerName());
-        Label username = new Label(" @" + user1.getHandle() + " ● dog owner");                 /// username
+        Label username = new Label(" @" + user.getHandle() + " ● dog owner");                 /// username
         username.setPickOnBounds(true);
         username.setOnMouseClicked(e -> {
             viewHandler.openView("profile");
@@ -245,13 +241,12 @@ public class HallOfFameViewController {
         text2.setPrefWidth(200);
 
         Rectangle photo = new Rectangle();
-        if (dog.getImageURL() != null) {
+        if (dog.getImageHash() != null) {
             photo.setWidth(75);
             photo.setHeight(75);
             photo.setStroke(Color.web("#f09c48"));
             photo.setStrokeWidth(2);                                                            //image
-            javafx.scene.image.Image img2 = new javafx.scene.image.Image(new ByteArrayInputStream(dog.getImageURL()));
-            photo.setFill(new ImagePattern(img2));
+            viewModel.loadImage(dog.getImageHash(), ImageRendition.CARD, img -> photo.setFill(new ImagePattern(img)));
         }
 
         HBox dogPhoto = new HBox(photo);
@@ -268,7 +263,7 @@ public class HallOfFameViewController {
 
         Pane pane = new Pane(hBox);
         pane.setPrefWidth(250);
-        if (dog.getImageURL() != null)
+        if (dog.getImageHash() != null)
             pane.setPrefHeight(180);
         else
             pane.setPrefHeight(110);                                           //create the pane with everything inside
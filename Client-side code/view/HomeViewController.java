@@ -2,6 +2,7 @@ package view;
 
 
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -20,16 +21,21 @@ import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
+import model.ImageRendition;
 import model.Post;
+import model.PostCursor;
+import model.PostPage;
 
 import model.User;
+import model.UserSummary;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.LocalListener;
 import viewmodel.HomeViewModel;
+import viewmodel.PostCardViewModel;
 
-import java.io.ByteArrayInputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Optional;
 
 /**
@@ -41,12 +47,13 @@ import java.util.Optional;
  * @version 1.0
  */
 public class HomeViewController implements LocalListener<Object, Object> {
+    private static final int PAGE_PREFETCH_DISTANCE = 3;
     @FXML
     private ImageView create;
     @FXML
     private Circle portrait;
     @FXML
-    private VBox vBox;
+    private ListView<Post> feed;
     @FXML
     Label handleLabel;
     @FXML
@@ -59,7 +66,11 @@ public class HomeViewController implements LocalListener<Object, Object> {
     private HBox manageProfileHBox;
     @FXML
     private HBox theTeamHBox;
-    private ArrayList<String> likedPosts;
+    private BitSet likedPosts;
+    private final Image boneLike = new Image("resources/boneLike.png");
+    private final Image boneFilled = new Image("resources/boneFilled.png");
+    private PostCursor nextCursor;
+    private boolean loadingPage;
     private boolean isAdmin;
     private boolean isGuest;
 
@@ -86,10 +97,10 @@ public class HomeViewController implements LocalListener<Object, Object> {
         viewModel.addListener(this, "post");
         viewModel.addListener(this, "admin");
         this.root = root;
-        likedPosts = viewModel.getAllLikes();
+        likedPosts = new BitSet();
         handleLabel.textProperty().bindBidirectional(viewModel.handleProperty());
         nameLabel.textProperty().bindBidirectional(viewModel.nameProperty());
-        vBox.getChildren().clear();
+        feed.setCellFactory(list -> new PostCell());
         addLastPosts();
     }
 
@@ -105,8 +116,6 @@ public class HomeViewController implements LocalListener<Object, Object> {
      * A method resetting the fields when the view is reopened
      */
     public void reset() {
-        likedPosts = viewModel.getAllLikes();
-        vBox.getChildren().clear();
         addLastPosts();
     }
 
@@ -170,243 +179,26 @@ public class HomeViewController implements LocalListener<Object, Object> {
     }
 
     /**
-     * A method for adding all the posts to the home view for users to see and interact with
+     * A method for showing the newest posts in the home view for users to see and interact with.
+     * Only the first page of the feed is loaded; older pages are loaded as the user scrolls down.
      */
     public void addLastPosts() {
-        ArrayList<Post> posts = viewModel.getPostList();
-        int size = posts.size() - 1;
-
-        for (int i = size; i >= 0; i--) {
-            vBox.getChildren().add(makeCard(posts.get(i)));
-        }
+        nextCursor = null;
+        likedPosts.clear();
+        feed.getItems().clear();
+        feed.scrollTo(0);
+        addNextPosts();
     }
 
     /**
-     * A method making the post cards with all the owner and post information, as well as some event buttons
-     * @param post
-     *        the Post object whose information will be in the card
-     * @return a Pane object representing the post card with all the needed information
+     * A method adding the next page of the feed below the posts already loaded
      */
-    public Pane makeCard(Post post) {
-        Circle portrait = new Circle();
-        portrait.setRadius(40);
-
-        User user = viewModel.getUserByHandle(post.getHandle());
-        byte[] imageurl = user.getImageURL();
-        if (imageurl != null) {
-            Image img = new Image(new ByteArrayInputStream(imageurl));
-            portrait.setStroke(Color.web("#5B8266"));
-            portrait.setStrokeWidth(3);
-            portrait.setFill(new ImagePattern(img));
-        }
-
-        portrait.setOnMouseClicked(e -> {                                   //profile pic
-            viewModel.openUserProfile(post.getHandle());
-            viewHandler.openView("profile");
-        });
-
-        String verify2 = "";
-        try
-        {
-            verify2 = post.getPostId() + "/" + handleLabel.getText().replace(" @", "");
-        }
-        catch(Exception e)
-        {
-
-        }
-        ImageView bone;
-        boolean found2 = false;
-        if(likedPosts!=null) {
-            for (String like : likedPosts) {
-                if (like.equals(verify2)) {
-                    found2 = true;
-                    break;
-                }
-            }
-        }
-
-        if(!found2)
-            bone = new ImageView("resources/boneLike.png");
-        else
-            bone = new ImageView("resources/boneFilled.png");
-
-        bone.setFitHeight(45);                                              //like button
-        bone.setFitWidth(45);
-        bone.setEffect(new ColorAdjust(0, 0, -0.14, -1));
-        bone.setPickOnBounds(true);
-
-
-        if (isGuest) {
-            bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                ButtonType guest = new ButtonType("Continue as a guest", ButtonBar.ButtonData.CANCEL_CLOSE);
-                ButtonType login = new ButtonType("Go to login page", ButtonBar.ButtonData.CANCEL_CLOSE);
-                Alert alert = new Alert(Alert.AlertType.NONE,
-                                        "You have to login to use like button ",
-                                        login,
-                                        guest);
-
-                Optional<ButtonType> result = alert.showAndWait();
-
-                if(result.get().equals(login)){
-                    viewHandler.openView("login");
-                }
-            });
-
-        } else {
-            bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                String verify = post.getPostId() + "/" + handleLabel.getText().replace(" @", "");
-                boolean found = false;
-                if(likedPosts!=null) {
-                    for (String like : likedPosts) {
-                        if (like.equals(verify)) {
-                            found = true;
-                            break;
-                        }
-                    }
-                }
-                if (!found) {
-                    viewModel.likePost(post.getPostId(), handleLabel.getText().replace(" @", ""));
-                    vBox.getChildren().clear();
-                    addLastPosts();
-                    likedPosts = viewModel.getAllLikes();
-                    bone.setImage(new Image("resources/boneFilled.png"));
-                    this.reset();
-                }
-            });
-        }
-
-
-        ImageView comment = new ImageView("resources/comment.png");
-        comment.setFitHeight(45);                                                //comment button
-        comment.setFitWidth(45);
-        comment.setEffect(new ColorAdjust(0, 0, -0.14, -1));
-        comment.setPickOnBounds(true);
-
-        if (isGuest) {
-
-            comment.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-
-                ButtonType guest = new ButtonType("Continue as a guest", ButtonBar.ButtonData.CANCEL_CLOSE);
-                ButtonType login = new ButtonType("Go to login page", ButtonBar.ButtonData.CANCEL_CLOSE);
-                Alert alert = new Alert(Alert.AlertType.NONE,
-                                        "You have to login to leave a comment.", login, guest);
-
-                Optional<ButtonType> result = alert.showAndWait();
-
-                if(result.get().equals(login)){
-                    viewHandler.openView("login");
-                }
-
-            });
-
-
-        } else {
-            comment.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                viewModel.setComment(post);
-                viewHandler.openView("createComment");
-            });
-        }
-
-
-        VBox left = new VBox(portrait, bone, comment);
-        left.setAlignment(Pos.TOP_CENTER);
-        left.setSpacing(0);
-
-
-        User user1 = viewModel.getUserByHandle(post.getHandle());
-        Label username = new Label(user1.getName() + " " + user1.getLastname() + " ●");                //username
-        username.getStyleClass().add("name");
-        username.setOnMouseClicked(e -> {
-            viewHandler.openView("profile");
-            viewModel.openUserProfile(post.getHandle());
-        });
-        Label time = new Label(" " + post.getTimePosted().format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) + " at " + post.getTimePosted().format(
-            DateTimeFormatter.ofPattern("HH:mm:ss")));               //time
-        time.getStyleClass().add("time");
-        HBox userTime = new HBox(username, time);
-        userTime.setAlignment(Pos.CENTER_LEFT);
-
-
-        String aux = "@";
-        aux = aux + post.getHandle() + " - " + post.getLikes() + " likes and " + post.getComments().size() + " comments";         //handle, likes and comments
-        Label handle1 = new Label(aux);
-        handle1.getStyleClass().add("userName");
-
-
-        Label text1 = new Label(post.getText());
-        text1.getStyleClass().add("post");                                     //post itself
-        text1.setPrefHeight(120);
-        text1.setPrefWidth(434);
-        text1.wrapTextProperty().set(true);
-
-        Rectangle photo = new Rectangle();
-        if (post.getImageURL() != null) {
-            photo.setWidth(400);
-            photo.setHeight(340);
-            photo.setStroke(Color.web("#5B8266"));
-            photo.setStrokeWidth(3);                                                                                            //image
-            javafx.scene.image.Image img2 = new javafx.scene.image.Image(new ByteArrayInputStream(post.getImageURL()));
-            photo.setFill(new ImagePattern(img2));
-        }
-
-        VBox right;
-        Label show = new Label("Show");
-        show.setPrefWidth(60);                                                         //show
-        show.getStyleClass().add("button");
-        show.setOnMouseClicked(e -> {
-            viewModel.openPost(post.getPostId());
-            viewHandler.openView("viewPost");
-        });
-
-        if (isAdmin) {
-            Label edit = new Label("Edit");
-            edit.getStyleClass().add("button");
-            edit.setPrefWidth(60);
-            edit.setOnMouseClicked(e -> {
-                viewModel.editPost(post);
-                viewHandler.openView("editPost");
-            });
-            Label delete = new Label("Delete");
-            delete.setPrefWidth(60);
-            delete.getStyleClass().add("button");
-            delete.setOnMouseClicked(e -> {
-                viewModel.deletePost(post);
-                vBox.getChildren().clear();
-                addLastPosts();
-            });
-
-
-            HBox end = new HBox(show, edit, delete);
-            end.setSpacing(10);
-            end.setAlignment(Pos.BOTTOM_RIGHT);
-            end.setPadding(new Insets(4, 0, 10, 0));
-
-            right = new VBox(userTime, handle1, text1, photo, end);
-            right.setSpacing(10);
-            left.setSpacing(10);
-        } else {
-            HBox end = new HBox(show);
-            end.setAlignment(Pos.BOTTOM_RIGHT);
-            right = new VBox(userTime, handle1, text1, photo, end);
-            right.setSpacing(10);
-            left.setSpacing(27);
-        }
-
-        HBox hBox = new HBox(left, right);
-        hBox.setSpacing(5);
-        hBox.setPadding(new Insets(10, 17, 10, 20));
-
-        Pane pane = new Pane(hBox);
-        pane.setPrefWidth(574);
-        if (post.getImageURL() != null)
-            pane.setPrefHeight(610);
-        else
-            pane.setPrefHeight(274);
-
-
-        pane.getStyleClass().add("mainFxmlClass");
-
-        return pane;
+    private void addNextPosts() {
+        PostPage page = viewModel.getFeedPage(nextCursor);
+        for (int postId : viewModel.getLikedPostIds(page.getPosts()))
+            likedPosts.set(postId);
+        feed.getItems().addAll(page.getPosts());
+        nextCursor = page.getNextCursor();
     }
 
     /**
@@ -434,21 +226,15 @@ public class HomeViewController implements LocalListener<Object, Object> {
                     isGuest=false;
                     makeButtonsVisible();
                     User user = viewModel.getUserByHandle(event.getValue2().toString());
-                    byte[] imageurl = user.getImageURL();
-                    if (imageurl != null) {
-                        Image img = new Image(new ByteArrayInputStream(imageurl));
-                        portrait.setFill(new ImagePattern(img));
-                    }
+                    viewModel.loadImage(user.getImageHash(), ImageRendition.CARD, img -> portrait.setFill(new ImagePattern(img)));
                     break;
                 case "post":
-                    vBox.getChildren().clear();
                     addLastPosts();
                     break;
                 case "admin":
                     isGuest=false;
                     makeButtonsVisible();
                     isAdmin = (boolean) event.getValue2();
-                    vBox.getChildren().clear();
                     addLastPosts();
                     break;
                 case "guest":
@@ -462,10 +248,236 @@ public class HomeViewController implements LocalListener<Object, Object> {
                     newPost.setVisible(false);
                     create.setVisible(false);
 
-                    vBox.getChildren().clear();
                     addLastPosts();
                     break;
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * A list cell showing a post card. The feed only creates cells for the posts that fit on the screen
+     * and hands them other posts while the user scrolls. The layout of the card is built once, when the cell
+     * is created, and handing the cell another post only changes its texts, images and bindings. Showing one
+     * of the last posts loaded starts loading the next page of the feed.
+     */
+    private class PostCell extends ListCell<Post> {
+        private final Circle portrait;
+        private final ImageView bone;
+        private final Label username;
+        private final Label time;
+        private final Label handle1;
+        private final Label text1;
+        private final Rectangle photo;
+        private final Label delete;
+        private final HBox end;
+        private final VBox left;
+        private final Pane pane;
+        private Post post;
+        private PostCardViewModel card;
+
+        /**
+         * A constructor building the layout of the card and adding its event handlers, which act on the post
+         * the cell shows at the time of the click
+         */
+        private PostCell() {
+            portrait = new Circle();
+            portrait.setRadius(40);
+            portrait.setOnMouseClicked(e -> {                                   //profile pic
+                viewModel.openUserProfile(post.getHandle());
+                viewHandler.openView("profile");
+            });
+
+            bone = new ImageView();
+            bone.setFitHeight(45);                                              //like button
+            bone.setFitWidth(45);
+            bone.setEffect(new ColorAdjust(0, 0, -0.14, -1));
+            bone.setPickOnBounds(true);
+            bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+                if (isGuest)
+                    askToLogin("You have to login to use like button ");
+                else if (!card.isLiked())
+                    viewModel.likePost(post.getPostId(), handleLabel.getText().replace(" @", ""));
+            });
+
+            ImageView comment = new ImageView("resources/comment.png");
+            comment.setFitHeight(45);                                                //comment button
+            comment.setFitWidth(45);
+            comment.setEffect(new ColorAdjust(0, 0, -0.14, -1));
+            comment.setPickOnBounds(true);
+            comment.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+                if (isGuest) {
+                    askToLogin("You have to login to leave a comment.");
+                } else {
+                    viewModel.setComment(post);
+                    viewHandler.openView("createComment");
+                }
+            });
+
+            left = new VBox(portrait, bone, comment);
+            left.setAlignment(Pos.TOP_CENTER);
+
+            username = new Label();                                             //username
+            username.getStyleClass().add("name");
+            username.setOnMouseClicked(e -> {
+                viewHandler.openView("profile");
+                viewModel.openUserProfile(post.getHandle());
+            });
+            time = new Label();                                                 //time
+            time.getStyleClass().add("time");
+            HBox userTime = new HBox(username, time);
+            userTime.setAlignment(Pos.CENTER_LEFT);
+
+            handle1 = new Label();                                              //handle, likes and comments
+            handle1.getStyleClass().add("userName");
+
+            text1 = new Label();
+            text1.getStyleClass().add("post");                                     //post itself
+            text1.setPrefHeight(120);
+            text1.setPrefWidth(434);
+            text1.wrapTextProperty().set(true);
+
+            photo = new Rectangle();                                            //image
+            photo.setStroke(Color.web("#5B8266"));
+            photo.setStrokeWidth(3);
+
+            Label show = new Label("Show");
+            show.setPrefWidth(60);                                                         //show
+            show.getStyleClass().add("button");
+            show.setOnMouseClicked(e -> {
+                viewModel.openPost(post.getPostId());
+                viewHandler.openView("viewPost");
+            });
+            Label edit = new Label("Edit");
+            edit.getStyleClass().add("button");
+            edit.setPrefWidth(60);
+            edit.setOnMouseClicked(e -> {
+                viewModel.editPost(post);
+                viewHandler.openView("editPost");
+            });
+            delete = new Label("Delete");
+            delete.setPrefWidth(60);
+            delete.getStyleClass().add("button");
+            delete.setOnMouseClicked(e -> {
+                viewModel.deletePost(post);
+                feed.getItems().remove(post);
+            });
+            edit.visibleProperty().bind(delete.visibleProperty());
+            edit.managedProperty().bind(delete.visibleProperty());
+            delete.managedProperty().bind(delete.visibleProperty());
+            end = new HBox(show, edit, delete);
+            end.setAlignment(Pos.BOTTOM_RIGHT);
+
+            VBox right = new VBox(userTime, handle1, text1, photo, end);
+            right.setSpacing(10);
+
+            HBox hBox = new HBox(left, right);
+            hBox.setSpacing(5);
+            hBox.setPadding(new Insets(10, 17, 10, 20));
+
+            pane = new Pane(hBox);
+            pane.setPrefWidth(574);
+            pane.getStyleClass().add("mainFxmlClass");
+        }
+
+        @Override
+        protected void updateItem(Post post, boolean empty) {
+            super.updateItem(post, empty);
+            if (empty || post == null) {
+                this.post = null;
+                card = null;
+                setGraphic(null);
+                return;
+            }
+            show(post);
+            setGraphic(pane);
+
+            if (nextCursor != null && !loadingPage
+                    && getIndex() >= feed.getItems().size() - PAGE_PREFETCH_DISTANCE) {
+                PostCursor cursor = nextCursor;
+                loadingPage = true;
+                Platform.runLater(() -> {
+                    if (cursor == nextCursor)
+                        addNextPosts();
+                    loadingPage = false;
+                });
+            }
+        }
+
+        /**
+         * A private method filling the card with the owner and post information of a post. The images are
+         * loaded in the background and only drawn if the cell still shows the same post by then.
+         * @param post
+         *        the Post object whose information will be in the card
+         */
+        private void show(Post post) {
+            this.post = post;
+            card = viewModel.getCard(post, likedPosts.get(post.getPostId()));
+            bone.imageProperty().bind(Bindings.when(card.likedProperty()).then(boneFilled).otherwise(boneLike));
+            handle1.textProperty().bind(card.summaryProperty());
+
+            UserSummary user = viewModel.getAuthor(post.getHandle());
+            if (user == null)                                                   // author removed or renamed meanwhile
+                user = new UserSummary(post.getHandle(), post.getHandle(), "", null, null);
+            portrait.setStroke(null);
+            portrait.setFill(Color.BLACK);
+            viewModel.loadImage(user.getImageHash(), ImageRendition.AVATAR, img -> {
+                if (this.post != post)
+                    return;
+                portrait.setStroke(Color.web("#5B8266"));
+                portrait.setStrokeWidth(3);
+                portrait.setFill(new ImagePattern(img));
+            });
+
+            username.setText(user.getName() + " " + user.getLastname() + " ●");
+            time.setText(" " + post.getTimePosted().format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) + " at "
+                    + post.getTimePosted().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+            text1.setText(post.getText());
+
+            photo.setFill(null);
+            if (post.getImageHash() != null) {
+                photo.setWidth(400);
+                photo.setHeight(340);
+                photo.setVisible(true);
+                viewModel.loadImage(post.getImageHash(), ImageRendition.CARD, img -> {
+                    if (this.post == post)
+                        photo.setFill(new ImagePattern(img));
+                });
+                pane.setPrefHeight(610);
+            } else {
+                photo.setWidth(0);
+                photo.setHeight(0);
+                photo.setVisible(false);
+                pane.setPrefHeight(274);
+            }
+
+            delete.setVisible(isAdmin);
+            if (isAdmin) {
+                end.setSpacing(10);
+                end.setPadding(new Insets(4, 0, 10, 0));
+                left.setSpacing(10);
+            } else {
+                end.setSpacing(0);
+                end.setPadding(Insets.EMPTY);
+                left.setSpacing(27);
+            }
+        }
+    }
+
+    /**
+     * A private method telling a guest that an action needs a logged in user and opening the login view if
+     * they choose to
+     * @param message
+     *        the text of the alert
+     */
+    private void askToLogin(String message) {
+        ButtonType guest = new ButtonType("Continue as a guest", ButtonBar.ButtonData.CANCEL_CLOSE);
+        ButtonType login = new ButtonType("Go to login page", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert alert = new Alert(Alert.AlertType.NONE, message, login, guest);
+
+        Optional<ButtonType> result = alert.showAndWait();
+
+        if (result.get().equals(login)) {
+            viewHandler.openView("login");
+        }
+    }
+}
@@ -108,11 +108,12 @@ public class LoginViewController {
         if(areFieldsNotBlank()){
             usernameField.setStyle(null);
             passwordField.setStyle(null);
-            if (viewModel.setCredentials()&&viewModel.getUserByHandle(usernameField.getText()).getStatus().equalsIgnoreCase("unblocked")) {
+            boolean correct = viewModel.setCredentials();
+            if (correct && !viewModel.isBlocked()) {
                 viewModel.userLogin();
                 viewHandler.openView("home");
             }
-            else if(viewModel.setCredentials()&&viewModel.getUserByHandle(usernameField.getText()).getStatus().equalsIgnoreCase("blocked")){
+            else if(correct){
                 Alert alert = new Alert(Alert.AlertType.NONE);
                 alert.setContentText("This user account is blocked by admin");
                 ButtonType okButton = new ButtonType("OK", ButtonBar.ButtonData.CANCEL_CLOSE);
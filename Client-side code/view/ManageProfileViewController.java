@@ -2,12 +2,12 @@ package view;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.ImagePattern;
 import javafx.stage.FileChooser;
 import javafx.util.StringConverter;
 import model.ImageConverter;
+import model.ImageRendition;
 import model.TextLimiter;
 import model.User;
 import viewmodel.ManageProfileViewModel;
@@ -121,8 +121,8 @@ public class ManageProfileViewController {
         emailField.setText(user.getEmail());
         lastNameField.setText(user.getLastname());
         firstNameField.setText(user.getName());
-        if (user.getImageURL() != null)
-            profile.setFill(new ImagePattern(new Image(new ByteArrayInputStream(user.getImageURL()))));
+        if (user.getImageHash() != null)
+            viewModel.loadImage(user.getImageHash(), ImageRendition.CARD, img -> profile.setFill(new ImagePattern(img)));
         bioText.setText(user.getBio());
     }
 
@@ -1,6 +1,7 @@
 package view;
 
 import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -15,15 +16,19 @@ import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import model.Dog;
+import model.ImageRendition;
 import model.Post;
+import model.PostCursor;
+import model.PostPage;
 import model.User;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.LocalListener;
+import viewmodel.PostCardViewModel;
 import viewmodel.ProfileViewModel;
 
-import java.io.ByteArrayInputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Optional;
 
 /**
@@ -61,12 +66,15 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 	@FXML
 	private Button block;
 
-	private ArrayList<String> likedPosts;
-	private ArrayList<String> likedDogPosts;
+	private BitSet likedPosts;
+	private final Image boneLike = new Image("resources/boneLike.png");
+	private final Image boneFilled = new Image("resources/boneFilled.png");
+	private BitSet likedDogPosts;
 	private boolean mainUserPage;
 	private String mainUser;
 	private boolean isGuest;
 	private boolean isAdmin;
+	private PostCursor nextCursor;
 
 	/**
 	 * A method for initialising all the class variables and binding the view elements to
@@ -85,8 +93,8 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		this.viewModel.addListener(this, "user");
 		this.viewModel.addListener(this, "guest");
 		this.root = root;
-		likedPosts = viewModel.getAllLikes();
-		likedDogPosts = viewModel.getAllDogLikes();
+		likedPosts = new BitSet();
+		likedDogPosts = new BitSet();
 
 		handle.textProperty().bindBidirectional(viewModel.handleProperty());
 		nameLabel.textProperty().bindBidirectional(viewModel.nameProperty());
@@ -120,8 +128,6 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 	 */
 	public void reset() {
 		mainUser = viewModel.getChangeableHandle();
-		likedPosts = viewModel.getAllLikes();
-		likedDogPosts = viewModel.getAllDogLikes();
 		vBox.getChildren().clear();
 		addLastPosts();
 		addDogs();
@@ -136,16 +142,39 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 	}
 
 	/**
-	 * A method for adding all the user's posts from latest to oldest
+	 * A method for adding the first page of the user's posts from latest to oldest
 	 */
 	public void addLastPosts() {
+		nextCursor = null;
+		likedPosts.clear();
 		if (viewModel.getHandle() != null) {
-			ArrayList<Post> posts = viewModel.getPostsForUser(viewModel.getHandle().replace(" @", ""));
-			int size = posts.size() - 1;
+			addNextPosts(viewModel.getHandle().replace(" @", ""));
+		}
+	}
 
-			for (int i = size; i >= 0; i--) {
-				vBox.getChildren().add(makeCard(posts.get(i)));
-			}
+	/**
+	 * A method adding the next page of the user's posts below the posts already shown, followed by a
+	 * "Show more" button if the user has older posts
+	 *
+	 * @param handle the handle of the user whose posts are shown
+	 */
+	private void addNextPosts(String handle) {
+		PostPage page = viewModel.getPostsForUser(handle, nextCursor);
+		for (int postId : viewModel.getLikedPostIds(page.getPosts()))
+			likedPosts.set(postId);
+		for (Post post : page.getPosts()) {
+			vBox.getChildren().add(makeCard(post));
+		}
+		nextCursor = page.getNextCursor();
+
+		if (page.hasMore()) {
+			Label more = new Label("Show more");
+			more.getStyleClass().add("button");
+			more.setOnMouseClicked(e -> {
+				vBox.getChildren().remove(more);
+				addNextPosts(handle);
+			});
+			vBox.getChildren().add(more);
 		}
 	}
 
@@ -160,29 +189,22 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		Rectangle photo = new Rectangle();
 		photo.setHeight(120);
 		photo.setWidth(120);
-		byte[] imageurl = dog.getImageURL();
-		if (imageurl != null) {
-			Image img = new Image(new ByteArrayInputStream(imageurl));
+		photo.setFill(Color.web("#faead9"));
+		viewModel.loadImage(dog.getImageHash(), ImageRendition.CARD, img -> {
 			photo.setStroke(Color.web("#5B8266"));
 			photo.setStrokeWidth(3);
 			photo.setFill(new ImagePattern(img));
-		} else
-			photo.setFill(Color.web("#faead9"));
+		});
 
 		Label dogname = new Label(dog.getName());
 		dogname.getStyleClass().add("name");
-		String verify2 = "";
-		verify2 = dog.getDogId() + "/" + mainUser;
+		String likeString = "  " + dog.getLikes() + " likes";
+		Label like = new Label(likeString);
+		like.getStyleClass().add("userName");
+		like.setMinWidth(Region.USE_PREF_SIZE);
+
 		ImageView bone;
-		boolean found2 = false;
-		if (likedDogPosts != null) {
-			for (String like : likedDogPosts) {
-				if (like.equals(verify2)) {
-					found2 = true;
-					break;
-				}
-			}
-		}
+		boolean found2 = likedDogPosts.get(dog.getDogId());
 
 		if (!found2)
 			bone = new ImageView("resources/boneLike.png");
@@ -199,33 +221,15 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		} else {
 			bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
 
-				String verify = dog.getDogId() + "/" + mainUser;
-
-				boolean found = false;
-				if (likedDogPosts != null) {
-					for (String like : likedDogPosts) {
-						if (like.equals(verify)) {
-							found = true;
-							break;
-						}
-					}
-				}
-				if (!found) {
+				if (!likedDogPosts.get(dog.getDogId())) {
 					viewModel.likeDogPost(dog.getDogId(), mainUser);
-					vBox1.getChildren().clear();
-					addDogs();
-					likedDogPosts = viewModel.getAllDogLikes();
+					likedDogPosts.set(dog.getDogId());
 					bone.setImage(new Image("resources/boneFilled.png"));
-					this.reset();
+					like.setText("  " + (dog.getLikes() + 1) + " likes");
 				}
 			});
 		}
 
-		String likeString = "  " + dog.getLikes() + " likes";
-		Label like = new Label(likeString);
-		like.getStyleClass().add("userName");
-		like.setMinWidth(Region.USE_PREF_SIZE);
-
 		VBox likeSegment = new VBox(bone, like);
 		likeSegment.setAlignment(Pos.TOP_RIGHT);
 		likeSegment.setSpacing(5);
@@ -303,40 +307,20 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		portrait.setRadius(40);
 
 		User user = viewModel.getUserByHandle(post.getHandle());
-		byte[] imageurl = user.getImageURL();
-		if (imageurl != null) {
-			Image img = new Image(new ByteArrayInputStream(imageurl));
+		viewModel.loadImage(user.getImageHash(), ImageRendition.AVATAR, img -> {
 			portrait.setStroke(Color.web("#5B8266"));
 			portrait.setStrokeWidth(3);
 			portrait.setFill(new ImagePattern(img));
-		}
+		});
 
 
 
-		String verify2 = "";
-		try
-		{
-			verify2 = post.getPostId() + "/" + handle.getText().replace(" @", "");
-		}
-		catch(Exception e)
-		{
-
-		}
 		ImageView bone;
-		boolean found2 = false;
-		if(likedPosts!=null) {
-			for (String like : likedPosts) {
-				if (like.equals(verify2)) {
-					found2 = true;
-					break;
-				}
-			}
-		}
+		boolean found2 = likedPosts.get(post.getPostId());
 
-		if(!found2)
-			bone = new ImageView("resources/boneLike.png");
-		else
-			bone = new ImageView("resources/boneFilled.png");
+		PostCardViewModel card = viewModel.getCard(post, found2);
+		bone = new ImageView();
+		bone.imageProperty().bind(Bindings.when(card.likedProperty()).then(boneFilled).otherwise(boneLike));
 
 		bone.setFitHeight(45);                                              //like button
 		bone.setFitWidth(45);
@@ -362,24 +346,8 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 
 		} else {
 			bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-				String verify = post.getPostId() + "/" + handle.getText().replace(" @", "");
-				boolean found = false;
-				if(likedPosts!=null) {
-					for (String like : likedPosts) {
-						if (like.equals(verify)) {
-							found = true;
-							break;
-						}
-					}
-				}
-				if (!found) {
-					viewModel.likePost(post.getPostId(), handle.getText().replace(" @", ""));
-					vBox.getChildren().clear();
-					addLastPosts();
-					likedPosts = viewModel.getAllLikes();
-					bone.setImage(new Image("resources/boneFilled.png"));
-					this.reset();
-				}
+				if (!card.isLiked())
+					viewModel.likePost(post.getPostId(), mainUser);
 			});
 		}
 
@@ -432,9 +400,8 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		userTime.setAlignment(Pos.CENTER_LEFT);
 
 
-		String aux = "@";
-		aux = aux + post.getHandle() + " - " + post.getLikes() + " likes and " + post.getComments().size() + " comments";         //handle, likes and comments
-		Label handle1 = new Label(aux);
+		Label handle1 = new Label();
+		handle1.textProperty().bind(card.summaryProperty());                       //handle, likes and comments
 		handle1.getStyleClass().add("userName");
 
 
@@ -445,13 +412,12 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 		text1.wrapTextProperty().set(true);
 
 		Rectangle photo = new Rectangle();
-		if (post.getImageURL() != null) {
+		if (post.getImageHash() != null) {
 			photo.setWidth(400);
 			photo.setHeight(340);
 			photo.setStroke(Color.web("#5B8266"));
 			photo.setStrokeWidth(3);                                                                                            //image
-			javafx.scene.image.Image img2 = new javafx.scene.image.Image(new ByteArrayInputStream(post.getImageURL()));
-			photo.setFill(new ImagePattern(img2));
+			viewModel.loadImage(post.getImageHash(), ImageRendition.CARD, img -> photo.setFill(new ImagePattern(img)));
 		}
 
 		VBox right;
@@ -503,7 +469,7 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 
 		Pane pane = new Pane(hBox);
 		pane.setPrefWidth(574);
-		if (post.getImageURL() != null)
+		if (post.getImageHash() != null)
 			pane.setPrefHeight(610);
 		else
 			pane.setPrefHeight(274);
@@ -520,6 +486,9 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 	public void addDogs() {
 		ArrayList<Dog> dogs = viewModel.getDogsForUser(viewModel.getHandle().replace(" @", ""));
 		vBox1.getChildren().clear();
+		likedDogPosts.clear();
+		for (int dogId : viewModel.getLikedDogIds(dogs))
+			likedDogPosts.set(dogId);
 		for (Dog dog : dogs) {
 			vBox1.getChildren().add(pupprCard(dog));
 		}
@@ -530,11 +499,7 @@ public class ProfileViewController implements LocalListener<Object, Object> {
 	 */
 	private void setPortrait() {
 		User user = viewModel.getUserByHandle(viewModel.getHandle().replace(" @", ""));
-		byte[] imageurl = user.getImageURL();
-		if (imageurl != null) {
-			javafx.scene.image.Image img = new javafx.scene.image.Image(new ByteArrayInputStream(imageurl));
-			portrait.setFill(new ImagePattern(img));
-		}
+		viewModel.loadImage(user.getImageHash(), ImageRendition.CARD, img -> portrait.setFill(new ImagePattern(img)));
 	}
 
 	/**
@@ -16,14 +16,12 @@ import javafx.stage.FileChooser;
 import javafx.util.StringConverter;
 import model.ImageConverter;
 import model.TextLimiter;
-import model.User;
 import viewmodel.SignupViewModel;
 
 
 import java.io.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 
 /**
  * The SignupViewController handles the look and response to certain events of the signupView.
@@ -209,15 +207,22 @@ public class SignupViewController {
     }
 
 
+    /**
+     * A private method checking if the chosen handle is already used by another user
+     * @return true if the handle is taken, false otherwise
+     */
     private boolean isHandleTaken(){
-        boolean ok = false;
-        ArrayList<User> users = viewModel.getAllUsers();
-        for (User user:users) {
-            if(user.getHandle().equals(handleField.getText()))
-                ok=true;
-        }
-        return ok;
+        return !viewModel.isHandleAvailable(handleField.getText());
+    }
+
+    /**
+     * A private method checking if the given email is already used by another user
+     * @return true if the email is taken, false otherwise
+     */
+    private boolean isEmailTaken(){
+        return !viewModel.isEmailAvailable(emailField.getText());
     }
+
     /**
      * A method for signing up the user and sending the new information to the viewmodel class to be saved
      */
@@ -228,6 +233,10 @@ public class SignupViewController {
                 handleField.setStyle("-fx-border-color: red ; ");
                 errorLabel.setText("Handle already taken!");
             }
+            else if(isEmailTaken()){
+                emailField.setStyle("-fx-border-color: red ; ");
+                errorLabel.setText("Email already used!");
+            }
             else {
                 if (maleButton.isSelected())
                     viewModel.setGender("M");
@@ -1,5 +1,6 @@
 package view;
 
+import javafx.beans.binding.Bindings;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -20,14 +21,18 @@ import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import model.Comment;
+import model.CommentCursor;
+import model.CommentPage;
+import model.ImageRendition;
 import model.Post;
-import model.User;
+import model.UserSummary;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.LocalListener;
+import viewmodel.PostCardViewModel;
 import viewmodel.ViewPostViewModel;
-import java.io.ByteArrayInputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Optional;
 
 /**
@@ -48,10 +53,12 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
     private ViewHandler viewHandler;
 
     private boolean home;
-    private ArrayList<String> likedPosts;
+    private BitSet likedPosts;
+    private final Image boneLike = new Image("resources/boneLike.png");
+    private final Image boneFilled = new Image("resources/boneFilled.png");
     private Post currentPost;
     private String currentUserHandle;
-    private ArrayList<String> likedComments;
+    private BitSet likedComments;
     private boolean isAdmin;
     private boolean isGuest;
 
@@ -70,8 +77,8 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         this.viewModel = viewModel;
         this.viewModel.addListener(this);
 
-        likedPosts = viewModel.getAllLikes();
-        likedComments=viewModel.getAllCommentLikes();
+        likedPosts = new BitSet();
+        likedComments = new BitSet();
         vBox.getChildren().clear();
         postVBox.getChildren().clear();
         if (currentPost == null)
@@ -106,8 +113,6 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
      * A method for resetting the fields when the view is reopened
      */
     public void reset() {
-        likedPosts = viewModel.getAllLikes();
-        likedComments = viewModel.getAllCommentLikes();
         vBox.getChildren().clear();
         if (currentPost != null)
             addPost();
@@ -118,8 +123,14 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
      * A method for adding the post's information to the view
      */
     private void addPost() {
+        Post post = viewModel.getCurrentPost();
+        ArrayList<Post> posts = new ArrayList<>();
+        posts.add(post);
+        likedPosts.clear();
+        for (int postId : viewModel.getLikedPostIds(posts))
+            likedPosts.set(postId);
         postVBox.getChildren().clear();
-        postVBox.getChildren().add(makeCard(viewModel.getCurrentPost()));
+        postVBox.getChildren().add(makeCard(post));
     }
 
     /**
@@ -132,45 +143,24 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         Circle portrait = new Circle();
         portrait.setRadius(37);
 
-        User user = viewModel.getUserByHandle(post.getHandle());
-        byte[] imageurl = user.getImageURL();
-        Image img = new Image(new ByteArrayInputStream(imageurl));
-
-        portrait.setStroke(Color.web("#5B8266"));
-        portrait.setStrokeWidth(3);
-        portrait.setFill(new ImagePattern(img));
+        UserSummary user = viewModel.getAuthor(post.getHandle());
+        viewModel.loadImage(user.getImageHash(), ImageRendition.AVATAR, img -> {
+            portrait.setStroke(Color.web("#5B8266"));
+            portrait.setStrokeWidth(3);
+            portrait.setFill(new ImagePattern(img));
+        });
         portrait.setOnMouseClicked(e -> {                                   //profile pic
             viewModel.openUserProfile(post.getHandle());
             viewHandler.openView("profile");
         });
 
 
-        String verify2 = "";
-        try
-        {
-            verify2 = post.getPostId() + "/" + currentUserHandle;
-        }
-        catch(Exception e)
-        {
-
-        }
-
-
-        boolean found2 = false;
-        if(likedPosts!=null) {
-            for (String like : likedPosts) {
-                if (like.equals(verify2)) {
-                    found2 = true;
-                    break;
-                }
-            }
-        }
+        boolean found2 = likedPosts.get(post.getPostId());
 
         ImageView bone;
-        if(!found2)
-            bone = new ImageView("resources/boneLike.png");
-        else
-            bone = new ImageView("resources/boneFilled.png");
+        PostCardViewModel card = viewModel.getCard(post, found2);
+        bone = new ImageView();
+        bone.imageProperty().bind(Bindings.when(card.likedProperty()).then(boneFilled).otherwise(boneLike));
 
 
         bone.setFitHeight(45);                                              //like button
@@ -183,26 +173,8 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         }
         else {
             bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                String verify = post.getPostId() + "/" + currentUserHandle;
-
-                boolean found = false;
-                if(likedPosts!=null) {
-                    for (String like : likedPosts) {
-                        if (like.equals(verify)) {
-                            found = true;
-                            break;
-                        }
-                    }
-                }
-                if (!found) {
+                if (!card.isLiked())
                     viewModel.likePost(post.getPostId(), currentUserHandle);
-                    vBox.getChildren().clear();
-                    addPost();
-                    addComments();
-                    likedPosts = viewModel.getAllLikes();
-                    bone.setImage(new Image("resources/boneFilled.png"));
-                    this.reset();
-                }
             });
         }
 
@@ -227,8 +199,7 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         left.setSpacing(0);
 
 
-        User user1 = viewModel.getUserByHandle(post.getHandle());
-        Label username = new Label(user1.getName()+" "+user1.getLastname() + " ●");                //username
+        Label username = new Label(user.getName()+" "+user.getLastname() + " ●");                //username
         username.getStyleClass().add("name");
         username.setOnMouseClicked(e -> {
             viewHandler.openView("profile");
@@ -243,9 +214,8 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         userTime.setAlignment(Pos.CENTER_LEFT);
 
 
-        String aux = "@";
-        aux = aux + post.getHandle() + " - " + post.getLikes() + " likes and " + post.getComments().size() + " comments";         //handle, likes and comments
-        Label handle1 = new Label(aux);
+        Label handle1 = new Label();
+        handle1.textProperty().bind(card.summaryProperty());                       //handle, likes and comments
         handle1.getStyleClass().add("userName");
 
 
@@ -256,13 +226,12 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         text1.wrapTextProperty().set(true);
 
         Rectangle photo = new Rectangle();
-        if (post.getImageURL() != null) {
+        if (post.getImageHash() != null) {
             photo.setWidth(400);
             photo.setHeight(340);
             photo.setStroke(Color.web("#5B8266"));
             photo.setStrokeWidth(3);                                                                                            //image
-            javafx.scene.image.Image img2 = new javafx.scene.image.Image(new ByteArrayInputStream(post.getImageURL()));
-            photo.setFill(new ImagePattern(img2));
+            viewModel.loadImage(post.getImageHash(), ImageRendition.CARD, img -> photo.setFill(new ImagePattern(img)));
         }
 
         VBox right;
@@ -276,7 +245,7 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
 
         Pane pane = new Pane(hBox);
         pane.setPrefWidth(574);
-        if (post.getImageURL() != null)
+        if (post.getImageHash() != null)
             pane.setPrefHeight(580);
         else
             pane.setPrefHeight(274);                                           //create the pane with everything inside
@@ -295,13 +264,12 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         Circle portrait = new Circle();
         portrait.setRadius(37);
 
-        User user = viewModel.getUserByHandle(comment.getHandle());
-        byte[] imageurl = user.getImageURL();
-        Image img = new Image(new ByteArrayInputStream(imageurl));
-
-        portrait.setStroke(Color.web("#5B8266"));
-        portrait.setStrokeWidth(3);
-        portrait.setFill(new ImagePattern(img));
+        UserSummary user = viewModel.getAuthor(comment.getHandle());
+        viewModel.loadImage(user.getImageHash(), ImageRendition.AVATAR, img -> {
+            portrait.setStroke(Color.web("#5B8266"));
+            portrait.setStrokeWidth(3);
+            portrait.setFill(new ImagePattern(img));
+        });
         portrait.setOnMouseClicked(e -> {
             viewModel.openUserProfile(comment.getHandle());
             viewHandler.openView("profile");
@@ -312,34 +280,15 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
 
 
 
-        String verify2 = "";
-        try
-        {
-            verify2 = comment.getCommentId() + "/" + currentUserHandle;
-        }
-        catch(Exception e)
-        {
-
-        }
-
         ImageView bone;
-        boolean found2 = false;
-        if(likedComments != null)
-        {
-            for(String like : likedComments)
-            {
-                if(like.equals(verify2))
-                {
-                    found2 = true;
-                    break;
-                }
-            }
-        }
+        boolean found2 = likedComments.get(comment.getCommentId());
 
         if(!found2)
-            bone = new ImageView("resources/boneLike.png");
+            bone = new ImageView(boneLike);
         else
-            bone = new ImageView("resources/boneFilled.png");
+            bone = new ImageView(boneFilled);
+
+        Label handle1 = new Label(comment.getLikes() + " likes ");
 
 
         bone.setFitHeight(45);
@@ -352,21 +301,12 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         }
         else {
             bone.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                String verify = comment.getCommentId() + "/" + currentUserHandle;
-                boolean found = false;
-                if(likedComments!=null) {
-                    for (String like : likedComments) {
-                        if (like.equals(verify)) {
-                            found = true;
-                            break;
-                        }
-                    }
-                }
-                if (!found) {
+                if (!likedComments.get(comment.getCommentId())) {
                     viewModel.likeComment(comment.getCommentId(), currentUserHandle);
-                    likedComments = viewModel.getAllCommentLikes();
-                    bone.setImage(new Image("resources/boneFilled.png"));
-                    reset();
+                    likedComments.set(comment.getCommentId());
+                    comment.setLikes(comment.getLikes() + 1);
+                    bone.setImage(boneFilled);
+                    handle1.setText(comment.getLikes() + " likes ");
                 }
             });
 
@@ -392,8 +332,6 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
         userTime.setAlignment(Pos.CENTER_LEFT);
 
 
-        String aux = comment.getLikes() + " likes " ;
-        Label handle1 = new Label(aux);
         handle1.getStyleClass().add("userName");
 
 
@@ -445,14 +383,38 @@ public class ViewPostViewController implements LocalListener<Object, Object> {
     }
 
     /**
-     * A method for adding the comment cards to the view
+     * A method for adding the first page of comment cards to the view
      */
     private void addComments(){
-        ArrayList<Comment> comments=viewModel.getCommentForPost(currentPost.getPostId());
-        for(Comment comment:comments){
+        likedComments.clear();
+        addNextComments(currentPost.getPostId(), null);
+    }
+
+    /**
+     * A method adding the next page of comment cards below the comments already shown, followed by a
+     * "Show more" button if the post has older comments
+     * @param postId
+     *          the id of the post whose comments are shown
+     * @param cursor
+     *          the cursor returned with the previous page, or <code>null</code> for the first page
+     */
+    private void addNextComments(int postId, CommentCursor cursor){
+        CommentPage page = viewModel.getComments(postId, cursor);
+        for (int commentId : viewModel.getLikedCommentIds(page.getComments()))
+            likedComments.set(commentId);
+        for(Comment comment:page.getComments()){
             vBox.getChildren().add(makeCommentCard(comment));
         }
 
+        if (page.hasMore()) {
+            Label more = new Label("Show more");
+            more.getStyleClass().add("button");
+            more.setOnMouseClicked(e -> {
+                vBox.getChildren().remove(more);
+                addNextComments(postId, page.getNextCursor());
+            });
+            vBox.getChildren().add(more);
+        }
     }
 
     /**
@@ -3,7 +3,7 @@ package viewmodel;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import model.LocalModel;
-import model.User;
+import model.Session;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.LocalListener;
 
@@ -81,21 +81,14 @@ public class ChangePasswordViewModel implements LocalListener<Object, Object> {
     }
 
     /**
-     * A method for saving the new password data and sending it to the model class
+     * A method for sending the current and the new password to the model. The server checks the
+     * current password before saving the new one.
+     * @return true if the password was changed, false if the current password is wrong
      */
-    public void savePassword() {
-        User user = model.getUserByHandle(handle);
-        model.editUser(new User(user.getHandle(), user.getName(), user.getLastname(), user.getImageURL(),
-                newPassword.get(), user.getEmail(), user.getBirthday(), user.getGender(), user.getDogList(), user.getBio(), "user", user.getStatus()));
+    public boolean savePassword() {
+        Session session = loginViewModel.getSession();
+        if (session == null || session.getToken() == null)
+            return false;
+        return model.changePassword(session.getToken(), password.get(), newPassword.get());
     }
-
-    /**
-     * Getter for the current password
-     * @return a reference to the current password value for the user
-     */
-    public String getUserPassword() {
-
-        return model.getUserByHandle(handle).getPassword();
-    }
-
 }
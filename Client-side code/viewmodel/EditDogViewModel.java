@@ -68,10 +68,8 @@ public class EditDogViewModel implements LocalListener<Object, Object> {
      */
     public void editDog() {
         Dog old = dog;
-        if (imageurl == null) {
-            imageurl = old.getImageURL();
-        }
         Dog newDog = new Dog(old.getDogId(), dogName.get(), imageurl, dogInfo.get(), handle, old.getLikes());
+        newDog.setImageHash(old.getImageHash());
         model.editDog(newDog);
         homeViewModel.updateDogs();
     }
@@ -68,6 +68,7 @@ public class EditPostViewModel implements LocalListener<Object, Object> {
         Post oldPost = postObject;
         Post newPost = new Post(oldPost.getPostId(), imageUrl, oldPost.getHandle(), oldPost.getLikes(),
                                 oldPost.getTimePosted(), post.get(), oldPost.getComments());
+        newPost.setImageHash(oldPost.getImageHash());
         model.editPost(newPost);
         homeViewModel.updatePosts();
 
@@ -1,10 +1,15 @@
 package viewmodel;
 
+import javafx.scene.image.Image;
 import model.Dog;
+import model.ImageCache;
+import model.ImageRendition;
 import model.LocalModel;
 import model.User;
+import model.UserSummary;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The HallOfFameViewModel handles the login behind the hallOfFame view
@@ -16,28 +21,48 @@ import java.util.ArrayList;
 public class HallOfFameViewModel {
 
     private LocalModel model;
+    private ImageCache imageCache;
     private HomeViewModel homeViewModel;
+    private static final int HALL_OF_FAME_SIZE = 10;
 
     /**
      * A constructor setting up the local variables
      * @param model
      *          a reference to the LocalModel interface
+     * @param imageCache
+     *          the image cache shared by the ViewModel classes
      * @param homeViewModel
      *          a reference to the HomeViewModel class
      */
-    public HallOfFameViewModel (LocalModel model,HomeViewModel homeViewModel){
+    public HallOfFameViewModel (LocalModel model,ImageCache imageCache,HomeViewModel homeViewModel){
 
         this.model=model;
+        this.imageCache=imageCache;
         this.homeViewModel=homeViewModel;
     }
 
     /**
-     * Getter for a list of all the dogs
-     * @return an ArrayList of Dog data type containing all the dog
-     * information received from the LocalModel
+     * Getter for the dogs shown in the Hall of Fame, the most liked first. The owners of the dogs are
+     * loaded along with them.
+     * @return an ArrayList of Dog data type containing at most the ten most liked dogs
      */
-    public ArrayList<Dog> allDogs(){
-        return model.getDogList();
+    public ArrayList<Dog> getTopDogs(){
+        ArrayList<Dog> dogs = model.getTopDogs(HALL_OF_FAME_SIZE);
+        ArrayList<String> owners = new ArrayList<>();
+        for (Dog dog : dogs)
+            owners.add(dog.getOwnerName());
+        homeViewModel.prefetchAuthors(owners);
+        return dogs;
+    }
+
+    /**
+     * Getter for the summary of the owner of a dog
+     * @param handle
+     *          the handle of the owner
+     * @return the summary of the owner, or <code>null</code> if there is no such user
+     */
+    public UserSummary getAuthor(String handle) {
+        return homeViewModel.getAuthor(handle);
     }
 
     /**
@@ -59,4 +84,17 @@ public class HallOfFameViewModel {
         homeViewModel.openUserProfile(handle);
     }
 
+    /**
+     * A method loading an image stored on the server, in the size it is drawn in. Images shown before
+     * are taken from the shared image cache
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action drawing the image, called on the JavaFX Application Thread once the image is ready
+     */
+    public void loadImage(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        imageCache.load(hash, rendition, onLoaded);
+    }
 }
@@ -3,6 +3,7 @@ package viewmodel;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.scene.image.Image;
 
 import model.*;
 import utility.observer.event.ObserverEvent;
@@ -14,6 +15,7 @@ import utility.observer.subject.PropertyChangeProxy;
 
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The HomeViewModel class handles the logic behind the home view. It assures that the main post feed is
@@ -24,7 +26,10 @@ import java.util.ArrayList;
  * @version 1.0
  */
 public class HomeViewModel implements LocalListener<Object, Object>, LocalSubject<Object, Object> {
+    private static final int FEED_PAGE_SIZE = 10;
     private LocalModel model;
+    private ImageCache imageCache;
+    private PostCards postCards;
     private PropertyChangeAction<Object, Object> property;
     private StringProperty handle;
     private StringProperty name;
@@ -36,13 +41,17 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
      * A constructor setting up the local variables and the listeners
      * @param model
      *          an instance of the LocalModel interface
+     * @param imageCache
+     *          the image cache shared by the ViewModel classes
      * @param loginViewModel
      *          an instance of the LoginViewModel class
      */
-    public HomeViewModel(LocalModel model, LoginViewModel loginViewModel) {
+    public HomeViewModel(LocalModel model, ImageCache imageCache, LoginViewModel loginViewModel) {
         this.loginViewModel = loginViewModel;
         property = new PropertyChangeProxy<>(this);
         this.model = model;
+        this.imageCache = imageCache;
+        postCards = new PostCards(model);
         this.loginViewModel.addListener(this, "user");
         this.loginViewModel.addListener(this, "guest");
         handle = new SimpleStringProperty();
@@ -85,7 +94,8 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
     }
 
     /**
-     * A method used for updating a user's info and notifying the other classes of the change
+     * A method used for updating a user's info and notifying the other classes of the change. The posts of the
+     * user are not touched, they are moved to a new handle on the server by <code>renameHandle</code>.
      * @param newHandle
      *          the possibly new handle of the modified User object
      */
@@ -97,13 +107,6 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
         name.set(getUserByHandle(handleString).getName() + " " +
                 getUserByHandle(handleString).getLastname());
 
-        ArrayList<Post> posts = model.getPostsForUser(handleString);
-
-        for (Post post : posts) {
-            Post newPost = new Post(post.getPostId(), post.getImageURL(),
-                    handleString, post.getLikes(), post.getTimePosted(), post.getText(), post.getComments());
-            model.editPost(newPost);
-        }
         property.firePropertyChange("user", name, handleString);
         property.firePropertyChange("post", null, "change");
         property.firePropertyChange("bio", null, user.getBio());
@@ -125,8 +128,21 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
      *          the hadnle of the user who liked the post
      */
     public void likePost(int postId, String handle) {
-        model.addLikeToPost(postId);
-        model.addLike(postId, handle);
+        model.likePost(postId, handle);
+        postCards.markLiked(postId);
+    }
+
+    /**
+     * Getter for the card of a post. The card is shared by all the screens showing the post and is
+     * kept up to date with the likes and comments reported by the server
+     * @param post
+     *          the post shown on the card
+     * @param liked
+     *          true if the current user already liked the post
+     * @return the PostCardViewModel of the post
+     */
+    public PostCardViewModel getCard(Post post, boolean liked) {
+        return postCards.getCard(post, liked);
     }
 
     /**
@@ -147,6 +163,73 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
         return model.getPostList();
     }
 
+    /**
+     * Getter for a post based on its id
+     * @param postId
+     *          the id of the post
+     * @return the Post object with the specified id
+     */
+    public Post getPostById(int postId) {
+        return model.getPostById(postId);
+    }
+
+    /**
+     * Getter for one page of the post feed, newest first
+     * @param cursor
+     *          the cursor of the previous page, or <code>null</code> for the first page
+     * @return a PostPage object containing the posts of the page and the cursor of the next page
+     */
+    public PostPage getFeedPage(PostCursor cursor) {
+        PostPage page = model.getFeedPage(cursor, FEED_PAGE_SIZE);
+        prefetchImages(page);
+        ArrayList<String> handles = new ArrayList<>();
+        for (Post post : page.getPosts())
+            handles.add(post.getHandle());
+        prefetchAuthors(handles);
+        return page;
+    }
+
+    /**
+     * A method loading the summaries of the authors of a list of posts or comments with a single request,
+     * and starting to load their profile pictures, before the cards ask for them one by one
+     * @param handles
+     *          the handles of the authors, repeated handles are loaded once
+     */
+    public void prefetchAuthors(ArrayList<String> handles) {
+        if (handles.isEmpty())
+            return;
+        ArrayList<String> avatars = new ArrayList<>();
+        for (UserSummary author : model.getUsersByHandles(handles).values())
+            avatars.add(author.getImageHash());
+        imageCache.prefetch(avatars, ImageRendition.AVATAR);
+    }
+
+    /**
+     * Getter for the summary of the author of a post or comment. Authors loaded with prefetchAuthors are
+     * already on the client, so no request is sent for them.
+     * @param handle
+     *          the handle of the author
+     * @return the summary of the author, or <code>null</code> if there is no such user
+     */
+    public UserSummary getAuthor(String handle) {
+        ArrayList<String> handles = new ArrayList<>();
+        handles.add(handle);
+        return model.getUsersByHandles(handles).get(handle);
+    }
+
+    /**
+     * A method starting to load the pictures of all the posts in a page with a single request, before
+     * the cards of the page ask for them one by one
+     * @param page
+     *          the page of posts that is about to be shown
+     */
+    private void prefetchImages(PostPage page) {
+        ArrayList<String> hashes = new ArrayList<>();
+        for (Post post : page.getPosts())
+            hashes.add(post.getImageHash());
+        imageCache.prefetch(hashes, ImageRendition.CARD);
+    }
+
     /**
      * Getter for the handle of the current user
      * @return a refernece to the current user's handle
@@ -156,21 +239,33 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
     }
 
     /**
-     * Getter for a list of all the post likes
-     * @return an ArrayList of String data type containing all the post
-     * likes information
+     * Getter for the ids of the posts the current user liked, out of the given ones
+     * @param posts
+     *          the posts about to be shown
+     * @return the ids of the liked posts in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllLikes() {
-        return model.getLikes();
+    public int[] getLikedPostIds(ArrayList<Post> posts) {
+        if (isGuest || handleString == null)
+            return new int[0];
+        int[] ids = new int[posts.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = posts.get(i).getPostId();
+        return model.getLikedPostIds(handleString, ids);
     }
 
     /**
-     * Getter for all list of all the comment likes
-     * @return an ArrayList of String data type containing all the comment
-     * likes information
+     * Getter for the ids of the comments the current user liked, out of the given ones
+     * @param comments
+     *          the comments about to be shown
+     * @return the ids of the liked comments in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllCommentLikes() {
-        return model.getCommentLikes();
+    public int[] getLikedCommentIds(ArrayList<Comment> comments) {
+        if (isGuest || handleString == null)
+            return new int[0];
+        int[] ids = new int[comments.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = comments.get(i).getCommentId();
+        return model.getLikedCommentIds(handleString, ids);
     }
 
     /**
@@ -181,8 +276,7 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
      *          the handle of the user who liked the comment
      */
     public void likeComment(int commentId, String handle) {
-        model.addLikeToComment(commentId);
-        model.addCommentLike(commentId,handle);
+        model.likeComment(commentId, handle);
     }
 
     /**
@@ -325,4 +419,17 @@ public class HomeViewModel implements LocalListener<Object, Object>, LocalSubjec
         property.firePropertyChange("viewPostFromHome",handleString,postId);
     }
 
+    /**
+     * A method loading an image stored on the server, in the size it is drawn in. Images shown before
+     * are taken from the shared image cache
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action drawing the image, called on the JavaFX Application Thread once the image is ready
+     */
+    public void loadImage(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        imageCache.load(hash, rendition, onLoaded);
+    }
 }
@@ -3,6 +3,7 @@ package viewmodel;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import model.LocalModel;
+import model.Session;
 import model.User;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.GeneralListener;
@@ -11,10 +12,6 @@ import utility.observer.subject.LocalSubject;
 import utility.observer.subject.PropertyChangeAction;
 import utility.observer.subject.PropertyChangeProxy;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 /**
  * The LoginViewModel class handles the logic behind the login view
  *
@@ -28,6 +25,7 @@ public class LoginViewModel implements LocalListener<Object, Object>, LocalSubje
     private StringProperty username;
     private StringProperty password;
     private PropertyChangeAction<Object, Object> property;
+    private Session session;
 
     /**
      * A constructor setting up the local variables
@@ -60,27 +58,42 @@ public class LoginViewModel implements LocalListener<Object, Object>, LocalSubje
     }
 
     /**
-     * A method checking if the login credentials are correct
+     * A method checking if the login credentials are correct. The check is done by the server, which
+     * opens a session for the user if they are.
      *
      * @return a boolean value equal to true if the credentials are correct and
      * to false otherwise
      */
     public boolean setCredentials() {
-        User user = model.getUserByHandle(username.get());
-        if (user == null) {
-            return false;
-        }
-
-        MessageDigest digest = null;
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        assert digest != null;
-        byte[] encodedhash = digest.digest(password.get().getBytes(StandardCharsets.UTF_8));
-        String finalhash = bytesToHex(encodedhash);
-        return user.getPassword().equals(finalhash);
+        session = model.authenticate(username.get(), password.get());
+        return session != null;
+    }
+
+    /**
+     * Getter for the session opened by the last successful login
+     *
+     * @return the session of the logged in user, or <code>null</code> if nobody logged in
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * A method checking if the user who logged in is blocked by the admin
+     *
+     * @return true if the user is blocked, false otherwise
+     */
+    public boolean isBlocked() {
+        return session != null && session.isBlocked();
+    }
+
+    /**
+     * A method closing the session of the logged in user on the server
+     */
+    public void logout() {
+        if (session != null && session.getToken() != null)
+            model.logout(session.getToken());
+        session = null;
     }
 
     /**
@@ -140,15 +153,4 @@ public class LoginViewModel implements LocalListener<Object, Object>, LocalSubje
     public User getUserByHandle(String handle) {
         return model.getUserByHandle(handle);
     }
-
-    private static String bytesToHex(byte[] hash) {
-        StringBuffer hexString = new StringBuffer();
-        for (int i = 0; i < hash.length; i++) {
-            String hex = Integer.toHexString(0xff & hash[i]);
-            if (hex.length() == 1)
-                hexString.append('0');
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
 }
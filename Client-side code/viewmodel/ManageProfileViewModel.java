@@ -4,6 +4,9 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.scene.image.Image;
+import model.ImageCache;
+import model.ImageRendition;
 import model.LocalModel;
 import model.User;
 import utility.observer.event.ObserverEvent;
@@ -12,6 +15,7 @@ import utility.observer.listener.LocalListener;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 /**
  * The ManageProfileViewModel class handles the login behind the manageProfile view
@@ -22,6 +26,7 @@ import java.time.LocalDate;
  */
 public class ManageProfileViewModel implements LocalListener<Object, Object> {
     private LocalModel model;
+    private ImageCache imageCache;
     private HomeViewModel homeViewModel;
     private StringProperty gender;
     private StringProperty handle;
@@ -37,11 +42,14 @@ public class ManageProfileViewModel implements LocalListener<Object, Object> {
      * A constructor setting the local variables and the listeners
      * @param model
      *          an instance of the LocalModel interface
+     * @param imageCache
+     *          the image cache shared by the ViewModel classes
      * @param homeViewModel
      *          an instance od the HomeViewModel class
      */
-    public ManageProfileViewModel(LocalModel model, HomeViewModel homeViewModel) {
+    public ManageProfileViewModel(LocalModel model, ImageCache imageCache, HomeViewModel homeViewModel) {
         this.model = model;
+        this.imageCache = imageCache;
         this.homeViewModel = homeViewModel;
         this.homeViewModel.addListener(this, "user");
         gender = new SimpleStringProperty();
@@ -144,9 +152,6 @@ public class ManageProfileViewModel implements LocalListener<Object, Object> {
 
         User old = model.getUserByHandle(changeableHandle);
         String userType;
-        if (imageurl == null) {
-            imageurl = old.getImageURL();
-        }
         if (old.getUserType().equals("admin")) {
             userType = "admin";
         } else {
@@ -154,6 +159,7 @@ public class ManageProfileViewModel implements LocalListener<Object, Object> {
         }
         User user = new User(changeableHandle, firstName.get(), lastName.get(), imageurl, old.getPassword(),
                 email.get(), Date.valueOf(birthday.get()), gender.get(), old.getDogList(), bio.get(), userType, old.getStatus());
+        user.setImageHash(old.getImageHash());
 
         model.editUser(user);
         homeViewModel.updateUserInfo(changeableHandle);
@@ -185,4 +191,17 @@ public class ManageProfileViewModel implements LocalListener<Object, Object> {
         return birthday;
     }
 
+    /**
+     * A method loading an image stored on the server, in the size it is drawn in. Images shown before
+     * are taken from the shared image cache
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action drawing the image, called on the JavaFX Application Thread once the image is ready
+     */
+    public void loadImage(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        imageCache.load(hash, rendition, onLoaded);
+    }
 }
@@ -0,0 +1,131 @@
+package viewmodel;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import model.Post;
+
+/**
+ * The PostCardViewModel class holds the parts of a post card that change while the card is on the screen:
+ * the number of likes, the number of comments and whether the current user liked the post. The cards
+ * bind to its properties, so a like or a new comment updates the card in place instead of rebuilding
+ * the whole list of posts.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PostCardViewModel {
+
+    private final int postId;
+    private final String handle;
+    private int likes;
+    private int comments;
+    private BooleanProperty liked;
+    private StringProperty summary;
+
+    /**
+     * A constructor setting up the card from a loaded post
+     * @param post
+     *          the post shown on the card
+     * @param liked
+     *          true if the current user already liked the post
+     */
+    public PostCardViewModel(Post post, boolean liked) {
+        this.postId = post.getPostId();
+        this.handle = post.getHandle();
+        this.liked = new SimpleBooleanProperty(this, "liked", liked);
+        this.summary = new SimpleStringProperty(this, "summary");
+        update(post.getLikes(), post.getCommentCount());
+    }
+
+    /**
+     * Getter for the id of the post shown on the card
+     * @return the post id
+     */
+    public int getPostId() {
+        return postId;
+    }
+
+    /**
+     * Getter for the number of likes shown on the card
+     * @return the number of likes
+     */
+    public int getLikes() {
+        return likes;
+    }
+
+    /**
+     * Getter for the number of comments shown on the card
+     * @return the number of comments
+     */
+    public int getComments() {
+        return comments;
+    }
+
+    /**
+     * A method checking if the current user liked the post
+     * @return true if the post was liked by the current user
+     */
+    public boolean isLiked() {
+        return liked.get();
+    }
+
+    /**
+     * Getter for the liked state, bound to the like button of the card
+     * @return the BooleanProperty telling if the current user liked the post
+     */
+    public BooleanProperty likedProperty() {
+        return liked;
+    }
+
+    /**
+     * Getter for the line showing the post's handle, likes and comments
+     * @return the StringProperty bound to the card's summary label
+     */
+    public StringProperty summaryProperty() {
+        return summary;
+    }
+
+    /**
+     * A method setting the likes and comments shown on the card
+     * @param likes
+     *          the number of likes of the post
+     * @param comments
+     *          the number of comments of the post
+     */
+    public void update(int likes, int comments) {
+        this.likes = likes;
+        this.comments = comments;
+        summary.set("@" + handle + " - " + likes + " likes and " + comments + " comments");
+    }
+
+    /**
+     * A method setting the number of likes after the post was liked by anyone
+     * @param likes
+     *          the new number of likes of the post
+     */
+    public void setLikes(int likes) {
+        update(likes, comments);
+    }
+
+    /**
+     * A method changing the number of comments after a comment was added or removed
+     * @param change
+     *          the number of comments added, negative if comments were removed
+     */
+    public void addComments(int change) {
+        update(likes, Math.max(0, comments + change));
+    }
+
+    /**
+     * A method marking the post as liked by the current user right away, without waiting for the
+     * server to report the new number of likes
+     */
+    public void markLiked() {
+        if (!liked.get()) {
+            liked.set(true);
+            update(likes + 1, comments);
+        }
+    }
+}
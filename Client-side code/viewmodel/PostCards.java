@@ -0,0 +1,171 @@
+package viewmodel;
+
+import javafx.application.Platform;
+import model.ChangeEvent;
+import model.LocalModel;
+import model.Post;
+import utility.observer.event.ObserverEvent;
+import utility.observer.listener.LocalListener;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The PostCards class keeps one PostCardViewModel per post shown on any screen and applies the changes
+ * reported by the server to them. A like or a comment made by any user only touches the card of that post.
+ * Cards that are no longer shown are forgotten, since the registry only holds weak references to them.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PostCards implements LocalListener<Object, Object> {
+
+    private LocalModel model;
+    private HashMap<Integer, WeakReference<PostCardViewModel>> cards;
+    private int pruneAt;
+
+    /**
+     * A constructor registering the registry for the changes reported by the model
+     * @param model
+     *          an instance of the LocalModel interface
+     */
+    public PostCards(LocalModel model) {
+        this.model = model;
+        cards = new HashMap<>();
+        pruneAt = 64;
+        model.addListener(this, "change");
+    }
+
+    /**
+     * Getter for the card of a post. Screens showing the same post share its card. The counts of a new card are
+     * taken from the loaded post; an existing card keeps its own counts, since they are kept up to date by the
+     * changes reported by the server while the loaded post may be an older copy.
+     * @param post
+     *          the loaded post
+     * @param liked
+     *          true if the current user liked the post
+     * @return the card of the post
+     */
+    public PostCardViewModel getCard(Post post, boolean liked) {
+        PostCardViewModel card = find(post.getPostId());
+        if (card == null) {
+            card = new PostCardViewModel(post, liked);
+            if (cards.size() >= pruneAt) {
+                prune();
+                pruneAt = Math.max(64, cards.size() * 2);
+            }
+            cards.put(post.getPostId(), new WeakReference<>(card));
+        } else if (liked) {
+            card.likedProperty().set(true);
+        }
+        return card;
+    }
+
+    /**
+     * A method marking a post as liked by the current user, if its card is shown
+     * @param postId
+     *          the id of the liked post
+     */
+    public void markLiked(int postId) {
+        PostCardViewModel card = find(postId);
+        if (card != null)
+            card.markLiked();
+    }
+
+    /**
+     * A method being called whenever the model reports a change saved on the server. Likes and comments
+     * update the card of their post on the JavaFX Application Thread. A resync, sent when changes were lost,
+     * reloads the counts of every card that is shown.
+     * @param event
+     *          the event fired by the model, carrying a ChangeEvent
+     */
+    @Override
+    public void propertyChange(ObserverEvent<Object, Object> event) {
+        if (!(event.getValue2() instanceof ChangeEvent))
+            return;
+        ChangeEvent change = (ChangeEvent) event.getValue2();
+        Platform.runLater(() -> {
+            switch (change.getKind()) {
+                case POST_LIKED:
+                case POST_EDITED:
+                    PostCardViewModel liked = find(change.getId());
+                    if (liked != null && change.getLikes() >= 0)
+                        liked.setLikes(change.getLikes());
+                    break;
+                case COMMENT_ADDED:
+                    PostCardViewModel commented = find(change.getParentId());
+                    if (commented != null)
+                        commented.addComments(1);
+                    break;
+                case COMMENT_REMOVED:
+                    PostCardViewModel uncommented = find(change.getParentId());
+                    if (uncommented != null)
+                        uncommented.addComments(-1);
+                    break;
+                case RESYNC:
+                    reload();
+                    break;
+            }
+        });
+    }
+
+    /**
+     * A private method reloading the posts of all the cards that are shown and setting their counts to the ones
+     * saved on the server. The posts are loaded on a background thread and the cards are updated on the JavaFX
+     * Application Thread. Cards of posts that were removed in the meantime are left as they are.
+     */
+    private void reload() {
+        ArrayList<Integer> postIds = new ArrayList<>();
+        for (Map.Entry<Integer, WeakReference<PostCardViewModel>> entry : cards.entrySet()) {
+            if (entry.getValue().get() != null)
+                postIds.add(entry.getKey());
+        }
+        if (postIds.isEmpty())
+            return;
+        Thread thread = new Thread(() -> {
+            for (int postId : postIds) {
+                Post post;
+                try {
+                    post = model.getPostById(postId);
+                } catch (RuntimeException e) {
+                    System.err.println(e.getClass().getName() + ": " + e.getMessage());
+                    return;
+                }
+                if (post != null)
+                    Platform.runLater(() -> {
+                        PostCardViewModel card = find(postId);
+                        if (card != null)
+                            card.update(post.getLikes(), post.getCommentCount());
+                    });
+            }
+        }, "puppr-resync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A private method looking up the card of a post
+     * @param postId
+     *          the id of the post
+     * @return the card of the post, or <code>null</code> if it is not shown
+     */
+    private PostCardViewModel find(int postId) {
+        WeakReference<PostCardViewModel> reference = cards.get(postId);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * A private method dropping the entries of the cards that are no longer shown. It runs whenever the
+     * number of entries doubled since the last run, so adding a card stays cheap on average.
+     */
+    private void prune() {
+        Iterator<Map.Entry<Integer, WeakReference<PostCardViewModel>>> entries = cards.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getValue().get() == null)
+                entries.remove();
+        }
+    }
+}
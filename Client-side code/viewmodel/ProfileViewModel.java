@@ -3,9 +3,14 @@ package viewmodel;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.scene.image.Image;
 import model.Dog;
+import model.ImageCache;
+import model.ImageRendition;
 import model.LocalModel;
 import model.Post;
+import model.PostCursor;
+import model.PostPage;
 import model.User;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.GeneralListener;
@@ -15,6 +20,7 @@ import utility.observer.subject.PropertyChangeAction;
 import utility.observer.subject.PropertyChangeProxy;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The ProfileViewModel class handles the login behind the profile view
@@ -25,8 +31,10 @@ import java.util.ArrayList;
  */
 public class ProfileViewModel implements LocalListener<Object, Object>,
         LocalSubject<Object, Object> {
+    private static final int PROFILE_PAGE_SIZE = 10;
 
     private LocalModel model;
+    private ImageCache imageCache;
     private StringProperty handle;
     private StringProperty name;
     private StringProperty wall;
@@ -43,10 +51,12 @@ public class ProfileViewModel implements LocalListener<Object, Object>,
      * A constructor setting the local variables and the listeners
      *
      * @param model         an instance of the LocalModel interface
+     * @param imageCache    the image cache shared by the ViewModel classes
      * @param homeViewModel an instance of the HomeViewModel class
      */
-    public ProfileViewModel(LocalModel model, HomeViewModel homeViewModel) {
+    public ProfileViewModel(LocalModel model, ImageCache imageCache, HomeViewModel homeViewModel) {
         this.model = model;
+        this.imageCache = imageCache;
         this.homeViewModel = homeViewModel;
         this.homeViewModel.addListener(this);
         handle = new SimpleStringProperty();
@@ -229,6 +239,25 @@ public class ProfileViewModel implements LocalListener<Object, Object>,
         return model.getPostsForUser(handle);
     }
 
+    /**
+     * Getter for one page of the posts made by the user, newest first. The first page also carries the
+     * number of posts the user made, which is shown on the user's wall.
+     *
+     * @param handle the user's handle
+     * @param cursor the cursor of the previous page, or <code>null</code> for the first page
+     * @return a PostPage object containing the posts of the page and the cursor of the next page
+     */
+    public PostPage getPostsForUser(String handle, PostCursor cursor) {
+        PostPage page = model.getPostsForUser(handle, cursor, PROFILE_PAGE_SIZE);
+        ArrayList<String> hashes = new ArrayList<>();
+        for (Post post : page.getPosts())
+            hashes.add(post.getImageHash());
+        imageCache.prefetch(hashes, ImageRendition.CARD);
+        if (page.getTotalCount() >= 0)
+            wall.set(handle + "'s Wall (" + page.getTotalCount() + (page.getTotalCount() == 1 ? " post)" : " posts)"));
+        return page;
+    }
+
     /**
      * Getter for all the dogs linked to the user
      *
@@ -268,14 +297,16 @@ public class ProfileViewModel implements LocalListener<Object, Object>,
 
         User old = model.getUserByHandle(getHandle().replace(" @", ""));
         if (old.getStatus().equalsIgnoreCase("unblocked")) {
-            User newUser = new User(old.getHandle(), old.getName(), old.getLastname(), old.getImageURL(), old.getPassword(), old.getEmail(),
+            User newUser = new User(old.getHandle(), old.getName(), old.getLastname(), null, old.getPassword(), old.getEmail(),
                     old.getBirthday(), old.getGender(), old.getDogList(), old.getBio(), old.getUserType(), "blocked");
+            newUser.setImageHash(old.getImageHash());
 
             model.editUser(newUser);
             System.out.println(getHandle().replace(" @", "") + " is blocked");
         } else {
-            User newUser = new User(old.getHandle(), old.getName(), old.getLastname(), old.getImageURL(), old.getPassword(), old.getEmail(),
+            User newUser = new User(old.getHandle(), old.getName(), old.getLastname(), null, old.getPassword(), old.getEmail(),
                     old.getBirthday(), old.getGender(), old.getDogList(), old.getBio(), old.getUserType(), "unblocked");
+            newUser.setImageHash(old.getImageHash());
 
             model.editUser(newUser);
             System.out.println(getHandle().replace(" @", "") + " is unblocked");
@@ -359,28 +390,24 @@ public class ProfileViewModel implements LocalListener<Object, Object>,
     }
 
     /**
-     * Getter for a list of all the post likes
-     * @return an ArrayList containing all the information about post likes
+     * Getter for the ids of the posts the current user liked, out of the given ones
+     *
+     * @param posts the posts about to be shown
+     * @return the ids of the liked posts in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllLikes() {
-        return model.getLikes();
+    public int[] getLikedPostIds(ArrayList<Post> posts) {
+        return homeViewModel.getLikedPostIds(posts);
     }
 
     /**
-     * A method calculating the total number of post likes for a user
+     * Getter for the total number of post likes for a user. The total is kept by the server, so no posts
+     * are loaded for it.
      * @param handle
      *          the handle of the user the likes are calculated for
      * @return the total number of likes for the user in integer form
      */
     public int getNumberOfLikes(String handle) {
-
-        ArrayList<Post> posts = model.getPostsForUser(handle);
-        int likes = 0;
-
-        for (Post post : posts) {
-            likes += post.getLikes();
-        }
-        return likes;
+        return model.getProfileStats(handle).getPostLikes();
     }
 
     /**
@@ -392,35 +419,47 @@ public class ProfileViewModel implements LocalListener<Object, Object>,
      */
     public void likeDogPost(int dogId, String handle) {
 
-        model.addLikeToDog(dogId);
-        model.addDogLike(dogId, handle);
+        model.likeDog(dogId, handle);
         System.out.println("Dog liked.");
     }
 
     /**
-     * Getter for all the dog likes
-     * @return an ArrayList containing all the dog likes information
+     * Getter for the ids of the dogs the current user liked, out of the given ones
+     *
+     * @param dogs the dogs about to be shown
+     * @return the ids of the liked dogs in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllDogLikes() {
-        return model.getDogLikes();
+    public int[] getLikedDogIds(ArrayList<Dog> dogs) {
+        if (homeViewModel.isGuest() || changeableHandle == null)
+            return new int[0];
+        int[] ids = new int[dogs.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = dogs.get(i).getDogId();
+        return model.getLikedDogIds(changeableHandle, ids);
     }
 
     /**
-     * A method calculation the total number of dog likes for a dog
-     * @param dogId
-     *          the dog the likes are calculated for
-     * @return an integer representing the number of likes for the dog
+     * A method loading an image stored on the server, in the size it is drawn in. Images shown before
+     * are taken from the shared image cache
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action drawing the image, called on the JavaFX Application Thread once the image is ready
      */
-    public int getNumberOfDogLikes(int dogId) {
-
-        ArrayList<Dog> dogs = model.getDogList();
-
-        int likes = 0;
+    public void loadImage(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        imageCache.load(hash, rendition, onLoaded);
+    }
 
-        for (Dog dog : dogs) {
-            if (dog.getDogId() == dogId)
-                likes += dog.getLikes();
-        }
-        return likes;
+    /**
+     * Getter for the card of a post, shared with the other screens showing the post
+     *
+     * @param post  the post shown on the card
+     * @param liked true if the current user already liked the post
+     * @return the PostCardViewModel of the post
+     */
+    public PostCardViewModel getCard(Post post, boolean liked) {
+        return homeViewModel.getCard(post, liked);
     }
 }
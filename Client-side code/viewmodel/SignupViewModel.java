@@ -10,12 +10,8 @@ import model.User;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.sql.Date;
 import java.time.LocalDate;
-import java.util.ArrayList;
 
 /**
  * The SignupViewModel class handles the logic behind the signup view
@@ -157,26 +153,14 @@ public class SignupViewModel
 	}
 
 	/**
-	 * A method for signing up a new user and sending the information to the model
+	 * A method for signing up a new user and sending the information to the model. The password is hashed
+	 * by the server before it is stored.
 	 */
 	public void signUpUser()
 	{
 		LocalDate localDate = birthday.get();
 		Date date = Date.valueOf(localDate);
 
-		MessageDigest digest = null;
-		try
-		{
-			digest = MessageDigest.getInstance("SHA-256");
-		}
-		catch(NoSuchAlgorithmException e)
-		{
-			e.printStackTrace();
-		}
-		assert digest != null;
-		byte[] encodedhash = digest.digest(password.get().getBytes(StandardCharsets.UTF_8));
-		String finalhash = bytesToHex(encodedhash);
-
 		if(imageurl == null)
 		{
 			try
@@ -188,7 +172,7 @@ public class SignupViewModel
 				e.printStackTrace();
 			}
 		}
-		User user = new User(handle.get(), firstName.get(), lastName.get(), imageurl, finalhash, email.get(), date, gender.get(), null, bio.get(), "user", "unblocked");
+		User user = new User(handle.get(), firstName.get(), lastName.get(), imageurl, password.get(), email.get(), date, gender.get(), null, bio.get(), "user", "unblocked");
 		model.addUser(user);
 	}
 
@@ -213,29 +197,25 @@ public class SignupViewModel
 	}
 
 	/**
-	 * A method for converting the hex String to a normal string
-	 * @param hash the byte information of the hashed password
-	 * @return the String value of the hashed password
+	 * A method checking if a handle is still free
+	 *
+	 * @param handle the handle chosen by the new user
+	 * @return true if no user has the handle, false otherwise
 	 */
-	private static String bytesToHex(byte[] hash)
+	public boolean isHandleAvailable(String handle)
 	{
-		StringBuffer hexString = new StringBuffer();
-		for(int i = 0; i < hash.length; i++)
-		{
-			String hex = Integer.toHexString(0xff & hash[i]);
-			if(hex.length() == 1)
-				hexString.append('0');
-			hexString.append(hex);
-		}
-		return hexString.toString();
+		return model.isHandleAvailable(handle);
 	}
 
 	/**
-	 * Getter for all the signed up users
-	 * @return an ArrayList of User data type containing the information related to all the users
+	 * A method checking if an email is still free
+	 *
+	 * @param email the email given by the new user
+	 * @return true if no user has the email, false otherwise
 	 */
-	public ArrayList<User> getAllUsers(){
-		return model.getUserList();
+	public boolean isEmailAvailable(String email)
+	{
+		return model.isEmailAvailable(email);
 	}
 
 
@@ -1,5 +1,6 @@
 package viewmodel;
 
+import model.ImageCache;
 import model.LocalModel;
 
 /**
@@ -24,29 +25,32 @@ public class ViewModelFactory {
     private EditCommentViewModel editCommentViewModel;
     private TeamViewModel teamViewModel;
     private HallOfFameViewModel hallOfFameViewModel;
+    private ImageCache imageCache;
 
     /**
-     * A constructor initialising all the ViewModel classes
+     * A constructor initialising all the ViewModel classes. The ViewModel classes drawing images share
+     * a single image cache
      * @param model
      *          an instance of the LocalModel interface
      */
     public ViewModelFactory(LocalModel model){
 
+        imageCache = new ImageCache(model);
         loginViewModel = new LoginViewModel(model);
-        homeViewModel = new HomeViewModel(model,loginViewModel);
-        profileViewModel = new ProfileViewModel(model,homeViewModel);
+        homeViewModel = new HomeViewModel(model,imageCache,loginViewModel);
+        profileViewModel = new ProfileViewModel(model,imageCache,homeViewModel);
         signupViewModel = new SignupViewModel(model);
-        manageProfileViewModel = new ManageProfileViewModel(model,homeViewModel);
+        manageProfileViewModel = new ManageProfileViewModel(model,imageCache,homeViewModel);
         createPostViewModel = new CreatePostViewModel(model, homeViewModel);
         changePasswordViewModel=new ChangePasswordViewModel(model,loginViewModel);
         addDogViewModel=new AddDogViewModel(model,homeViewModel);
         editDogViewModel=new EditDogViewModel(model,homeViewModel,profileViewModel);
         editPostViewModel=new EditPostViewModel(model,homeViewModel,profileViewModel);
-        viewPostViewModel = new ViewPostViewModel(model,homeViewModel,profileViewModel);
+        viewPostViewModel = new ViewPostViewModel(model,imageCache,homeViewModel,profileViewModel);
         createCommentViewModel=new CreateCommentViewModel(model,homeViewModel,viewPostViewModel);
         editCommentViewModel=new EditCommentViewModel(model,viewPostViewModel);
         teamViewModel=new TeamViewModel(model);
-        hallOfFameViewModel=new HallOfFameViewModel(model,homeViewModel);
+        hallOfFameViewModel=new HallOfFameViewModel(model,imageCache,homeViewModel);
     }
 
     /**
@@ -173,4 +177,12 @@ public class ViewModelFactory {
     public HallOfFameViewModel getHallOfFameViewModel() {
         return hallOfFameViewModel;
     }
+
+    /**
+     * Getter for the image cache shared by the ViewModel classes
+     * @return an instance of the ImageCache class
+     */
+    public ImageCache getImageCache() {
+        return imageCache;
+    }
 }
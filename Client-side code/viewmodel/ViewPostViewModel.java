@@ -1,9 +1,15 @@
 package viewmodel;
 
+import javafx.scene.image.Image;
 import model.Comment;
+import model.CommentCursor;
+import model.CommentPage;
+import model.ImageCache;
+import model.ImageRendition;
 import model.LocalModel;
 import model.Post;
 import model.User;
+import model.UserSummary;
 import utility.observer.event.ObserverEvent;
 import utility.observer.listener.GeneralListener;
 import utility.observer.listener.LocalListener;
@@ -12,6 +18,7 @@ import utility.observer.subject.PropertyChangeAction;
 import utility.observer.subject.PropertyChangeProxy;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The ViewPostViewModel class handles the logic behind the viewPost view
@@ -21,7 +28,9 @@ import java.util.ArrayList;
  * @version 1.0
  */
 public class ViewPostViewModel implements LocalListener<Object,Object>, LocalSubject<Object,Object> {
+    private static final int COMMENT_PAGE_SIZE = 20;
     private LocalModel model;
+    private ImageCache imageCache;
     private HomeViewModel homeViewModel;
     private ProfileViewModel profileViewModel;
     private boolean fromHome;
@@ -34,13 +43,16 @@ public class ViewPostViewModel implements LocalListener<Object,Object>, LocalSub
      * A constructor setting the local variables and listeners
      * @param model
      *          an instance of the LocalModel interface
+     * @param imageCache
+     *          the image cache shared by the ViewModel classes
      * @param homeViewModel
      *          an instance of the HomeViewModel class
      * @param profileViewModel
      *          an instance of the ProfileViewModel class
      */
-    public ViewPostViewModel(LocalModel model, HomeViewModel homeViewModel, ProfileViewModel profileViewModel){
+    public ViewPostViewModel(LocalModel model, ImageCache imageCache, HomeViewModel homeViewModel, ProfileViewModel profileViewModel){
         this.model=model;
+        this.imageCache=imageCache;
         this.homeViewModel=homeViewModel;
         this.homeViewModel.addListener(this);
         isGuest=homeViewModel.isGuest();
@@ -87,19 +99,23 @@ public class ViewPostViewModel implements LocalListener<Object,Object>, LocalSub
     }
 
     /**
-     * Getter for all the post likes
-     * @return an ArrayList containing all the information related to post likes
+     * Getter for the ids of the posts the current user liked, out of the given ones
+     * @param posts
+     *          the posts about to be shown
+     * @return the ids of the liked posts in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllLikes(){
-        return homeViewModel.getAllLikes();
+    public int[] getLikedPostIds(ArrayList<Post> posts){
+        return homeViewModel.getLikedPostIds(posts);
     }
 
     /**
-     * Getter for all the comment likes
-     * @return an ArrayList containing all the information related to comment likes
+     * Getter for the ids of the comments the current user liked, out of the given ones
+     * @param comments
+     *          the comments about to be shown
+     * @return the ids of the liked comments in ascending order, empty for a guest
      */
-    public ArrayList<String> getAllCommentLikes(){
-        return homeViewModel.getAllCommentLikes();
+    public int[] getLikedCommentIds(ArrayList<Comment> comments){
+        return homeViewModel.getLikedCommentIds(comments);
     }
 
     /**
@@ -114,13 +130,32 @@ public class ViewPostViewModel implements LocalListener<Object,Object>, LocalSub
     }
 
     /**
-     * Getter for all the comments of a post
+     * Getter for one page of the comments of a post, newest first. The authors of the comments on the page
+     * are prefetched together.
      * @param postId
      *          the id of the post whose comments are needed
-     * @return an ArrayList of comment data type containing all the comments
-     * related to the specified post
+     * @param cursor
+     *          the cursor returned with the previous page, or <code>null</code> for the first page
+     * @return a CommentPage object containing the comments of the page and the cursor of the next page
      */
-    public ArrayList<Comment> getCommentForPost(int postId){ return model.getCommentForPost(postId);}
+    public CommentPage getComments(int postId, CommentCursor cursor){
+        CommentPage page = model.getComments(postId, cursor, COMMENT_PAGE_SIZE);
+        ArrayList<String> handles = new ArrayList<>();
+        for (Comment comment : page.getComments())
+            handles.add(comment.getHandle());
+        homeViewModel.prefetchAuthors(handles);
+        return page;
+    }
+
+    /**
+     * Getter for the summary of the author of a post or comment
+     * @param handle
+     *          the handle of the author
+     * @return the summary of the author, or <code>null</code> if there is no such user
+     */
+    public UserSummary getAuthor(String handle) {
+        return homeViewModel.getAuthor(handle);
+    }
 
     /**
      * Getter for the current user's handle
@@ -239,4 +274,30 @@ public class ViewPostViewModel implements LocalListener<Object,Object>, LocalSub
         }
 
     }
+
+    /**
+     * A method loading an image stored on the server, in the size it is drawn in. Images shown before
+     * are taken from the shared image cache
+     * @param hash
+     *          the hash of the image, as carried by a Post, Dog or User object
+     * @param rendition
+     *          the size the image is drawn in
+     * @param onLoaded
+     *          the action drawing the image, called on the JavaFX Application Thread once the image is ready
+     */
+    public void loadImage(String hash, ImageRendition rendition, Consumer<Image> onLoaded) {
+        imageCache.load(hash, rendition, onLoaded);
+    }
+
+    /**
+     * Getter for the card of a post, shared with the other screens showing the post
+     * @param post
+     *          the post shown on the card
+     * @param liked
+     *          true if the current user already liked the post
+     * @return the PostCardViewModel of the post
+     */
+    public PostCardViewModel getCard(Post post, boolean liked) {
+        return homeViewModel.getCard(post, liked);
+    }
 }
@@ -1,4 +1,6 @@
 
+import database.DatabaseConnection;
+import database.SchemaMigrations;
 import model.*;
 import network.RemoteModel;
 import network.RmiServer;
@@ -18,8 +20,21 @@ public class ServerMain
   public static void main(String[] args)
       throws SQLException, MalformedURLException, RemoteException
   {
-    Model model = new ModelManager();
+    // the image renditions are drawn without a display
+    System.setProperty("java.awt.headless", "true");
+    // the schema is brought up to date before anything reads from it
+    new SchemaMigrations().migrate();
+    ModelManager model = new ModelManager();
     RemoteModel server = new RmiServer(model);
+
+    DatabaseConnection db = DatabaseConnection.getInstance();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      model.close();
+      System.out.println("Database connections closed: " + db.getPool());
+      System.out.println(db.getPool().getQueryTimings() + " " + db.getBreakerState());
+      System.out.print(db.getPool().getQueryTimings().report(20));
+      db.getPool().close();
+    }));
   }
 
 }
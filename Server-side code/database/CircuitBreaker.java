@@ -0,0 +1,103 @@
+package database;
+
+import model.DatabaseUnavailableException;
+
+/**
+ * The CircuitBreaker class stops the calls to the database for a while after too many consecutive transient
+ * failures, such as lost or refused connections. While the breaker is open every call fails right away with a
+ * DatabaseUnavailableException. Once the open time is over a single trial call is let through: if it succeeds the
+ * breaker closes and the calls flow again, otherwise it stays open for another period.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+class CircuitBreaker
+{
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean open;
+  private boolean trialRunning;
+  private long timesOpened;
+
+  /**
+   * A constructor creating a closed breaker
+   * @param failureThreshold
+   *        the number of consecutive transient failures that open the breaker
+   * @param openMillis
+   *        the time in milliseconds the breaker stays open before a trial call is let through
+   */
+  CircuitBreaker(int failureThreshold, long openMillis)
+  {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openNanos = openMillis * 1_000_000L;
+  }
+
+  /**
+   * A method called before every call to the database
+   * @throws DatabaseUnavailableException if the breaker is open, or another trial call is already running
+   */
+  synchronized void allow()
+  {
+    if (!open)
+      return;
+    if (System.nanoTime() - openedAt < openNanos || trialRunning)
+      throw new DatabaseUnavailableException("The database is unavailable, calls are paused after "
+          + consecutiveFailures + " failures in a row");
+    trialRunning = true;
+  }
+
+  /**
+   * A method called after a call reached the database, closing the breaker
+   */
+  synchronized void success()
+  {
+    if (open)
+      System.out.println("Database available again, circuit breaker closed");
+    consecutiveFailures = 0;
+    open = false;
+    trialRunning = false;
+  }
+
+  /**
+   * A method called after a call failed with a transient error, opening the breaker once the threshold is reached
+   * or when a trial call failed
+   */
+  synchronized void failure()
+  {
+    consecutiveFailures++;
+    if (trialRunning || (!open && consecutiveFailures >= failureThreshold))
+    {
+      if (!open)
+      {
+        timesOpened++;
+        System.err.println("Database unavailable, circuit breaker opened after " + consecutiveFailures
+            + " failures in a row");
+      }
+      open = true;
+      openedAt = System.nanoTime();
+    }
+    trialRunning = false;
+  }
+
+  /**
+   * A method checking if the breaker is open
+   * @return true if calls are currently failing fast
+   */
+  synchronized boolean isOpen()
+  {
+    return open;
+  }
+
+  /**
+   * A method returning a short summary of the breaker state.
+   * Example: "breaker[open=false, failures=0, opened=2]"
+   * @return a String representation of the breaker state
+   */
+  @Override public synchronized String toString()
+  {
+    return "breaker[open=" + open + ", failures=" + consecutiveFailures + ", opened=" + timesOpened + "]";
+  }
+}
@@ -1,6 +1,9 @@
 package database;
 
 import model.Comment;
+import model.CommentCursor;
+import model.CommentPage;
+import model.DataAccessException;
 
 import java.sql.*;
 import java.time.Instant;
@@ -8,13 +11,16 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 
 /**
  * CommentData class represents the connection between the server and the Comments table in the database.
  * The class contains a collection of methods for adding, getting, updating and deleting data from the table.
- * The DatabaseConnection class as well as <code>java.sql</code> classes are needed in order for the communication
- * to be established and work accordingly.
+ * The DatabaseConnection class, which hands out a pooled connection for every call, as well as <code>java.sql</code>
+ * classes are needed in order for the communication to be established and work accordingly.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -22,58 +28,68 @@ import java.util.TimeZone;
 public class CommentData
 {
   private  DatabaseConnection db;
-  private PreparedStatement pst;
-  private Connection connection;
   private static final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+  private static final int MAX_PAGE_SIZE = 50;
+  private static final int PREVIEW_SIZE = Integer.getInteger("puppr.comments.preview", 3);
 
   /**
-   * A constructor for getting an instance of the DatabaseConnection and establishing a connection
+   * A constructor for getting an instance of the DatabaseConnection
    * @throws SQLException if any SQL error occurs while getting the DatabaseConnection
    */
   public CommentData() throws SQLException
   {
     db= DatabaseConnection.getInstance();
-    connection=db.getConnection();
   }
 
   /**
    * A method for adding a new comment to the database.
    * @param comment
    *        the Comment object that is to be inserted into the Comments table
-   * @throws SQLException if any SQL error occurs while executing the method
+   * @return the id the database gave to the new comment
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void addComment(Comment comment) throws SQLException
+  public int addComment(Comment comment)
   {
-    String sql = "INSERT INTO COMMENTS(BODY,HANDLE,LIKES,TIME_POSTED,POST_ID) VALUES (?,?,?,?,?);";
-    pst=connection.prepareStatement(sql);
-    pst.setString(1,comment.getBody());
-    pst.setString(2,comment.getHandle());
-    pst.setInt(3,comment.getLikes());
-    Timestamp ts = new Timestamp(comment.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
-    pst.setTimestamp(4, ts, utc);
-    pst.setInt(5,comment.getPostId());
-    db.operation(pst);
+    String sql = "INSERT INTO COMMENTS(BODY,HANDLE,LIKES,TIME_POSTED,POST_ID) VALUES (?,?,?,?,?) RETURNING COMMENT_ID;";
+    int commentId = db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1,comment.getBody());
+        pst.setString(2,comment.getHandle());
+        pst.setInt(3,comment.getLikes());
+        Timestamp ts = new Timestamp(comment.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
+        pst.setTimestamp(4, ts, utc);
+        pst.setInt(5,comment.getPostId());
+        try (ResultSet rs = pst.executeQuery())
+        {
+          rs.next();
+          return rs.getInt(1);
+        }
+      }
+    });
     System.out.println("ADDED: "+comment.getTimePosted()+"@"+comment.getHandle());
-
+    return commentId;
   }
 
   /**
    * A method for updating a comment's data in the table
    * @param comment
    *        the modified Comment object with the same <code>commentId</code>
-   * @throws SQLException if any SQL error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void editComment(Comment comment) throws SQLException
+  public void editComment(Comment comment)
   {
     String sql = "UPDATE COMMENTS SET BODY=?,TIME_POSTED=? WHERE COMMENT_ID=?";
-    pst=connection.prepareStatement(sql);
-
-    pst.setString(1,comment.getBody());
-    Timestamp ts = new Timestamp(comment.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
-    pst.setTimestamp(2, ts, utc);
-    pst.setInt(3,comment.getCommentId());
-
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1,comment.getBody());
+        Timestamp ts = new Timestamp(comment.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
+        pst.setTimestamp(2, ts, utc);
+        pst.setInt(3,comment.getCommentId());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("EDITED: "+comment.getTimePosted()+"@"+comment.getHandle());
   }
 
@@ -81,14 +97,18 @@ public class CommentData
    * A method for deleting a row in the Comments table
    * @param comment
    *        the Comment object that is to be deleted from the database
-   * @throws SQLException if any SQL error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void removeComment(Comment comment) throws SQLException
+  public void removeComment(Comment comment)
   {
     String sql = "DELETE FROM COMMENTS WHERE COMMENT_ID=?";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(1,comment.getCommentId());
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setInt(1,comment.getCommentId());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("DELETED: "+comment.getTimePosted()+"@"+comment.getHandle());
   }
 
@@ -99,33 +119,39 @@ public class CommentData
    */
   public ArrayList<Comment> getCommentList(){
     ArrayList<Comment> comments=new ArrayList<>();
+    forEachComment(comments::add);
+    return comments;
+  }
+
+  /**
+   * A method handing every comment in the Comments table to an action, newest first. The comments are
+   * read through a database cursor, <code>puppr.db.fetch.size</code> rows at a time, so only the rows of one
+   * fetch are held in memory besides what the action keeps.
+   * @param action
+   *        the action receiving the comments one by one
+   */
+  public void forEachComment(Consumer<Comment> action){
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-      ResultSet rs = statement.executeQuery("SELECT * FROM COMMENTS ORDER BY TIME_POSTED DESC;");
-
-      Comment comment;
-      while (rs.next())
-      {
-        Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-
-        LocalDateTime localDt = null;
-        if (ts != null)
-          localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-
-        comment=new Comment(rs.getInt("COMMENT_ID"),rs.getString("BODY"),
-                            rs.getString("HANDLE"),rs.getInt("LIKES"),localDt,
-                            rs.getInt("POST_ID"));
-
-        comments.add(comment);
-      }
+      db.executeOnce(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT * FROM COMMENTS ORDER BY TIME_POSTED DESC;"))
+        {
+          pst.setFetchSize(db.getFetchSize());
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              action.accept(readComment(rs));
+            }
+          }
+        }
+        return null;
+      });
     }
     catch(Exception e){
       System.err.println( e.getClass().getName()+": "+ e.getMessage() );
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
-    return comments;
   }
 
   /**
@@ -137,52 +163,170 @@ public class CommentData
    */
   public ArrayList<Comment> getCommentForPost(int postId){
 
-    ArrayList<Comment> comments=new ArrayList<>();
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-      ResultSet rs = statement.executeQuery("SELECT * FROM COMMENTS WHERE POST_ID='"+postId+"'  ORDER BY TIME_POSTED DESC;");
+      return db.execute(connection -> getCommentForPost(connection, postId));
+    }
+    catch(Exception e){
+      System.err.println( e.getClass().getName()+": "+ e.getMessage() );
+      throw DataAccessException.wrap(e);
+    }
+  }
 
-      Comment comment;
-      while (rs.next())
+  /**
+   * Getter for all the comments related to a specific post, read on a connection that is already
+   * checked out by the caller
+   * @param connection
+   *        the connection the comments are read on
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @return an ArrayList of Comment data type containing all the comments of the post
+   * @throws SQLException if any SQL error occurs while executing the method
+   */
+  ArrayList<Comment> getCommentForPost(Connection connection, int postId) throws SQLException
+  {
+    ArrayList<Comment> comments=new ArrayList<>();
+    try (PreparedStatement pst = connection.prepareStatement("SELECT * FROM COMMENTS WHERE POST_ID=? ORDER BY TIME_POSTED DESC;"))
+    {
+      pst.setInt(1, postId);
+      try (ResultSet rs = pst.executeQuery())
       {
-        Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-
-        LocalDateTime localDt = null;
-        if (ts != null)
-          localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-
-        comment=new Comment(rs.getInt("COMMENT_ID"),rs.getString("BODY"),
-                            rs.getString("HANDLE"),rs.getInt("LIKES"),localDt,
-                            rs.getInt("POST_ID"));
+        while (rs.next())
+        {
+          comments.add(readComment(rs));
+        }
+      }
+    }
+    return comments;
+  }
 
-        comments.add(comment);
+  /**
+   * A method for reading the number of comments and a preview of the most recent comments of several posts
+   * with a single query on a connection that is already checked out by the caller. At most
+   * <code>puppr.comments.preview</code> comments are added to the list of every post, newest first, so the
+   * size of a page of posts does not grow with the number of comments made on them.
+   * @param connection
+   *        the connection the comments are read on
+   * @param commentsByPost
+   *        the lists the preview comments are added to, keyed by the id of their post
+   * @return a HashMap containing the number of comments of every post that has any, keyed by the id of the post
+   * @throws SQLException if any SQL error occurs while executing the method
+   */
+  HashMap<Integer, Integer> fillCommentPreviews(Connection connection,
+      Map<Integer, ArrayList<Comment>> commentsByPost) throws SQLException
+  {
+    HashMap<Integer, Integer> counts = new HashMap<>();
+    if (commentsByPost.isEmpty())
+    {
+      return counts;
+    }
+    String sql = "SELECT * FROM (SELECT COMMENTS.*, "
+        + "ROW_NUMBER() OVER (PARTITION BY POST_ID ORDER BY TIME_POSTED DESC, COMMENT_ID DESC) AS RANK_IN_POST, "
+        + "COUNT(*) OVER (PARTITION BY POST_ID) AS COMMENT_COUNT "
+        + "FROM COMMENTS WHERE POST_ID = ANY(?)) AS RANKED "
+        + "WHERE RANK_IN_POST <= ? ORDER BY POST_ID, RANK_IN_POST;";
+    try (PreparedStatement pst = connection.prepareStatement(sql))
+    {
+      pst.setArray(1, connection.createArrayOf("integer", commentsByPost.keySet().toArray()));
+      pst.setInt(2, Math.max(1, PREVIEW_SIZE));
+      try (ResultSet rs = pst.executeQuery())
+      {
+        while (rs.next())
+        {
+          Comment comment = readComment(rs);
+          counts.put(comment.getPostId(), rs.getInt("COMMENT_COUNT"));
+          if (rs.getInt("RANK_IN_POST") <= PREVIEW_SIZE)
+          {
+            commentsByPost.get(comment.getPostId()).add(comment);
+          }
+        }
       }
     }
-    catch(Exception e){
-      System.err.println( e.getClass().getName()+": "+ e.getMessage() );
-      System.exit(0);
+    return counts;
+  }
+
+  /**
+   * Getter for one page of the comments of a post, newest first. The page starts right after the comment
+   * marked by the cursor and is read through the (POST_ID, TIME_POSTED) index, so the cost of a page does
+   * not depend on how many comments the post has. If any error occurs while executing the method, the error
+   * message is printed out in the console.
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of comments on the page, capped at 50
+   * @return a CommentPage object containing the comments of the page and the cursor of the next page
+   */
+  public CommentPage getComments(int postId, CommentCursor cursor, int limit)
+  {
+    int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    String sql = "SELECT * FROM COMMENTS WHERE POST_ID=?"
+        + (cursor != null ? " AND (TIME_POSTED, COMMENT_ID) < (?, ?)" : "")
+        + " ORDER BY TIME_POSTED DESC, COMMENT_ID DESC LIMIT ?;";
+    try
+    {
+      return db.execute(connection -> {
+        ArrayList<Comment> comments = new ArrayList<>();
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          int index = 1;
+          pst.setInt(index++, postId);
+          if (cursor != null)
+          {
+            pst.setTimestamp(index++, Timestamp.from(cursor.getTimePosted().toInstant(ZoneOffset.UTC)), utc);
+            pst.setInt(index++, cursor.getCommentId());
+          }
+          pst.setInt(index, pageSize + 1);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              comments.add(readComment(rs));
+            }
+          }
+        }
+        CommentCursor next = null;
+        if (comments.size() > pageSize)
+        {
+          comments.remove(pageSize);
+          Comment last = comments.get(pageSize - 1);
+          next = new CommentCursor(last.getTimePosted(), last.getCommentId());
+        }
+        return new CommentPage(comments, next);
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
     }
-    return comments;
   }
 
   /**
-   * A method for incrementing the likes of a comment by 1
-   * @param commentId
-   *        the Comment object for which the likes will be incremented
+   * Getter for the handles of all the users who commented on a specific post
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @return an ArrayList of String data type containing every commenter of the post once
    * @throws SQLException if any SQL error occurs while executing the method
    */
-  public void addLikeToComment(int commentId) throws SQLException
+  public ArrayList<String> getCommenters(int postId) throws SQLException
   {
-    Comment comment=getComment(commentId);
-    int likes=comment.getLikes();
-    String sql = "UPDATE COMMENTS SET LIKES=?  WHERE COMMENT_ID=?";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(1,++likes);
-    pst.setInt(2,commentId);
-    db.operation(pst);
-    System.out.println("LIKED");
+    return db.execute(connection -> {
+      ArrayList<String> handles = new ArrayList<>();
+      try (PreparedStatement pst = connection.prepareStatement("SELECT DISTINCT HANDLE FROM COMMENTS WHERE POST_ID=?"))
+      {
+        pst.setInt(1, postId);
+        try (ResultSet rs = pst.executeQuery())
+        {
+          while (rs.next())
+          {
+            handles.add(rs.getString(1));
+          }
+        }
+      }
+      return handles;
+    });
   }
 
   /**
@@ -193,37 +337,48 @@ public class CommentData
    * value
    */
   public Comment getComment(int commentId){
-    ArrayList<Comment> comments=new ArrayList<>();
-    Comment comment=null;
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-      ResultSet rs = statement
-          .executeQuery("SELECT * FROM COMMENTS WHERE COMMENT_ID='" +commentId + "'");
-
-      while (rs.next())
-      {
-        Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-
-        LocalDateTime localDt = null;
-        if (ts != null)
-          localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-
-        comment=new Comment(rs.getInt("COMMENT_ID"),rs.getString("BODY"),
-                            rs.getString("HANDLE"),rs.getInt("LIKES"),localDt,
-                            rs.getInt("POST_ID"));
-
-        comments.add(comment);
-        comment=comments.get(0);
-      }
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT * FROM COMMENTS WHERE COMMENT_ID=?"))
+        {
+          pst.setInt(1, commentId);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            if (rs.next())
+            {
+              return readComment(rs);
+            }
+          }
+        }
+        return null;
+      });
     }
     catch (Exception e)
     {
 
       System.err.println(e.getClass().getName() + ": " + e.getMessage());
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
-    return comment;
+  }
+
+  /**
+   * A private method building a Comment object out of the current row of a result set
+   * @param rs
+   *        the result set positioned on a COMMENTS row
+   * @return the Comment object for the current row
+   * @throws SQLException if any SQL error occurs while reading the row
+   */
+  private Comment readComment(ResultSet rs) throws SQLException
+  {
+    Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
+
+    LocalDateTime localDt = null;
+    if (ts != null)
+      localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
+
+    return new Comment(rs.getInt("COMMENT_ID"),rs.getString("BODY"),
+                       rs.getString("HANDLE"),rs.getInt("LIKES"),localDt,
+                       rs.getInt("POST_ID"));
   }
 }
@@ -1,14 +1,15 @@
 package database;
 
+import model.DataAccessException;
+
 import java.sql.*;
-import java.util.ArrayList;
 
 /**
  * CommentLikesData class handles the comment like (likes made on comments). The class ensures the communication
  * of the server with the CommentLikes table which contains information about the commentId and the handle of the user who
  * liked the comment.
- * A link to the DatabaseConnection class and to <code>java.sql</code> classes is needed in order for the communication to be
- * established and functional.
+ * A link to the DatabaseConnection class, which hands out a pooled connection for every call, and to <code>java.sql</code>
+ * classes is needed in order for the communication to be established and functional.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -16,8 +17,6 @@ import java.util.ArrayList;
 public class CommentLikesData {
 
     private  DatabaseConnection db;
-    private PreparedStatement pst;
-    private Connection connection;
 
 
     /**
@@ -26,52 +25,54 @@ public class CommentLikesData {
      */
     public CommentLikesData() throws SQLException {
         db = DatabaseConnection.getInstance();
-        connection = db.getConnection();
     }
 
     /**
-     * A method for adding a new row to the CommentLikes table
-     * @param commentId
-     *        the id of the comment that was liked
+     * Getter for the ids of the comments liked by a user
      * @param handle
-     *        the handle of the user who liked the comment
-     * @throws SQLException if any SQL error occurs while getting the DatabaseConnection
+     *        the handle of the user
+     * @param commentIds
+     *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+     * @return the ids of the liked comments in ascending order
      */
-    public void addLike(int commentId, String handle) throws SQLException {
-        String sql = "INSERT INTO COMMENTLIKES(COMMENT_ID,HANDLE) VALUES (?,?);";
-        pst = connection.prepareStatement(sql);
-        pst.setInt(1, commentId);
-        pst.setString(2, handle);
-        db.operation(pst);
-        System.out.println("Comment like info added");
-    }
-
-    /**
-     * Getter for all the comment likes in the table
-     * @return an ArrayList of String data type containing all the like information
-     * in the CommentLikes table
-     */
-    public ArrayList<String> getLikes(){
-
-        ArrayList<String> likes = new ArrayList<>();
+    public int[] getLikedCommentIds(String handle, int[] commentIds){
 
         try {
-            Statement statement = connection.createStatement();
-            connection.commit();
-
-            ResultSet rs = statement.executeQuery("SELECT * FROM COMMENTLIKES;");
-
-            String like;
-            while (rs.next()) {
-                like = rs.getInt("COMMENT_ID") + "/" + rs.getString("HANDLE");
-
-                likes.add(like);
-            }
+            return db.execute(connection ->
+                    LikesData.readLikedIds(connection, "COMMENTLIKES", "COMMENT_ID", handle, commentIds));
         } catch (Exception e) {
 
             System.err.println(e.getClass().getName() + ": " + e.getMessage());
-            System.exit(0);
+            throw DataAccessException.wrap(e);
         }
-        return likes;
+    }
+
+    /**
+     * Getter for the likes count of a comment, as long as the user did not like the comment yet
+     * @param commentId
+     *        the id of the comment
+     * @param handle
+     *        the handle of the user about to like the comment
+     * @return the likes count saved in the database, or -1 if there is no such comment or the user already liked it
+     * @throws SQLException if any SQL error occurs while executing the method
+     */
+    public int getLikesIfNotLiked(int commentId, String handle) throws SQLException {
+        return db.execute(connection ->
+                LikesData.readLikes(connection, "COMMENTLIKES", "COMMENTS", "COMMENT_ID", commentId, handle));
+    }
+
+    /**
+     * A method saving a batch of comment likes in a single transaction. Every comment gets one update adding up
+     * all of its new likes.
+     * @param handles
+     *        the handles of the users who liked the comments
+     * @param commentIds
+     *        the ids of the liked comments, in the same order as the handles
+     * @return the number of likes saved
+     * @throws SQLException if any SQL error occurs while executing the method
+     */
+    public int saveLikes(String[] handles, int[] commentIds) throws SQLException {
+        return db.execute(connection ->
+                LikesData.saveLikes(connection, "COMMENTLIKES", "COMMENTS", "COMMENT_ID", handles, commentIds));
     }
 }
@@ -0,0 +1,374 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ConnectionPool class keeps a bounded set of open database connections. A connection is checked out
+ * for the duration of a single call and handed back afterwards, so that calls coming from different RMI
+ * threads never share a connection. Idle connections are validated before they are reused and the time
+ * spent waiting for a connection is recorded. Every connection keeps its prepared statements open in a
+ * StatementCache, and the executions of all the statements are timed in the QueryTimings of the pool.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ConnectionPool
+{
+  private static final long VALIDATION_INTERVAL_MILLIS = 30_000;
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  private final String url;
+  private final String username;
+  private final String password;
+  private final int minSize;
+  private final int maxSize;
+  private final long acquireTimeoutMillis;
+  private final int statementCacheSize;
+  private final QueryTimings timings;
+
+  private final LinkedBlockingDeque<IdleConnection> idle;
+  private final Semaphore permits;
+
+  private final AtomicLong acquireCount;
+  private final AtomicLong timeoutCount;
+  private final AtomicLong totalWaitNanos;
+  private final AtomicLong maxWaitNanos;
+  private final AtomicLong createdCount;
+  private final AtomicLong discardedCount;
+  private volatile boolean closed;
+
+  /**
+   * A constructor setting up the pool and opening the minimum number of connections.
+   * @param url
+   *        the JDBC url of the database
+   * @param username
+   *        the username used to log into the database
+   * @param password
+   *        the password used to log into the database
+   * @param minSize
+   *        the number of connections opened when the pool is created
+   * @param maxSize
+   *        the maximum number of connections that can be checked out at the same time
+   * @param acquireTimeoutMillis
+   *        the maximum time in milliseconds a caller waits for a free connection
+   * @param statementCacheSize
+   *        the maximum number of prepared statements kept open on every connection
+   * @throws SQLException if any SQL error occurs while opening the initial connections
+   */
+  public ConnectionPool(String url, String username, String password, int minSize,
+      int maxSize, long acquireTimeoutMillis, int statementCacheSize) throws SQLException
+  {
+    if (minSize < 0 || maxSize < 1 || minSize > maxSize)
+    {
+      throw new IllegalArgumentException(
+          "Invalid pool size: min=" + minSize + ", max=" + maxSize);
+    }
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.statementCacheSize = statementCacheSize;
+    this.timings = new QueryTimings();
+    this.idle = new LinkedBlockingDeque<>();
+    this.permits = new Semaphore(maxSize, true);
+    this.acquireCount = new AtomicLong();
+    this.timeoutCount = new AtomicLong();
+    this.totalWaitNanos = new AtomicLong();
+    this.maxWaitNanos = new AtomicLong();
+    this.createdCount = new AtomicLong();
+    this.discardedCount = new AtomicLong();
+
+    for (int i = 0; i < minSize; i++)
+    {
+      idle.offerLast(new IdleConnection(createConnection()));
+    }
+  }
+
+  /**
+   * A method for checking out a connection. The caller waits at most the configured acquire timeout
+   * for a connection to become free. Connections that stayed idle for a while are validated first
+   * and replaced if they are no longer usable.
+   * @return a connection with Auto Commit set to false that must be handed back with <code>release</code>
+   * @throws SQLException if the pool is closed, no connection becomes free in time or a new connection cannot
+   * be opened
+   */
+  public Connection acquire() throws SQLException
+  {
+    if (closed)
+    {
+      throw new SQLException("The database connection pool is closed");
+    }
+    long start = System.nanoTime();
+    try
+    {
+      if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS))
+      {
+        timeoutCount.incrementAndGet();
+        throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+            + " ms waiting for a database connection");
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a database connection", e);
+    }
+
+    long waited = System.nanoTime() - start;
+    acquireCount.incrementAndGet();
+    totalWaitNanos.addAndGet(waited);
+    maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+    try
+    {
+      IdleConnection candidate;
+      while ((candidate = idle.pollFirst()) != null)
+      {
+        if (isHealthy(candidate))
+        {
+          return candidate.connection;
+        }
+        discard(candidate.connection);
+      }
+      return createConnection();
+    }
+    catch (SQLException | RuntimeException | Error e)
+    {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * A method for handing a connection back to the pool. Closed connections are dropped instead of
+   * being reused, and so are all the connections handed back after the pool was closed.
+   * @param connection
+   *        the connection that was checked out with <code>acquire</code>
+   */
+  public void release(Connection connection)
+  {
+    try
+    {
+      if (connection.isClosed())
+      {
+        discardedCount.incrementAndGet();
+      }
+      else if (closed)
+      {
+        discard(connection);
+      }
+      else
+      {
+        idle.offerFirst(new IdleConnection(connection));
+        if (closed)
+        {
+          evictIdle();
+        }
+      }
+    }
+    catch (SQLException e)
+    {
+      discard(connection);
+    }
+    finally
+    {
+      permits.release();
+    }
+  }
+
+  /**
+   * A method for handing back a connection that is known to be broken. The connection is closed and
+   * a fresh one will be opened the next time one is needed.
+   * @param connection
+   *        the connection that was checked out with <code>acquire</code>
+   */
+  public void invalidate(Connection connection)
+  {
+    discard(connection);
+    permits.release();
+  }
+
+  /**
+   * A method closing the pool and all the idle connections. Connections that are checked out at the time
+   * of the call are closed when they are handed back, and no connection is handed out afterwards.
+   */
+  public void close()
+  {
+    closed = true;
+    evictIdle();
+  }
+
+  /**
+   * A method closing all the idle connections, for example after the database restarted and they were
+   * all lost. New connections are opened when they are needed.
+   */
+  public void evictIdle()
+  {
+    IdleConnection candidate;
+    while ((candidate = idle.pollFirst()) != null)
+    {
+      discard(candidate.connection);
+    }
+  }
+
+  /**
+   * Getter for the timings of the statements run on the connections of the pool
+   * @return a reference to the QueryTimings shared by all the connections
+   */
+  public QueryTimings getQueryTimings()
+  {
+    return timings;
+  }
+
+  /**
+   * Getter for the number of connections checked out since the pool was created
+   * @return the number of successful <code>acquire</code> calls
+   */
+  public long getAcquireCount()
+  {
+    return acquireCount.get();
+  }
+
+  /**
+   * Getter for the number of callers that gave up waiting for a connection
+   * @return the number of <code>acquire</code> calls that timed out
+   */
+  public long getTimeoutCount()
+  {
+    return timeoutCount.get();
+  }
+
+  /**
+   * Getter for the average time spent waiting for a connection
+   * @return the average wait in milliseconds
+   */
+  public double getAverageAcquireMillis()
+  {
+    long count = acquireCount.get();
+    return count == 0 ? 0 : totalWaitNanos.get() / (count * 1_000_000.0);
+  }
+
+  /**
+   * Getter for the longest time a caller waited for a connection
+   * @return the longest wait in milliseconds
+   */
+  public double getMaxAcquireMillis()
+  {
+    return maxWaitNanos.get() / 1_000_000.0;
+  }
+
+  /**
+   * Getter for the number of connections that are currently checked out
+   * @return the number of connections in use
+   */
+  public int getActiveCount()
+  {
+    return maxSize - permits.availablePermits();
+  }
+
+  /**
+   * Getter for the number of open connections waiting to be checked out
+   * @return the number of idle connections
+   */
+  public int getIdleCount()
+  {
+    return idle.size();
+  }
+
+  /**
+   * A method returning a short summary of the pool size and the acquire metrics.
+   * Example: "pool[min=2, max=10, active=1, idle=3, created=4, discarded=0, acquired=120,
+   *          timeouts=0, avgWait=0.02ms, maxWait=1.30ms]"
+   * @return a String representation of the pool state
+   */
+  @Override public String toString()
+  {
+    return String.format(
+        "pool[min=%d, max=%d, active=%d, idle=%d, created=%d, discarded=%d, acquired=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms]",
+        minSize, maxSize, getActiveCount(), getIdleCount(), createdCount.get(),
+        discardedCount.get(), getAcquireCount(), getTimeoutCount(),
+        getAverageAcquireMillis(), getMaxAcquireMillis());
+  }
+
+  /**
+   * A private method opening a new connection with Auto Commit set to false
+   * @return the new connection, caching its prepared statements
+   * @throws SQLException if any SQL error occurs while opening the connection
+   */
+  private Connection createConnection() throws SQLException
+  {
+    Connection connection = DriverManager.getConnection(url, username, password);
+    connection.setAutoCommit(false);
+    createdCount.incrementAndGet();
+    return StatementCache.wrap(connection, statementCacheSize, timings);
+  }
+
+  /**
+   * A private method checking that an idle connection can still be used. Connections that were
+   * handed back recently are trusted without a round trip to the database.
+   * @param candidate
+   *        the idle connection
+   * @return true if the connection can be handed out, false otherwise
+   */
+  private boolean isHealthy(IdleConnection candidate)
+  {
+    try
+    {
+      if (candidate.connection.isClosed())
+      {
+        return false;
+      }
+      if (System.currentTimeMillis() - candidate.releasedAt < VALIDATION_INTERVAL_MILLIS)
+      {
+        return true;
+      }
+      return candidate.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    }
+    catch (SQLException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * A private method closing a connection that is no longer used by the pool
+   * @param connection
+   *        the connection that is dropped
+   */
+  private void discard(Connection connection)
+  {
+    discardedCount.incrementAndGet();
+    try
+    {
+      connection.close();
+    }
+    catch (SQLException e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * An idle connection together with the time it was handed back to the pool
+   */
+  private static class IdleConnection
+  {
+    private final Connection connection;
+    private final long releasedAt;
+
+    private IdleConnection(Connection connection)
+    {
+      this.connection = connection;
+      this.releasedAt = System.currentTimeMillis();
+    }
+  }
+}
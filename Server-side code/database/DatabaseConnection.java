@@ -1,13 +1,24 @@
 package database;
 
+import model.DataAccessException;
+import model.DatabaseUnavailableException;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The DatabaseConnection class is the one that connects the server to the database. The class uses the Singleton
- * design patter to ensure that there is only one connection to the same database all around the server.
+ * design patter to ensure that there is only one connection pool to the same database all around the server.
+ * Every call checks out its own connection from the pool, so calls coming from different clients can run
+ * at the same time. Transient failures are retried and a circuit breaker makes the calls fail fast while the
+ * database is down. The number of retries, their delays and the breaker can be configured with the
+ * <code>puppr.db.retries</code>, <code>puppr.db.retry.delay</code>, <code>puppr.db.retry.maxdelay</code>,
+ * <code>puppr.db.breaker.failures</code> and <code>puppr.db.breaker.open</code> system properties.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -16,14 +27,24 @@ public class DatabaseConnection
 {
 
   private static DatabaseConnection instance;
-  private Connection connection;
+  private ConnectionPool pool;
+  private final int fetchSize = Integer.getInteger("puppr.db.fetch.size", 500);
+  private final int maxRetries = Integer.getInteger("puppr.db.retries", 3);
+  private final long baseDelayMillis = Long.getLong("puppr.db.retry.delay", 50);
+  private final long maxDelayMillis = Long.getLong("puppr.db.retry.maxdelay", 1000);
+  private final CircuitBreaker breaker = new CircuitBreaker(Integer.getInteger("puppr.db.breaker.failures", 5),
+      Long.getLong("puppr.db.breaker.open", 5000));
   private String url = "jdbc:postgresql://localhost/puppr";
   private String username = "postgres";
   private String password = "redacted";
 
   /**
-   * A constructor connecting the class to the SEPDB database and setting the Auto Commit to false
-   * in order to ensure that no faulty data is sent to the database if anything fails in the process.
+   * A constructor loading the database driver and setting up the connection pool. The size of the pool,
+   * the acquire timeout and the number of prepared statements cached per connection can be configured with
+   * the <code>puppr.db.pool.min</code>, <code>puppr.db.pool.max</code>, <code>puppr.db.pool.timeout</code>
+   * and <code>puppr.db.statements.cache</code> system properties.
+   * Every pooled connection has Auto Commit set to false in order to ensure that no faulty data is
+   * sent to the database if anything fails in the process.
    * @throws SQLException if any SQL error occurs while setting up the database connection.
    */
   private DatabaseConnection() throws SQLException
@@ -31,23 +52,36 @@ public class DatabaseConnection
     try
     {
       Class.forName("org.postgresql.Driver");
-      this.connection = DriverManager.getConnection(url, username, password);
-      connection.setAutoCommit(false);
-      System.out.println("Database connected");
     }
     catch (ClassNotFoundException ex)
     {
       System.out.println("Database Connection Creation Failed : " + ex.getMessage());
     }
+    pool = new ConnectionPool(url, username, password,
+        Integer.getInteger("puppr.db.pool.min", 2),
+        Integer.getInteger("puppr.db.pool.max", 10),
+        Long.getLong("puppr.db.pool.timeout", 5000),
+        Integer.getInteger("puppr.db.statements.cache", 64));
+    System.out.println("Database connected: " + pool);
   }
 
   /**
-   * Getter for the connection
-   * @return a reference to the <code>java.sql.Connection</code> instance
+   * Getter for the connection pool
+   * @return a reference to the ConnectionPool instance, mainly used for reading its metrics
    */
-  public Connection getConnection()
+  public ConnectionPool getPool()
   {
-    return connection;
+    return pool;
+  }
+
+  /**
+   * Getter for the number of rows read from the database at a time by the methods streaming a whole table.
+   * It can be configured with the <code>puppr.db.fetch.size</code> system property.
+   * @return the fetch size set on the statements of streamed reads
+   */
+  public int getFetchSize()
+  {
+    return fetchSize;
   }
 
   /**
@@ -55,39 +89,230 @@ public class DatabaseConnection
    * @return the same DatabaseConnection instance every time
    * @throws SQLException if any SQL error occurs while executing the method.
    */
-  public static DatabaseConnection getInstance() throws SQLException
+  public static synchronized DatabaseConnection getInstance() throws SQLException
   {
     if (instance == null)
     {
       instance = new DatabaseConnection();
     }
-    else if (instance.getConnection().isClosed())
-    {
-      instance = new DatabaseConnection();
-    }
 
     return instance;
   }
 
+  /**
+   * A method for executing a unit of work on a connection checked out from the pool. The work is
+   * committed if it completes and rolled back otherwise. The connection is always handed back to the pool; after
+   * an Error, such as running out of memory while reading a large image, it is closed, since its state is unknown.
+   * Transient failures, such as a lost connection, a deadlock or a serialization failure, are retried a few
+   * times with a randomized growing delay, since the rolled back work can safely run again. A failure while
+   * committing is never retried, as the work may have been saved already.
+   * @param work
+   *        the work that is to be executed in the database
+   * @param <T> the type of the value produced by the work
+   * @return the value produced by the work
+   * @throws SQLException if any SQL error occurs while executing the work, after the retries
+   * @throws DatabaseUnavailableException if the circuit breaker is open
+   */
+  public <T> T execute(SqlWork<T> work) throws SQLException
+  {
+    return execute(work, true);
+  }
+
+  /**
+   * A method for executing a unit of work that cannot run twice, such as one handing the rows it reads to
+   * the caller while it runs. Getting a connection is still retried, but the work itself runs at most once.
+   * @param work
+   *        the work that is to be executed in the database
+   * @param <T> the type of the value produced by the work
+   * @return the value produced by the work
+   * @throws SQLException if any SQL error occurs while executing the work
+   * @throws DatabaseUnavailableException if the circuit breaker is open
+   */
+  public <T> T executeOnce(SqlWork<T> work) throws SQLException
+  {
+    return execute(work, false);
+  }
+
   /**
    * A method for executing an operation in the database and committing the changes. If
-   * any error occurs while executing the method the error message is printed out on the console.
-   * @param pst the statement that is to be executed in the database
+   * any error occurs while executing the method the error message is printed out on the console
+   * and the error is passed on to the caller.
+   * @param work
+   *        the statements that are to be executed in the database
+   * @param <T> the type of the value produced by the work
+   * @return the value produced by the work
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void operation(PreparedStatement pst)
+  public <T> T operation(SqlWork<T> work)
   {
     try
     {
-      pst.executeUpdate();
-      pst.close();
-      connection.commit();
+      return execute(work);
     }
     catch (Exception e)
     {
       System.err.println(e.getClass().getName() + ": " + e.getMessage());
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
+  }
 
+  /**
+   * Getter for the state of the circuit breaker
+   * @return a short summary of the breaker, for example "breaker[open=false, failures=0, opened=0]"
+   */
+  public String getBreakerState()
+  {
+    return breaker.toString();
+  }
+
+  /**
+   * A private method running a unit of work with the retries and the circuit breaker around it
+   * @param work
+   *        the work that is to be executed in the database
+   * @param retryWork
+   *        false if the work must not run again after it started
+   * @param <T> the type of the value produced by the work
+   * @return the value produced by the work
+   * @throws SQLException if any SQL error occurs while executing the work, after the retries
+   */
+  private <T> T execute(SqlWork<T> work, boolean retryWork) throws SQLException
+  {
+    for (int attempt = 1; ; attempt++)
+    {
+      breaker.allow();
+      Connection connection;
+      try
+      {
+        connection = pool.acquire();
+      }
+      catch (SQLException e)
+      {
+        if (!recordFailure(e) || attempt > maxRetries)
+          throw e;
+        pause(attempt);
+        continue;
+      }
+      boolean committing = false;
+      try
+      {
+        T result = work.run(connection);
+        committing = true;
+        connection.commit();
+        pool.release(connection);
+        breaker.success();
+        return result;
+      }
+      catch (SQLException | RuntimeException e)
+      {
+        giveBack(connection, e);
+        boolean transientFailure = recordFailure(e);
+        if (!transientFailure || committing || !retryWork || attempt > maxRetries)
+          throw e;
+      }
+      catch (Error e)
+      {
+        pool.invalidate(connection);
+        throw e;
+      }
+      pause(attempt);
+    }
+  }
+
+  /**
+   * A private method handing a connection back after its work failed. The work is rolled back first.
+   * A connection that was lost is closed, together with the idle ones, which were most likely lost
+   * as well, so the pool reconnects on the next call.
+   * @param connection
+   *        the connection the work failed on
+   * @param e
+   *        the error the work failed with
+   */
+  private void giveBack(Connection connection, Exception e)
+  {
+    if (isConnectionFailure(e))
+    {
+      pool.invalidate(connection);
+      pool.evictIdle();
+      return;
+    }
+    try
+    {
+      connection.rollback();
+      pool.release(connection);
+    }
+    catch (SQLException rollbackFailed)
+    {
+      pool.invalidate(connection);
+    }
+  }
+
+  /**
+   * A private method reporting the outcome of a failed attempt to the circuit breaker. Only transient
+   * failures count against the database; any other error means the database answered.
+   * @param e
+   *        the error the attempt failed with
+   * @return true if the failure is transient and the attempt may be retried
+   */
+  private boolean recordFailure(Exception e)
+  {
+    if (isTransient(e))
+    {
+      breaker.failure();
+      return true;
+    }
+    breaker.success();
+    return false;
+  }
+
+  /**
+   * A private method waiting before the next attempt. The delay doubles with every attempt, up to a maximum,
+   * and a random part of it is waited, so that the callers that failed together do not retry together.
+   * @param attempt
+   *        the number of the attempt that failed, starting at 1
+   */
+  private void pause(int attempt)
+  {
+    long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+    try
+    {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A private method checking if an error is worth retrying: a lost or refused connection, a database that is
+   * shutting down or out of connections, a deadlock or a serialization failure. Timing out while waiting for a
+   * pooled connection is not retried, since the pool is already busy.
+   * @param e
+   *        the error that is checked
+   * @return true if the same work may succeed when tried again
+   */
+  private static boolean isTransient(Exception e)
+  {
+    if (e instanceof SQLTimeoutException)
+      return false;
+    if (isConnectionFailure(e) || e instanceof SQLTransientException)
+      return true;
+    String state = e instanceof SQLException ? ((SQLException) e).getSQLState() : null;
+    return "40001".equals(state) || "40P01".equals(state) || "53300".equals(state);
+  }
+
+  /**
+   * A private method checking if an error means that the connection it happened on is lost
+   * @param e
+   *        the error that is checked
+   * @return true if the connection cannot be used any more
+   */
+  private static boolean isConnectionFailure(Exception e)
+  {
+    if (e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException)
+      return true;
+    String state = e instanceof SQLException ? ((SQLException) e).getSQLState() : null;
+    return state != null && (state.startsWith("08") || state.startsWith("57P"));
   }
 
 }
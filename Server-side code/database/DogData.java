@@ -1,15 +1,17 @@
 package database;
 
+import model.DataAccessException;
 import model.Dog;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * The DogData class handles the communication between the server and the Dogs table in the database.
  * The class contains a list of methods that add, remove or update dog information form the table.
- * Communication with the database is made possible using an instance of the DatabaseConnection class
- * and the java.sql.Connection class.
+ * Communication with the database is made possible using an instance of the DatabaseConnection class,
+ * which hands out a pooled java.sql.Connection for every call.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -17,9 +19,8 @@ import java.util.ArrayList;
 public class DogData
 {
   private  DatabaseConnection db;
-  private PreparedStatement pst;
-  private Connection connection;
-
+  private ImageData imageData;
+  private static final String COLUMNS = "DOG_ID,DOG_NAME,INFO,DOG_OWNER,LIKES,IMAGE_HASH";
 
   /**
    * A constructor setting up the connection
@@ -28,46 +29,60 @@ public class DogData
   public DogData() throws SQLException
   {
     db= DatabaseConnection.getInstance();
-    connection=db.getConnection();
+    imageData = new ImageData();
   }
 
   /**
-   * A method for adding a new Dog object to the table
+   * A method for adding a new Dog object to the table. The photo of the dog is stored in the Images table
+   * and only its hash is kept in the dog row.
    * @param dog
    *        the dog object that is to be added to the table
-   * @throws SQLException if any error occurs while executing the method
+   * @return the id the database gave to the new dog
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void addDog(Dog dog) throws SQLException
+  public int addDog(Dog dog)
   {
-    String sql = "INSERT INTO DOGS (DOG_NAME,IMAGE_URL,INFO,DOG_OWNER,LIKES) VALUES (?,?,?,?,?);";
-    PreparedStatement pst=connection.prepareStatement(sql);
-    pst.setString(1,dog.getName());
-    pst.setBytes(2, dog.getImageURL());
-    pst.setString(3,dog.getInfo());
-    pst.setString(4,dog.getOwnerName());
-    pst.setInt(5,dog.getLikes());
-    //db.add(pst);
-    db.operation(pst);
+    String sql = "INSERT INTO DOGS (DOG_NAME,IMAGE_HASH,INFO,DOG_OWNER,LIKES) VALUES (?,?,?,?,?) RETURNING DOG_ID;";
+    int dogId = db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1,dog.getName());
+        pst.setString(2, imageData.storeImage(connection, dog.getImageURL(), dog.getImageHash()));
+        pst.setString(3,dog.getInfo());
+        pst.setString(4,dog.getOwnerName());
+        pst.setInt(5,dog.getLikes());
+        try (ResultSet rs = pst.executeQuery())
+        {
+          rs.next();
+          return rs.getInt(1);
+        }
+      }
+    });
     System.out.println("ADDED: "+dog.getName());
+    return dogId;
   }
 
   /**
-   * A method for updating a dog's information in the table
+   * A method for updating a dog's information in the table. If the dog carries no new photo, the photo
+   * it already has is kept. The likes count is only changed by likes, never by an edit.
    * @param dog
    *        the modified dog object
-   * @throws SQLException if any error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void editDog(Dog dog) throws SQLException
+  public void editDog(Dog dog)
   {
-    String sql = "UPDATE DOGS SET DOG_NAME=?, IMAGE_URL=?,INFO=?, DOG_OWNER=?,LIKES=? WHERE DOG_ID=?";
-    PreparedStatement pst = connection.prepareStatement(sql);
-    pst.setString(1,dog.getName());
-    pst.setBytes(2, dog.getImageURL());
-    pst.setString(3,dog.getInfo());
-    pst.setString(4,dog.getOwnerName());
-    pst.setInt(5,dog.getLikes());
-    pst.setInt(6,dog.getDogId());
-    db.operation(pst);
+    String sql = "UPDATE DOGS SET DOG_NAME=?, IMAGE_HASH=?,INFO=?, DOG_OWNER=? WHERE DOG_ID=?";
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1,dog.getName());
+        pst.setString(2, imageData.storeImage(connection, dog.getImageURL(), dog.getImageHash()));
+        pst.setString(3,dog.getInfo());
+        pst.setString(4,dog.getOwnerName());
+        pst.setInt(5,dog.getDogId());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("EDITED: "+dog.getName());
   }
 
@@ -75,15 +90,18 @@ public class DogData
    * A method for removing a dog from the database
    * @param dog
    *        the Dog object that is to be removed from the database
-   * @throws SQLException if any error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void removeDog(Dog dog) throws SQLException
+  public void removeDog(Dog dog)
   {
     String sql = "DELETE FROM DOGS WHERE DOG_ID =?";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(1,dog.getDogId());
-    // db.delete(pst);
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setInt(1,dog.getDogId());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("DELETED: "+dog.getName());
   }
 
@@ -95,26 +113,39 @@ public class DogData
    * specified user.
    */
   public ArrayList<Dog> getDogsForUser(String handle){
-    ArrayList<Dog> dogs=new ArrayList<>();
-
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-
-      ResultSet rs = statement.executeQuery("SELECT * FROM DOGS WHERE DOG_OWNER='"+handle+"'ORDER BY DOG_NAME ASC");
-
-      Dog dog;
-      while (rs.next())
-      {
-        dog=new Dog(rs.getInt("DOG_ID"),rs.getString("DOG_NAME"),
-                    rs.getBytes("IMAGE_URL"),rs.getString("INFO"),rs.getString("DOG_OWNER"), rs.getInt("LIKES"));
-        dogs.add(dog);
-      }
+      return db.execute(connection -> getDogsForUser(connection, handle));
     }
     catch(Exception e){
       System.err.println( e.getClass().getName()+": "+ e.getMessage() );
-      System.exit(0);
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * Getter for the list of dogs owned by a specific user, read on a connection that is already
+   * checked out by the caller
+   * @param connection
+   *        the connection the dogs are read on
+   * @param handle
+   *        the handle of the dog owner
+   * @return an ArrayList of Dog data type containing all the dogs owned by the specified user
+   * @throws SQLException if any error occurs while executing the method
+   */
+  ArrayList<Dog> getDogsForUser(Connection connection, String handle) throws SQLException
+  {
+    ArrayList<Dog> dogs=new ArrayList<>();
+    try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM DOGS WHERE DOG_OWNER=? ORDER BY DOG_NAME ASC"))
+    {
+      pst.setString(1, handle);
+      try (ResultSet rs = pst.executeQuery())
+      {
+        while (rs.next())
+        {
+          dogs.add(readDog(rs));
+        }
+      }
     }
     return dogs;
   }
@@ -126,48 +157,42 @@ public class DogData
    */
   public ArrayList<Dog> getDogList(){
     ArrayList<Dog> dogs=new ArrayList<>();
+    forEachDog(dogs::add);
+    return dogs;
+  }
 
+  /**
+   * A method handing every dog in the Dogs table to an action, in descending order of their number of likes.
+   * The dogs are read through a database cursor, <code>puppr.db.fetch.size</code> rows at a time, so only the
+   * rows of one fetch are held in memory besides what the action keeps.
+   * @param action
+   *        the action receiving the dogs one by one
+   */
+  public void forEachDog(Consumer<Dog> action){
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-
-      ResultSet rs = statement.executeQuery("SELECT * FROM DOGS ORDER BY LIKES DESC");
-
-      Dog dog;
-      while (rs.next())
-      {
-        dog=new Dog(rs.getInt("DOG_ID"),rs.getString("DOG_NAME"),
-                    rs.getBytes("IMAGE_URL"),rs.getString("INFO"),rs.getString("DOG_OWNER"), rs.getInt("LIKES"));
-        dogs.add(dog);
-      }
+      db.executeOnce(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM DOGS ORDER BY LIKES DESC"))
+        {
+          pst.setFetchSize(db.getFetchSize());
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              action.accept(readDog(rs));
+            }
+          }
+        }
+        return null;
+      });
     }
     catch(Exception e){
       System.err.println( e.getClass().getName()+": "+ e.getMessage() );
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
-    return dogs;
   }
 
 
-  /**
-   * A method for incrementing the <code>likes</code> of a Dog object by 1 in the table
-   * @param dogId
-   *        the id of the specified Dog object
-   * @throws SQLException if any error occurs while executing the method
-   */
-  public void addLikeToDog(int dogId) throws SQLException {
-
-    Dog dog=getDogById(dogId);
-    int likes = dog.getLikes();
-    String sql = "UPDATE DOGS SET LIKES=?  WHERE DOG_ID=?";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(1, ++likes);
-    pst.setInt(2, dog.getDogId());
-    db.operation(pst);
-    System.out.println("LIKED");
-  }
-
   /**
    * Getter for a specified DOg object. If any errors occur during the execution of this method,
    * the error message is printed out on the console.
@@ -177,28 +202,41 @@ public class DogData
    */
   public Dog getDogById(int dogId) {
 
-    ArrayList<Dog> dogs=new ArrayList<>();
-    Dog dog=null;
-
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-
-      ResultSet rs = statement.executeQuery("SELECT * FROM DOGS WHERE DOG_ID="+dogId);
-
-      while (rs.next())
-      {
-        dog=new Dog(rs.getInt("DOG_ID"),rs.getString("DOG_NAME"),
-                    rs.getBytes("IMAGE_URL"),rs.getString("INFO"),rs.getString("DOG_OWNER"), rs.getInt("LIKES"));
-        dogs.add(dog);
-        dog=dogs.get(0);
-      }
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM DOGS WHERE DOG_ID=?"))
+        {
+          pst.setInt(1, dogId);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            if (rs.next())
+            {
+              return readDog(rs);
+            }
+          }
+        }
+        return null;
+      });
     }
     catch(Exception e){
       System.err.println( e.getClass().getName()+": "+ e.getMessage() );
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
+  }
+
+  /**
+   * A private method building a Dog object out of the current row of a result set
+   * @param rs
+   *        the result set positioned on a DOGS row
+   * @return the Dog object for the current row
+   * @throws SQLException if any error occurs while reading the row
+   */
+  private Dog readDog(ResultSet rs) throws SQLException
+  {
+    Dog dog = new Dog(rs.getInt("DOG_ID"),rs.getString("DOG_NAME"),
+                      null,rs.getString("INFO"),rs.getString("DOG_OWNER"), rs.getInt("LIKES"));
+    dog.setImageHash(rs.getString("IMAGE_HASH"));
     return dog;
   }
 
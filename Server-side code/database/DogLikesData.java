@@ -1,12 +1,14 @@
 package database;
 
+import model.DataAccessException;
+
 import java.sql.*;
-import java.util.ArrayList;
 
 /**
  * The DogLikesData class handle the communication between the server and the DogLikes table in the database.
  * It contains a set of method for adding, getting and removing likes from Dog object.
- * The communication is made possible using instances of the DatabaseConnection and java.sql.Connection classes.
+ * The communication is made possible using an instance of the DatabaseConnection class, which hands out a pooled
+ * java.sql.Connection for every call.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -14,8 +16,6 @@ import java.util.ArrayList;
 public class DogLikesData
 {
   private  DatabaseConnection db;
-  private PreparedStatement pst;
-  private Connection connection;
 
 
   /**
@@ -25,67 +25,73 @@ public class DogLikesData
   public DogLikesData() throws SQLException
   {
     db = DatabaseConnection.getInstance();
-    connection = db.getConnection();
   }
 
   /**
-   * A method for adding a dog like information to the table
-   * @param dogId
-   *        the id of the Dog object that was liked
+   * Getter for the ids of the dogs liked by a user. Only the rows of the user are read, using the
+   * primary key of the DogLikes table.
    * @param handle
-   *        the handle of the user who liked the dog
-   * @throws SQLException if any error occurs while executing the method
-   */
-  public void addLike(int dogId, String handle) throws SQLException {
-    String sql = "INSERT INTO DOGLIKES(HANDLE, DOG_ID) VALUES (?,?);";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(2, dogId);
-    pst.setString(1, handle);
-    db.operation(pst);
-    System.out.println("Like info added");
-  }
-
-  /**
-   * Getter for all the dog likes information from the table
-   * @return an ArrayList of String data type containing all the
-   * dogId - handle pairs for the likes
+   *        the handle of the user
+   * @param dogIds
+   *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+   * @return the ids of the liked dogs in ascending order
    */
-  public ArrayList<String> getLikes(){
-
-    ArrayList<String> likes = new ArrayList<>();
+  public int[] getLikedDogIds(String handle, int[] dogIds){
 
     try {
-      Statement statement = connection.createStatement();
-      connection.commit();
-
-      ResultSet rs = statement.executeQuery("SELECT * FROM DOGLIKES;");
-
-      String like;
-      while (rs.next()) {
-        like = rs.getInt("DOG_ID") + "/" + rs.getString("HANDLE");
-
-        likes.add(like);
-      }
+      return db.execute(connection -> LikesData.readLikedIds(connection, "DOGLIKES", "DOG_ID", handle, dogIds));
     } catch (Exception e) {
 
       System.err.println(e.getClass().getName() + ": " + e.getMessage());
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
-    return likes;
+  }
+
+  /**
+   * Getter for the likes count of a dog, as long as the user did not like the dog yet
+   * @param dogId
+   *        the id of the dog
+   * @param handle
+   *        the handle of the user about to like the dog
+   * @return the likes count saved in the database, or -1 if there is no such dog or the user already liked it
+   * @throws SQLException if any error occurs while executing the method
+   */
+  public int getLikesIfNotLiked(int dogId, String handle) throws SQLException
+  {
+    return db.execute(connection -> LikesData.readLikes(connection, "DOGLIKES", "DOGS", "DOG_ID", dogId, handle));
+  }
+
+  /**
+   * A method saving a batch of dog likes in a single transaction. Every dog gets one update adding up
+   * all of its new likes.
+   * @param handles
+   *        the handles of the users who liked the dogs
+   * @param dogIds
+   *        the ids of the liked dogs, in the same order as the handles
+   * @return the number of likes saved
+   * @throws SQLException if any error occurs while executing the method
+   */
+  public int saveLikes(String[] handles, int[] dogIds) throws SQLException
+  {
+    return db.execute(connection -> LikesData.saveLikes(connection, "DOGLIKES", "DOGS", "DOG_ID", handles, dogIds));
   }
 
   /**
    * A method for removing all the likes related to a dog object from the table
    * @param dogId
    *        the id of the dog whose likes are being removed
-   * @throws SQLException if any error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void cleanDogLikes(int dogId) throws SQLException
+  public void cleanDogLikes(int dogId)
   {
     String sql = "DELETE FROM DOGLIKES WHERE DOG_ID =?";
-    pst = connection.prepareStatement(sql);
-    pst.setInt(1,dogId);
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setInt(1,dogId);
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("DELETED: "+dogId);
   }
 }
@@ -0,0 +1,244 @@
+package database;
+
+import model.DataAccessException;
+import model.ImageRendition;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The ImageData class handles the communication between the server and the Images table in the database. Every image
+ * is stored once, under the SHA-256 hash of its bytes, and the Posts, Dogs and Users tables only keep the hash of their
+ * image. This way the same image is never stored twice and the lists sent to the clients do not carry any image bytes.
+ * The images themselves are read with the getters of this class, whole, in ranges or in batches. The smaller
+ * renditions of every image are kept in the Image_Renditions table.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ImageData
+{
+  private DatabaseConnection db;
+
+  /**
+   * A constructor setting up the communication between the class and the database table
+   * @throws SQLException if any SQL error occurs while setting up the connection
+   */
+  public ImageData() throws SQLException
+  {
+    db = DatabaseConnection.getInstance();
+  }
+
+  /**
+   * A method for storing an image on a connection that is already checked out by the caller, so that the image
+   * and the row it belongs to are saved in the same transaction. An image that is already stored is not stored again.
+   * @param connection
+   *        the connection the image is stored on
+   * @param image
+   *        the bytes of the new image, or <code>null</code> if the image did not change
+   * @param currentHash
+   *        the hash of the image the row already has, or <code>null</code> if it has none
+   * @return the hash of the new image, or <code>currentHash</code> if there is no new image
+   * @throws SQLException if any SQL error occurs while storing the image
+   */
+  String storeImage(Connection connection, byte[] image, String currentHash) throws SQLException
+  {
+    if (image == null)
+      return currentHash;
+    String hash = hash(image);
+    try (PreparedStatement pst = connection.prepareStatement(
+        "INSERT INTO IMAGES(HASH, DATA) VALUES (?,?) ON CONFLICT DO NOTHING;"))
+    {
+      pst.setString(1, hash);
+      pst.setBytes(2, image);
+      pst.executeUpdate();
+    }
+    return hash;
+  }
+
+  /**
+   * Getter for a whole image
+   * @param hash
+   *        the hash of the image
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  public byte[] getImage(String hash)
+  {
+    return getImage(hash, 0, -1);
+  }
+
+  /**
+   * Getter for a range of the bytes of an image. A range reaching past the end of the image is cut short, so
+   * a returned range shorter than requested marks the end of the image. If any error occurs while executing the
+   * method, the error message is printed out on the console.
+   * @param hash
+   *        the hash of the image
+   * @param offset
+   *        the index of the first byte of the range, starting from 0
+   * @param length
+   *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+   * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+   */
+  public byte[] getImage(String hash, int offset, int length)
+  {
+    if (hash == null)
+      return null;
+    String sql = length < 0
+        ? "SELECT SUBSTRING(DATA FROM ?) FROM IMAGES WHERE HASH=?"
+        : "SELECT SUBSTRING(DATA FROM ? FOR ?) FROM IMAGES WHERE HASH=?";
+    try
+    {
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          int index = 1;
+          pst.setInt(index++, Math.max(offset, 0) + 1);
+          if (length >= 0)
+            pst.setInt(index++, length);
+          pst.setString(index, hash);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            return rs.next() ? rs.getBytes(1) : null;
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * Getter for several whole images at once, read with a single query. If any error occurs while executing
+   * the method, the error message is printed out on the console.
+   * @param hashes
+   *        the hashes of the images
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  public HashMap<String, byte[]> getImages(ArrayList<String> hashes)
+  {
+    HashMap<String, byte[]> images = new HashMap<>();
+    if (hashes == null || hashes.isEmpty())
+      return images;
+    try
+    {
+      db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(
+            "SELECT HASH, DATA FROM IMAGES WHERE HASH = ANY(?)"))
+        {
+          pst.setArray(1, connection.createArrayOf("varchar", hashes.toArray()));
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              images.put(rs.getString("HASH"), rs.getBytes("DATA"));
+            }
+          }
+        }
+        return images;
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+    return images;
+  }
+
+  /**
+   * A method for storing a rendition of an image. A rendition that is already stored is replaced.
+   * @param hash
+   *        the hash of the original image
+   * @param rendition
+   *        the rendition that is stored
+   * @param data
+   *        the bytes of the rendition
+   * @throws SQLException if any SQL error occurs while storing the rendition
+   */
+  public void storeRendition(String hash, ImageRendition rendition, byte[] data) throws SQLException
+  {
+    db.execute(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(
+          "INSERT INTO IMAGE_RENDITIONS(HASH, RENDITION, DATA) VALUES (?,?,?) "
+              + "ON CONFLICT (HASH, RENDITION) DO UPDATE SET DATA=EXCLUDED.DATA;"))
+      {
+        pst.setString(1, hash);
+        pst.setString(2, rendition.name());
+        pst.setBytes(3, data);
+        return pst.executeUpdate();
+      }
+    });
+  }
+
+  /**
+   * Getter for several renditions of the same size at once, read with a single query. Renditions that were
+   * not created yet are left out. If any error occurs while executing the method, the error message is
+   * printed out on the console.
+   * @param hashes
+   *        the hashes of the original images
+   * @param rendition
+   *        the size of the renditions, other than <code>ORIGINAL</code>
+   * @return a HashMap with the bytes of every rendition that was found, keyed by the hash of its original image
+   */
+  public HashMap<String, byte[]> getRenditions(ArrayList<String> hashes, ImageRendition rendition)
+  {
+    HashMap<String, byte[]> renditions = new HashMap<>();
+    if (hashes == null || hashes.isEmpty())
+      return renditions;
+    try
+    {
+      db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(
+            "SELECT HASH, DATA FROM IMAGE_RENDITIONS WHERE RENDITION=? AND HASH = ANY(?)"))
+        {
+          pst.setString(1, rendition.name());
+          pst.setArray(2, connection.createArrayOf("varchar", hashes.toArray()));
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              renditions.put(rs.getString("HASH"), rs.getBytes("DATA"));
+            }
+          }
+        }
+        return renditions;
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+    return renditions;
+  }
+
+  /**
+   * A static method computing the hash an image is stored under
+   * @param image
+   *        the bytes of the image
+   * @return the SHA-256 hash of the bytes as 64 lower case hexadecimal characters
+   */
+  public static String hash(byte[] image)
+  {
+    try
+    {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(image);
+      StringBuilder hex = new StringBuilder(64);
+      for (byte b : digest)
+      {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -1,12 +1,16 @@
 package database;
 
+import model.DataAccessException;
+
 import java.sql.*;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * The LikesData class handles the communication between the server and the Likes table from the database.
  * It contains methods for adding and getting likes information from the table.
- * The communication is made possible using instances of the DatabaseConnection and java.sql.Connection classes.
+ * The communication is made possible using an instance of the DatabaseConnection class, which hands out a pooled
+ * java.sql.Connection for every call.
  *
  * @author Natali Munk-Jakobsen
  * @author Daria-Maria Popa
@@ -15,8 +19,6 @@ import java.util.ArrayList;
 
 public class LikesData {
     private  DatabaseConnection db;
-    private PreparedStatement pst;
-    private Connection connection;
 
 
     /**
@@ -25,52 +27,203 @@ public class LikesData {
      */
     public LikesData() throws SQLException {
         db = DatabaseConnection.getInstance();
-        connection = db.getConnection();
     }
 
     /**
-     * A method for adding a new like's information to the table
+     * Getter for the ids of the posts liked by a user. Only the rows of the user are read, using the
+     * primary key of the Likes table.
+     * @param handle
+     *          the handle of the user
+     * @param postIds
+     *          the ids of the posts to check, or <code>null</code> for all the posts the user liked
+     * @return the ids of the liked posts in ascending order
+     */
+    public int[] getLikedPostIds(String handle, int[] postIds) {
+        try {
+            return db.execute(connection -> readLikedIds(connection, "LIKES", "POST_ID", handle, postIds));
+        } catch (Exception e) {
+
+            System.err.println(e.getClass().getName() + ": " + e.getMessage());
+            throw DataAccessException.wrap(e);
+        }
+    }
+
+    /**
+     * Getter for the likes count of a post, as long as the user did not like the post yet. The author of the post
+     * is read with the count, so the like can be added to the author's totals without another query.
      * @param postId
-     *         the id of the post that was likes
+     *          the id of the post
      * @param handle
-     *          the handle of the user who likes the post
+     *          the handle of the user about to like the post
+     * @param author
+     *          receives the handle of the author of the post, if the count is returned
+     * @return the likes count saved in the database, or -1 if there is no such post or the user already liked it
      * @throws SQLException if any SQL related error occurs while executing the method
      */
-    public void addLike(int postId, String handle) throws SQLException {
-        String sql = "INSERT INTO LIKES(HANDLE, POST_ID) VALUES (?,?);";
-        pst = connection.prepareStatement(sql);
-        pst.setInt(2, postId);
-        pst.setString(1, handle);
-        db.operation(pst);
-        System.out.println("Like info added");
+    public int getLikesIfNotLiked(int postId, String handle, Consumer<String> author) throws SQLException {
+        return db.execute(connection -> readLikes(connection, "LIKES", "POSTS", "POST_ID", postId, handle, "HANDLE",
+                author));
     }
 
     /**
-     * Getter for all the likes in the table
-     * @return an ArrayList of String data type containing all the
-     * postId - handle pairs from the table.
+     * A method saving a batch of post likes in a single transaction. Every post gets one update adding up
+     * all of its new likes.
+     * @param handles
+     *          the handles of the users who liked the posts
+     * @param postIds
+     *          the ids of the liked posts, in the same order as the handles
+     * @return the number of likes saved
+     * @throws SQLException if any SQL related error occurs while executing the method
      */
-    public ArrayList<String> getLikes(){
-
-        ArrayList<String> likes = new ArrayList<>();
-
-        try {
-            Statement statement = connection.createStatement();
-            connection.commit();
+    public int saveLikes(String[] handles, int[] postIds) throws SQLException {
+        return db.execute(connection -> saveLikes(connection, "LIKES", "POSTS", "POST_ID", handles, postIds));
+    }
 
-            ResultSet rs = statement.executeQuery("SELECT * FROM LIKES;");
+    /**
+     * A method reading the likes count of a post, dog or comment, as long as a user did not like it yet
+     * @param connection
+     *          the connection the count is read on
+     * @param likeTable
+     *          the like table of the liked objects
+     * @param table
+     *          the table of the liked objects
+     * @param idColumn
+     *          the column holding the id of the liked object in both tables
+     * @param id
+     *          the id of the liked object
+     * @param handle
+     *          the handle of the user
+     * @return the likes count saved in the database, or -1 if there is no such object or the user already liked it
+     * @throws SQLException if any SQL related error occurs while reading the count
+     */
+    static int readLikes(Connection connection, String likeTable, String table, String idColumn, int id,
+            String handle) throws SQLException {
+        return readLikes(connection, likeTable, table, idColumn, id, handle, null, null);
+    }
 
-            String like;
-            while (rs.next()) {
-                like = rs.getInt("POST_ID") + "/" + rs.getString("HANDLE");
+    /**
+     * A method reading the likes count of a post, dog or comment, as long as a user did not like it yet, together
+     * with the handle of the user owning it
+     * @param connection
+     *          the connection the count is read on
+     * @param likeTable
+     *          the like table of the liked objects
+     * @param table
+     *          the table of the liked objects
+     * @param idColumn
+     *          the column holding the id of the liked object in both tables
+     * @param id
+     *          the id of the liked object
+     * @param handle
+     *          the handle of the user
+     * @param ownerColumn
+     *          the column holding the handle of the owner, or <code>null</code> if it is not read
+     * @param owner
+     *          receives the handle of the owner if the count is returned, or <code>null</code> if it is not read
+     * @return the likes count saved in the database, or -1 if there is no such object or the user already liked it
+     * @throws SQLException if any SQL related error occurs while reading the count
+     */
+    static int readLikes(Connection connection, String likeTable, String table, String idColumn, int id,
+            String handle, String ownerColumn, Consumer<String> owner) throws SQLException {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT T.LIKES"
+                + (ownerColumn == null ? "" : ", T." + ownerColumn) + " FROM " + table + " T WHERE T."
+                + idColumn + " = ? AND NOT EXISTS (SELECT 1 FROM " + likeTable + " L WHERE L." + idColumn + " = T."
+                + idColumn + " AND L.HANDLE = ?);")) {
+            pst.setInt(1, id);
+            pst.setString(2, handle);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next())
+                    return -1;
+                if (ownerColumn != null)
+                    owner.accept(rs.getString(2));
+                return rs.getInt(1);
+            }
+        }
+    }
 
-                likes.add(like);
+    /**
+     * A method saving a batch of likes to one of the like tables and adding them to the likes counts, in one
+     * statement. Likes that were already saved are skipped through the unique key of the like table and only the
+     * saved ones are counted, so a batch can safely be saved again. Likes of objects or users that were removed in
+     * the meantime are dropped.
+     * @param connection
+     *          the connection the likes are saved on
+     * @param likeTable
+     *          the like table the likes are saved to
+     * @param table
+     *          the table of the liked objects
+     * @param idColumn
+     *          the column holding the id of the liked object in both tables
+     * @param handles
+     *          the handles of the users who liked the objects
+     * @param ids
+     *          the ids of the liked objects, in the same order as the handles
+     * @return the number of likes saved
+     * @throws SQLException if any SQL related error occurs while saving the likes
+     */
+    static int saveLikes(Connection connection, String likeTable, String table, String idColumn, String[] handles,
+            int[] ids) throws SQLException {
+        String sql = "WITH SAVED AS (INSERT INTO " + likeTable + "(HANDLE, " + idColumn + ") "
+                + "SELECT B.HANDLE, B.ID FROM UNNEST(?, ?) AS B(HANDLE, ID) "
+                + "JOIN " + table + " T ON T." + idColumn + " = B.ID JOIN USERS U ON U.HANDLE = B.HANDLE "
+                + "ON CONFLICT DO NOTHING RETURNING " + idColumn + ") "
+                + "UPDATE " + table + " T SET LIKES = T.LIKES + S.N FROM (SELECT " + idColumn + " AS ID, COUNT(*) AS N "
+                + "FROM SAVED GROUP BY " + idColumn + ") S WHERE T." + idColumn + " = S.ID RETURNING S.N;";
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            boxed[i] = ids[i];
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setArray(1, connection.createArrayOf("varchar", handles));
+            pst.setArray(2, connection.createArrayOf("integer", boxed));
+            int saved = 0;
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next())
+                    saved += rs.getInt(1);
             }
-        } catch (Exception e) {
+            return saved;
+        }
+    }
 
-            System.err.println(e.getClass().getName() + ": " + e.getMessage());
-            System.exit(0);
+    /**
+     * A method reading the ids a user liked from one of the like tables. The ids are returned as a sorted
+     * primitive array, so that sending them to a client costs four bytes per like.
+     * @param connection
+     *          the connection the ids are read on
+     * @param table
+     *          the like table that is read
+     * @param idColumn
+     *          the column holding the id of the liked object
+     * @param handle
+     *          the handle of the user
+     * @param ids
+     *          the ids to check, or <code>null</code> for all the ids the user liked
+     * @return the liked ids in ascending order
+     * @throws SQLException if any SQL related error occurs while reading the ids
+     */
+    static int[] readLikedIds(Connection connection, String table, String idColumn, String handle,
+            int[] ids) throws SQLException {
+        if (ids != null && ids.length == 0)
+            return new int[0];
+        String sql = "SELECT " + idColumn + " FROM " + table + " WHERE HANDLE = ?"
+                + (ids == null ? "" : " AND " + idColumn + " = ANY(?)") + " ORDER BY " + idColumn + ";";
+        try (PreparedStatement pst = connection.prepareStatement(sql)) {
+            pst.setString(1, handle);
+            if (ids != null) {
+                Integer[] boxed = new Integer[ids.length];
+                for (int i = 0; i < ids.length; i++)
+                    boxed[i] = ids[i];
+                pst.setArray(2, connection.createArrayOf("integer", boxed));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                int[] liked = new int[ids == null ? 16 : ids.length];
+                int count = 0;
+                while (rs.next()) {
+                    if (count == liked.length)
+                        liked = Arrays.copyOf(liked, count * 2);
+                    liked[count++] = rs.getInt(1);
+                }
+                return Arrays.copyOf(liked, count);
+            }
         }
-        return likes;
     }
 }
@@ -1,7 +1,11 @@
 package database;
 
 
+import model.Comment;
+import model.DataAccessException;
 import model.Post;
+import model.PostCursor;
+import model.PostPage;
 
 import java.sql.*;
 import java.time.Instant;
@@ -9,13 +13,15 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 
 /**
  * The PostData handles the communication between the server and the Posts table in the database. It
  * contains a set of methods for adding, getting, updating and removing post information from the table.
- * This communication is achieved with the help of the two DatabaseConnection and
- * <code>java.sql.Connection</code> class instances.
+ * This communication is achieved with the help of the DatabaseConnection class, which hands out a
+ * pooled <code>java.sql.Connection</code> for every call.
  *
  * @author Natali Munk-Jakobsen
  * @author Daria-Maria Popa
@@ -24,10 +30,11 @@ import java.util.TimeZone;
 public class PostData {
 
     private  DatabaseConnection db;
-    private PreparedStatement pst;
-    private Connection connection;
     private CommentData commentData;
+    private ImageData imageData;
     private static final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final String COLUMNS = "POST_ID,HANDLE,LIKES,TIME_POSTED,TEXT,IMAGE_HASH";
 
     /**
      * A constructor setting up the communication between the class and the database table
@@ -35,48 +42,59 @@ public class PostData {
      */
     public PostData() throws SQLException {
         db = DatabaseConnection.getInstance();
-        connection = db.getConnection();
         commentData = new CommentData();
+        imageData = new ImageData();
     }
 
     /**
-     * A method for adding a new post row in the table
+     * A method for adding a new post row in the table. The image of the post is stored in the Images table
+     * and only its hash is kept in the post row.
      * @param post
      *        the new Post object that was added
-     * @throws SQLException if any SQL related error occurs while executing the method
+     * @return the id the database gave to the new post
+     * @throws DataAccessException if the operation failed, after the retries
      */
-    public void addPost(Post post) throws SQLException {
-        String sql = "INSERT INTO POSTS(IMAGE_URL,HANDLE,LIKES,TIME_POSTED,TEXT) VALUES (?,?,?,?,?);";
-        pst = connection.prepareStatement(sql);
-        pst.setBytes(1, post.getImageURL());
-        pst.setString(2, post.getHandle());
-        pst.setInt(3, post.getLikes());
-        Timestamp ts = new Timestamp(post.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
-        pst.setTimestamp(4, ts, utc);
-        pst.setString(5, post.getText());
-        db.operation(pst);
+    public int addPost(Post post) {
+        String sql = "INSERT INTO POSTS(IMAGE_HASH,HANDLE,LIKES,TIME_POSTED,TEXT) VALUES (?,?,?,?,?) RETURNING POST_ID;";
+        int postId = db.operation(connection -> {
+            try (PreparedStatement pst = connection.prepareStatement(sql)) {
+                pst.setString(1, imageData.storeImage(connection, post.getImageURL(), post.getImageHash()));
+                pst.setString(2, post.getHandle());
+                pst.setInt(3, post.getLikes());
+                Timestamp ts = new Timestamp(post.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
+                pst.setTimestamp(4, ts, utc);
+                pst.setString(5, post.getText());
+                try (ResultSet rs = pst.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        });
         System.out.println("ADDED: " + post.getTimePosted() + " @" + post.getHandle());
+        return postId;
     }
 
     /**
-     * A method for updating the information for an already existing post
+     * A method for updating the information for an already existing post. If the post carries no new image,
+     * the image it already has is kept. The likes count is only changed by likes, never by an edit.
      * @param post
      *        the modified Post object
-     * @throws SQLException if any SQL related error occurs while executing the method
+     * @throws DataAccessException if the operation failed, after the retries
      */
-    public void editPost(Post post) throws SQLException {
-
-        String sql = "UPDATE POSTS SET IMAGE_URL=?,HANDLE=?,LIKES=?,TIME_POSTED=?,TEXT=?  WHERE POST_ID=?";
-        pst = connection.prepareStatement(sql);
-        pst.setBytes(1, post.getImageURL());
-        pst.setString(2, post.getHandle());
-        pst.setInt(3, post.getLikes());
-        Timestamp ts = new Timestamp(post.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
-        pst.setTimestamp(4, ts, utc);
-        pst.setString(5, post.getText());
-        pst.setInt(6, post.getPostId());
-
-        db.operation(pst);
+    public void editPost(Post post) {
+
+        String sql = "UPDATE POSTS SET IMAGE_HASH=?,HANDLE=?,TIME_POSTED=?,TEXT=?  WHERE POST_ID=?";
+        db.operation(connection -> {
+            try (PreparedStatement pst = connection.prepareStatement(sql)) {
+                pst.setString(1, imageData.storeImage(connection, post.getImageURL(), post.getImageHash()));
+                pst.setString(2, post.getHandle());
+                Timestamp ts = new Timestamp(post.getTimePosted().toInstant(ZoneOffset.UTC).toEpochMilli());
+                pst.setTimestamp(3, ts, utc);
+                pst.setString(4, post.getText());
+                pst.setInt(5, post.getPostId());
+                return pst.executeUpdate();
+            }
+        });
         System.out.println("EDITED: " + post.getTimePosted() + " @" + post.getHandle());
     }
 
@@ -84,14 +102,16 @@ public class PostData {
      * A method for removing a post row from the table
      * @param post
      *        the post that is to be removed
-     * @throws SQLException if any SQL related error occurs while executing the method
+     * @throws DataAccessException if the operation failed, after the retries
      */
-    public void removePost(Post post) throws SQLException {
+    public void removePost(Post post) {
         String sql = "DELETE FROM POSTS WHERE POST_ID=?";
-        pst = connection.prepareStatement(sql);
-        pst.setInt(1, post.getPostId());
-        // db.delete(pst);
-        db.operation(pst);
+        db.operation(connection -> {
+            try (PreparedStatement pst = connection.prepareStatement(sql)) {
+                pst.setInt(1, post.getPostId());
+                return pst.executeUpdate();
+            }
+        });
         System.out.println("DELETED: " + post.getTimePosted() + " @" + post.getHandle());
     }
 
@@ -104,34 +124,57 @@ public class PostData {
     public ArrayList<Post> getPostList() {
 
         ArrayList<Post> posts = new ArrayList<>();
+        forEachPost(posts::add);
+        return posts;
+    }
 
-        try {
-            Statement statement = connection.createStatement();
-            connection.commit();
-
-            ResultSet rs = statement.executeQuery("SELECT * FROM POSTS ORDER BY TIME_POSTED ;");
-
-            Post post;
-            while (rs.next()) {
-                Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-
-                LocalDateTime localDt = null;
-                if (ts != null)
-                    localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-
-                post = new Post(rs.getInt("POST_ID"), rs.getBytes("IMAGE_URL"),
-                                rs.getString("HANDLE"), rs.getInt("LIKES"), localDt,
-                                rs.getString("TEXT"), commentData.getCommentForPost(rs.getInt("POST_ID")));
-
+    /**
+     * A method handing every post in the table to an action, oldest first, each with its comment count and
+     * comment preview. The posts are read through a database cursor, <code>puppr.db.fetch.size</code> rows at a
+     * time, and the comment previews are read once per fetch, so only one fetch of posts is held in memory
+     * besides what the action keeps. If any error occurs while executing the method, the error message is
+     * printed out in the console.
+     * @param action
+     *        the action receiving the posts one by one
+     */
+    public void forEachPost(Consumer<Post> action) {
 
-                posts.add(post);
-            }
+        int fetchSize = db.getFetchSize();
+        try {
+            db.executeOnce(connection -> {
+                try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM POSTS ORDER BY TIME_POSTED ;")) {
+                    pst.setFetchSize(fetchSize);
+                    try (ResultSet rs = pst.executeQuery()) {
+                        ArrayList<Post> fetched;
+                        do {
+                            fetched = readPosts(connection, rs, fetchSize);
+                            fetched.forEach(action);
+                        } while (fetched.size() == fetchSize);
+                    }
+                }
+                return null;
+            });
         } catch (Exception e) {
 
             System.err.println(e.getClass().getName() + ": " + e.getMessage());
-            System.exit(0);
+            throw DataAccessException.wrap(e);
+        }
+    }
+
+    /**
+     * Getter for all the post information from the table, read on a connection that is already
+     * checked out by the caller. The posts are loaded with their comment counts and a preview of their most
+     * recent comments, not their whole comment threads, with two queries in total, however many posts there are.
+     * @param connection
+     *        the connection the posts are read on
+     * @return an ArrayList of Post data type containing all the post objects from the database
+     * @throws SQLException if any SQL related error occurs while executing the method
+     */
+    ArrayList<Post> getPostList(Connection connection) throws SQLException {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM POSTS ORDER BY TIME_POSTED ;");
+             ResultSet rs = pst.executeQuery()) {
+            return readPosts(connection, rs);
         }
-        return posts;
     }
 
     /**
@@ -143,32 +186,20 @@ public class PostData {
      */
     public ArrayList<Post> getPostsForUser(String handle) {
 
-        ArrayList<Post> posts = new ArrayList<>();
-
         try {
-            Statement statement = connection.createStatement();
-            connection.commit();
-
-            ResultSet rs = statement.executeQuery("SELECT * FROM POSTS WHERE HANDLE='" + handle + "'  ORDER BY TIME_POSTED ;");
-
-            Post post;
-            while (rs.next()) {
-                Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-                LocalDateTime localDt = null;
-                if (ts != null)
-                    localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-                post = new Post(rs.getInt("POST_ID"), rs.getBytes("IMAGE_URL"),
-                                rs.getString("HANDLE"), rs.getInt("LIKES"), localDt,
-                                rs.getString("TEXT"), commentData.getCommentForPost(rs.getInt("POST_ID")));
-
-                posts.add(post);
-            }
+            return db.execute(connection -> {
+                try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM POSTS WHERE HANDLE=? ORDER BY TIME_POSTED ;")) {
+                    pst.setString(1, handle);
+                    try (ResultSet rs = pst.executeQuery()) {
+                        return readPosts(connection, rs);
+                    }
+                }
+            });
         } catch (Exception e) {
 
             System.err.println(e.getClass().getName() + ": " + e.getMessage());
-            System.exit(0);
+            throw DataAccessException.wrap(e);
         }
-        return posts;
 
     }
 
@@ -181,54 +212,209 @@ public class PostData {
      */
     public Post getPostById(int postId) {
 
-        ArrayList<Post> posts = new ArrayList<>();
-        Post post=null;
         try {
-            Statement statement = connection.createStatement();
-            connection.commit();
+            return db.execute(connection -> {
+                try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM POSTS WHERE POST_ID=?")) {
+                    pst.setInt(1, postId);
+                    try (ResultSet rs = pst.executeQuery()) {
+                        ArrayList<Post> posts = readPosts(connection, rs);
+                        return posts.isEmpty() ? null : posts.get(0);
+                    }
+                }
+            });
+        } catch (Exception e) {
 
-            ResultSet rs = statement.executeQuery("SELECT * FROM POSTS WHERE POST_ID=" + postId);
+            System.err.println(e.getClass().getName() + ": " + e.getMessage());
+            throw DataAccessException.wrap(e);
+        }
 
+    }
 
-            while (rs.next()) {
-                Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
-                LocalDateTime localDt = null;
-                if (ts != null)
-                    localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
-                post = new Post(rs.getInt("POST_ID"), rs.getBytes("IMAGE_URL"),
-                                rs.getString("HANDLE"), rs.getInt("LIKES"), localDt,
-                                rs.getString("TEXT"), commentData.getCommentForPost(rs.getInt("POST_ID")));
+    /**
+     * Getter for one page of the post feed, newest first. The page starts right after the post marked by
+     * the cursor, so the cost of a page does not depend on how many posts come before it. If any error
+     * occurs while executing the method, the error message is printed out in the console.
+     * @param cursor
+     *        the cursor returned with the previous page, or <code>null</code> for the first page
+     * @param limit
+     *        the maximum number of posts on the page, capped at 50
+     * @return a PostPage object containing the posts of the page and the cursor of the next page
+     */
+    public PostPage getFeedPage(PostCursor cursor, int limit) {
 
-                posts.add(post);
-                post=posts.get(0);
-            }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        try {
+            return db.execute(connection -> toPage(readPage(connection, null, cursor, pageSize), pageSize, -1));
         } catch (Exception e) {
 
             System.err.println(e.getClass().getName() + ": " + e.getMessage());
-            System.exit(0);
+            throw DataAccessException.wrap(e);
         }
-        return post;
+    }
+
+    /**
+     * Getter for one page of the posts made by a specific user, newest first. The page starts right after
+     * the post marked by the cursor and is read through the (HANDLE, TIME_POSTED) index, so the cost of a page
+     * does not depend on how many posts the user made. The total number of posts made by the user is
+     * counted in the database and only sent with the first page. If any error occurs while executing the
+     * method, the error message is printed out in the console.
+     * @param handle
+     *        the handle of the user who made the posts
+     * @param cursor
+     *        the cursor returned with the previous page, or <code>null</code> for the first page
+     * @param limit
+     *        the maximum number of posts on the page, capped at 50
+     * @return a PostPage object containing the posts of the page, the cursor of the next page and, for the
+     * first page, the total number of posts made by the user
+     */
+    public PostPage getPostsForUser(String handle, PostCursor cursor, int limit) {
 
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        try {
+            return db.execute(connection -> {
+                int totalCount = -1;
+                if (cursor == null) {
+                    try (PreparedStatement pst = connection.prepareStatement("SELECT COUNT(*) FROM POSTS WHERE HANDLE=?")) {
+                        pst.setString(1, handle);
+                        try (ResultSet rs = pst.executeQuery()) {
+                            rs.next();
+                            totalCount = rs.getInt(1);
+                        }
+                    }
+                }
+                return toPage(readPage(connection, handle, cursor, pageSize), pageSize, totalCount);
+            });
+        } catch (Exception e) {
+
+            System.err.println(e.getClass().getName() + ": " + e.getMessage());
+            throw DataAccessException.wrap(e);
+        }
     }
 
     /**
-     * A method for incrementing the likes count of a Post object in the table by 1
-     * @param postId
-     *         the id of the post whose likes count is being incremented
+     * A private method reading the posts of a page, newest first. One post more than the page size is read,
+     * so that the existence of a next page is known without another query.
+     * @param connection
+     *        the connection the posts are read on
+     * @param handle
+     *        the handle of the user whose posts are read, or <code>null</code> for the posts of all users
+     * @param cursor
+     *        the cursor marking the last post of the previous page, or <code>null</code> for the first page
+     * @param pageSize
+     *        the number of posts on the page
+     * @return an ArrayList of Post data type containing at most <code>pageSize + 1</code> posts
      * @throws SQLException if any SQL related error occurs while executing the method
      */
-    public void addLikeToPost(int postId) throws SQLException {
+    private ArrayList<Post> readPage(Connection connection, String handle, PostCursor cursor, int pageSize)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM POSTS");
+        if (handle != null || cursor != null)
+            sql.append(" WHERE ");
+        if (handle != null)
+            sql.append("HANDLE=?");
+        if (handle != null && cursor != null)
+            sql.append(" AND ");
+        if (cursor != null)
+            sql.append("(TIME_POSTED, POST_ID) < (?, ?)");
+        sql.append(" ORDER BY TIME_POSTED DESC, POST_ID DESC LIMIT ?");
+
+        try (PreparedStatement pst = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (handle != null)
+                pst.setString(index++, handle);
+            if (cursor != null) {
+                pst.setTimestamp(index++, Timestamp.from(cursor.getTimePosted().toInstant(ZoneOffset.UTC)), utc);
+                pst.setInt(index++, cursor.getPostId());
+            }
+            pst.setInt(index, pageSize + 1);
+            try (ResultSet rs = pst.executeQuery()) {
+                return readPosts(connection, rs);
+            }
+        }
+    }
 
-        Post post = getPostById(postId);
+    /**
+     * A private method turning the posts read for a page into a PostPage, dropping the extra post
+     * read by <code>readPage</code>.
+     * @param posts
+     *        the posts read for the page, newest first
+     * @param pageSize
+     *        the number of posts on the page
+     * @param totalCount
+     *        the total number of posts the pages are taken from, or -1 if it was not counted
+     * @return a PostPage object with at most <code>pageSize</code> posts
+     */
+    private PostPage toPage(ArrayList<Post> posts, int pageSize, int totalCount) {
+        PostCursor next = null;
+        if (posts.size() > pageSize) {
+            posts.remove(pageSize);
+            Post last = posts.get(pageSize - 1);
+            next = new PostCursor(last.getTimePosted(), last.getPostId());
+        }
+        return new PostPage(posts, next, totalCount);
+    }
+
+    /**
+     * A private method building the Post objects for all the rows of a result set. The number of comments
+     * and a preview of the most recent comments of all the posts are read afterwards with a single query on
+     * the same connection and grouped by post, instead of running one query per post.
+     * @param connection
+     *        the connection the result set was read from
+     * @param rs
+     *        the result set containing POSTS rows
+     * @return an ArrayList of Post data type containing a post for every row, in the same order
+     * @throws SQLException if any SQL related error occurs while reading the rows
+     */
+    private ArrayList<Post> readPosts(Connection connection, ResultSet rs) throws SQLException {
+        return readPosts(connection, rs, Integer.MAX_VALUE);
+    }
 
-        int likes = post.getLikes();
+    /**
+     * A private method building the Post objects for at most a given number of the next rows of a result set,
+     * together with their comment counts and previews
+     * @param connection
+     *        the connection the result set was read from
+     * @param rs
+     *        the result set containing POSTS rows
+     * @param limit
+     *        the maximum number of rows read
+     * @return an ArrayList of Post data type containing a post for every row read, in the same order
+     * @throws SQLException if any SQL related error occurs while reading the rows
+     */
+    private ArrayList<Post> readPosts(Connection connection, ResultSet rs, int limit) throws SQLException {
+        ArrayList<Post> posts = new ArrayList<>();
+        HashMap<Integer, ArrayList<Comment>> commentsByPost = new HashMap<>();
+        while (posts.size() < limit && rs.next()) {
+            ArrayList<Comment> comments = new ArrayList<>();
+            Post post = readPost(rs, comments);
+            commentsByPost.put(post.getPostId(), comments);
+            posts.add(post);
+        }
+        HashMap<Integer, Integer> commentCounts = commentData.fillCommentPreviews(connection, commentsByPost);
+        for (Post post : posts)
+            post.setCommentCount(commentCounts.getOrDefault(post.getPostId(), 0));
+        return posts;
+    }
 
-        String sql = "UPDATE POSTS SET LIKES=?  WHERE POST_ID=?";
-        pst = connection.prepareStatement(sql);
-        pst.setInt(1, ++likes);
-        pst.setInt(2, post.getPostId());
-        db.operation(pst);
-        System.out.println("LIKED");
+    /**
+     * A private method building a Post object out of the current row of a result set
+     * @param rs
+     *        the result set positioned on a POSTS row
+     * @param comments
+     *        the list the comments of the post will be added to
+     * @return the Post object for the current row
+     * @throws SQLException if any SQL related error occurs while reading the row
+     */
+    private Post readPost(ResultSet rs, ArrayList<Comment> comments) throws SQLException {
+        Timestamp ts = rs.getTimestamp("TIME_POSTED", utc);
+        LocalDateTime localDt = null;
+        if (ts != null)
+            localDt = LocalDateTime.ofInstant(Instant.ofEpochMilli(ts.getTime()), ZoneOffset.UTC);
+        Post post = new Post(rs.getInt("POST_ID"), null,
+                             rs.getString("HANDLE"), rs.getInt("LIKES"), localDt,
+                             rs.getString("TEXT"), comments);
+        post.setImageHash(rs.getString("IMAGE_HASH"));
+        return post;
     }
 
 
@@ -0,0 +1,118 @@
+package database;
+
+import model.Comment;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PostLoadBenchmark class compares the old way of loading the post feed, reading the whole comment thread
+ * of every post with one query per post, with the loading done by PostData now, which reads only the number of
+ * comments and a preview of the most recent ones for all the posts with a single query. The two do not read the
+ * same data, so the results show the cost of the old feed against the cost of the preview feed, not two ways of
+ * doing the same work. Both ways run against the configured database and the number of statements sent to the
+ * database and the time taken are printed out on the console.
+ * Usage: <code>java database.PostLoadBenchmark [iterations]</code>
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PostLoadBenchmark
+{
+  public static void main(String[] args) throws SQLException
+  {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    new SchemaMigrations().migrate();
+    DatabaseConnection db = DatabaseConnection.getInstance();
+    PostData postData = new PostData();
+    CommentData commentData = new CommentData();
+
+    // warm up both paths once so that driver class loading is not measured
+    db.execute(connection -> loadPerPost(connection, commentData));
+    db.execute(postData::getPostList);
+
+    AtomicInteger perPostStatements = new AtomicInteger();
+    AtomicInteger groupedStatements = new AtomicInteger();
+    long perPostNanos = 0;
+    long groupedNanos = 0;
+    int posts = 0;
+
+    for (int i = 0; i < iterations; i++)
+    {
+      long start = System.nanoTime();
+      posts = db.execute(connection -> loadPerPost(counting(connection, perPostStatements), commentData).size());
+      perPostNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      db.execute(connection -> postData.getPostList(counting(connection, groupedStatements)));
+      groupedNanos += System.nanoTime() - start;
+    }
+
+    System.out.println("Posts loaded: " + posts + ", iterations: " + iterations);
+    System.out.printf("full threads, one query per post: %d statements/load, %.2f ms/load%n",
+        perPostStatements.get() / iterations, perPostNanos / (iterations * 1_000_000.0));
+    System.out.printf("previews, grouped               : %d statements/load, %.2f ms/load%n",
+        groupedStatements.get() / iterations, groupedNanos / (iterations * 1_000_000.0));
+    db.getPool().close();
+  }
+
+  /**
+   * A private method loading the feed the way PostData used to, reading the whole comment thread of every post
+   * with one query per post
+   * @param connection
+   *        the connection the posts are read on
+   * @param commentData
+   *        the CommentData instance used to read the comments
+   * @return an ArrayList containing the comment list of every post
+   * @throws SQLException if any SQL error occurs while reading the posts
+   */
+  private static ArrayList<ArrayList<Comment>> loadPerPost(Connection connection,
+      CommentData commentData) throws SQLException
+  {
+    ArrayList<ArrayList<Comment>> comments = new ArrayList<>();
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SELECT POST_ID FROM POSTS ORDER BY TIME_POSTED ;"))
+    {
+      while (rs.next())
+      {
+        comments.add(commentData.getCommentForPost(connection, rs.getInt("POST_ID")));
+      }
+    }
+    return comments;
+  }
+
+  /**
+   * A private method wrapping a connection so that every statement created on it is counted.
+   * Every statement used by the DAO classes is executed exactly once, so the count equals the
+   * number of round trips to the database.
+   * @param connection
+   *        the connection that is wrapped
+   * @param statements
+   *        the counter incremented for every statement
+   * @return a connection forwarding all the calls to the wrapped one
+   */
+  private static Connection counting(Connection connection, AtomicInteger statements)
+  {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, method, methodArgs) -> {
+          if (method.getName().equals("createStatement") || method.getName().equals("prepareStatement"))
+          {
+            statements.incrementAndGet();
+          }
+          try
+          {
+            return method.invoke(connection, methodArgs);
+          }
+          catch (InvocationTargetException e)
+          {
+            throw e.getCause();
+          }
+        });
+  }
+}
@@ -0,0 +1,135 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The QueryTimings class records, for every SQL statement run through the connection pool, how many times it was
+ * executed, how long the executions took and how many times its prepared statement was reused from the statement
+ * cache instead of being parsed again. The timings are kept for the whole server run and are shared by all the
+ * pooled connections, so they can be read from any thread while the statements are running.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class QueryTimings
+{
+  private final ConcurrentHashMap<String, Timing> timings;
+
+  /**
+   * A constructor creating an empty set of timings
+   */
+  public QueryTimings()
+  {
+    timings = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * A method recording that a statement was prepared, either for the first time or again after its
+   * prepared statement was evicted from the cache
+   * @param sql
+   *        the SQL text of the statement
+   */
+  void prepared(String sql)
+  {
+    timing(sql).prepares.increment();
+  }
+
+  /**
+   * A method recording that the prepared statement of a statement was taken from the cache
+   * @param sql
+   *        the SQL text of the statement
+   */
+  void reused(String sql)
+  {
+    timing(sql).reuses.increment();
+  }
+
+  /**
+   * A method recording one execution of a statement
+   * @param sql
+   *        the SQL text of the statement
+   * @param nanos
+   *        the time the execution took, in nanoseconds
+   */
+  void executed(String sql, long nanos)
+  {
+    Timing timing = timing(sql);
+    timing.executions.increment();
+    timing.totalNanos.add(nanos);
+    timing.maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * A method returning the timings of the statements that took the most time in total, one line per statement.
+   * Example: "  120 x   0.41ms avg   3.10ms max  prepared 2, reused 118  SELECT ... FROM POSTS WHERE POST_ID=?"
+   * @param limit
+   *        the maximum number of statements listed
+   * @return the lines of the report, separated by line breaks
+   */
+  public String report(int limit)
+  {
+    ArrayList<Map.Entry<String, Timing>> entries = new ArrayList<>(timings.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<String, Timing> entry) -> entry.getValue().totalNanos.sum())
+        .reversed());
+    StringBuilder report = new StringBuilder();
+    for (int i = 0; i < Math.min(limit, entries.size()); i++)
+    {
+      Timing timing = entries.get(i).getValue();
+      long executions = timing.executions.sum();
+      report.append(String.format("%5d x %7.2fms avg %7.2fms max  prepared %d, reused %d  %s%n", executions,
+          executions == 0 ? 0 : timing.totalNanos.sum() / (executions * 1_000_000.0),
+          timing.maxNanos.get() / 1_000_000.0, timing.prepares.sum(), timing.reuses.sum(), entries.get(i).getKey()));
+    }
+    return report.toString();
+  }
+
+  /**
+   * A method returning a short summary of all the statements run so far.
+   * Example: "queries[statements=24, executions=5120, prepared=60, reused=5060, total=812.40ms]"
+   * @return a String representation of the timings
+   */
+  @Override public String toString()
+  {
+    long executions = 0;
+    long prepares = 0;
+    long reuses = 0;
+    long totalNanos = 0;
+    for (Timing timing : timings.values())
+    {
+      executions += timing.executions.sum();
+      prepares += timing.prepares.sum();
+      reuses += timing.reuses.sum();
+      totalNanos += timing.totalNanos.sum();
+    }
+    return String.format("queries[statements=%d, executions=%d, prepared=%d, reused=%d, total=%.2fms]",
+        timings.size(), executions, prepares, reuses, totalNanos / 1_000_000.0);
+  }
+
+  /**
+   * A private method looking up the timing of a statement, creating it if the statement was not run before
+   * @param sql
+   *        the SQL text of the statement
+   * @return the timing of the statement
+   */
+  private Timing timing(String sql)
+  {
+    return timings.computeIfAbsent(sql, key -> new Timing());
+  }
+
+  /**
+   * The counters kept for one statement
+   */
+  private static class Timing
+  {
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder prepares = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+  }
+}
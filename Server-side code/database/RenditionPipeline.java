@@ -0,0 +1,266 @@
+package database;
+
+import model.ImageRendition;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RenditionPipeline class creates the smaller renditions of the uploaded images and serves every image in
+ * the size it is asked for. The renditions are created on a small pool of worker threads with a bounded queue,
+ * so the RMI thread handling an upload only hands the image over and returns. If a rendition is asked for before
+ * it exists, the original image is served instead and the rendition is queued, so images uploaded before the
+ * pipeline existed get their renditions the first time they are shown. Images in a format that cannot be read are
+ * remembered and always served in their original size, without being queued again.
+ * The number of workers and the length of their queue can be configured with the
+ * <code>puppr.images.workers</code> and <code>puppr.images.queue</code> system properties.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class RenditionPipeline
+{
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final ImageData imageData;
+  private final ThreadPoolExecutor workers;
+  private final Set<String> pending;
+  private final Set<String> unsupported;
+  private final AtomicLong createdCount;
+  private final AtomicLong rejectedCount;
+  private final AtomicLong fallbackCount;
+
+  /**
+   * A constructor setting up the worker threads
+   * @param imageData
+   *        the ImageData instance the images and renditions are read and stored with
+   */
+  public RenditionPipeline(ImageData imageData)
+  {
+    this.imageData = imageData;
+    int workerCount = Integer.getInteger("puppr.images.workers", 2);
+    this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Integer.getInteger("puppr.images.queue", 100)), runnable -> {
+      Thread thread = new Thread(runnable, "puppr-renditions-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      return thread;
+    });
+    this.pending = ConcurrentHashMap.newKeySet();
+    this.unsupported = ConcurrentHashMap.newKeySet();
+    this.createdCount = new AtomicLong();
+    this.rejectedCount = new AtomicLong();
+    this.fallbackCount = new AtomicLong();
+  }
+
+  /**
+   * A method queueing the creation of the renditions of a newly uploaded image. The method returns right away.
+   * If the queue is full the image is skipped and its renditions are created the first time they are asked for.
+   * @param original
+   *        the bytes of the uploaded image, or <code>null</code> if no image was uploaded
+   */
+  public void submit(byte[] original)
+  {
+    if (original != null)
+      queue(ImageData.hash(original), original);
+  }
+
+  /**
+   * Getter for an image in the given size. If the rendition was not created yet, the original image is returned
+   * and the rendition is queued.
+   * @param hash
+   *        the hash of the original image
+   * @param rendition
+   *        the size the image is asked for in
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  public byte[] getImage(String hash, ImageRendition rendition)
+  {
+    ArrayList<String> hashes = new ArrayList<>();
+    hashes.add(hash);
+    return getImages(hashes, rendition).get(hash);
+  }
+
+  /**
+   * Getter for several images in the given size at once. Images whose rendition was not created yet are returned
+   * in their original size and their renditions are queued.
+   * @param hashes
+   *        the hashes of the original images
+   * @param rendition
+   *        the size the images are asked for in
+   * @return a HashMap with the bytes of every image that was found, keyed by the hash of its original image
+   */
+  public HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition)
+  {
+    if (rendition == ImageRendition.ORIGINAL)
+      return imageData.getImages(hashes);
+
+    HashMap<String, byte[]> images = imageData.getRenditions(hashes, rendition);
+    ArrayList<String> missing = new ArrayList<>();
+    for (String hash : hashes)
+    {
+      if (hash != null && !images.containsKey(hash))
+        missing.add(hash);
+    }
+    if (!missing.isEmpty())
+    {
+      HashMap<String, byte[]> originals = imageData.getImages(missing);
+      fallbackCount.addAndGet(originals.size());
+      for (String hash : originals.keySet())
+      {
+        queue(hash, originals.get(hash));
+      }
+      images.putAll(originals);
+    }
+    return images;
+  }
+
+  /**
+   * A method stopping the worker threads. The renditions still waiting in the queue are dropped.
+   */
+  public void shutdown()
+  {
+    workers.shutdownNow();
+  }
+
+  /**
+   * A method returning a short summary of the work done by the pipeline.
+   * Example: "renditions[created=42, queued=0, rejected=0, servedOriginal=3, unsupported=1]"
+   * @return a String representation of the pipeline state
+   */
+  @Override public String toString()
+  {
+    return "renditions[created=" + createdCount.get() + ", queued=" + workers.getQueue().size()
+        + ", rejected=" + rejectedCount.get() + ", servedOriginal=" + fallbackCount.get() + ", unsupported="
+        + unsupported.size() + "]";
+  }
+
+  /**
+   * A private method queueing the creation of all the renditions of an image, unless they are already queued
+   * or the image is in a format that cannot be read
+   * @param hash
+   *        the hash of the original image
+   * @param original
+   *        the bytes of the original image
+   */
+  private void queue(String hash, byte[] original)
+  {
+    if (unsupported.contains(hash) || !pending.add(hash))
+      return;
+    try
+    {
+      workers.execute(() -> {
+        try
+        {
+          for (ImageRendition rendition : ImageRendition.values())
+          {
+            if (rendition != ImageRendition.ORIGINAL)
+            {
+              imageData.storeRendition(hash, rendition, render(original, rendition));
+              createdCount.incrementAndGet();
+            }
+          }
+        }
+        catch (UnsupportedFormatException e)
+        {
+          unsupported.add(hash);
+          System.err.println("Rendition of " + hash + " skipped: " + e.getMessage());
+        }
+        catch (IOException | SQLException | RuntimeException e)
+        {
+          System.err.println("Rendition of " + hash + " failed: " + e.getClass().getName() + ": " + e.getMessage());
+        }
+        finally
+        {
+          pending.remove(hash);
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      pending.remove(hash);
+      rejectedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * A static method creating a rendition of an image. Images are never scaled up, and images with transparent
+   * parts are kept as PNG while the others are saved as JPEG.
+   * @param original
+   *        the bytes of the original image
+   * @param rendition
+   *        the size of the rendition, other than <code>ORIGINAL</code>
+   * @return the bytes of the rendition
+   * @throws UnsupportedFormatException if the original image is in a format that cannot be read
+   * @throws IOException if the original image cannot be read or the rendition cannot be written
+   */
+  static byte[] render(byte[] original, ImageRendition rendition) throws IOException
+  {
+    BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+    if (source == null)
+      throw new UnsupportedFormatException();
+
+    int x = 0;
+    int y = 0;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (rendition.isSquare())
+    {
+      int side = Math.min(width, height);
+      x = (width - side) / 2;
+      y = (height - side) / 2;
+      width = side;
+      height = side;
+    }
+    double scale = Math.min(1.0, (double) rendition.getMaxSize() / Math.max(width, height));
+    int targetWidth = Math.max(1, (int) Math.round(width * scale));
+    int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+    boolean alpha = source.getColorModel().hasAlpha();
+    BufferedImage current = source.getSubimage(x, y, width, height);
+    // halving the size step by step keeps the quality of bilinear scaling for large reductions
+    do
+    {
+      int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+      int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+      BufferedImage step = new BufferedImage(stepWidth, stepHeight,
+          alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = step.createGraphics();
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+      graphics.dispose();
+      current = step;
+    }
+    while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(current, alpha ? "png" : "jpg", out);
+    return out.toByteArray();
+  }
+
+  /**
+   * The UnsupportedFormatException is thrown when an image is in a format no reader is installed for
+   */
+  static class UnsupportedFormatException extends IOException
+  {
+    /**
+     * A constructor setting the message of the exception
+     */
+    UnsupportedFormatException()
+    {
+      super("Unsupported image format");
+    }
+  }
+}
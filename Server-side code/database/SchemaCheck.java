@@ -0,0 +1,92 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The SchemaCheck class checks, through EXPLAIN, that the queries the server runs most often are read through an
+ * index instead of scanning the whole table. The schema is migrated first. Small tables are scanned whenever that is
+ * cheaper, so sequential scans are turned off for the check and the plans show whether an index can serve each query
+ * at all. Every query has to be read through the index added for it by SchemaMigrations. The plans are printed out
+ * on the console and the program exits with status 1 if any query is not read through its index.
+ * Usage: <code>java database.SchemaCheck</code>
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class SchemaCheck
+{
+  public static void main(String[] args) throws SQLException
+  {
+    new SchemaMigrations().migrate();
+    DatabaseConnection db = DatabaseConnection.getInstance();
+
+    // the name of every query, the index it is expected to be read through and the query itself
+    String[][] queries = {
+        {"feed page", "POSTS_TIME_POSTED_IDX",
+            "SELECT POST_ID FROM POSTS ORDER BY TIME_POSTED DESC, POST_ID DESC LIMIT 11"},
+        {"posts of a user", "POSTS_HANDLE_TIME_POSTED_IDX",
+            "SELECT POST_ID FROM POSTS WHERE HANDLE='puppr' ORDER BY TIME_POSTED DESC, POST_ID DESC LIMIT 11"},
+        {"comments of a post", "COMMENTS_POST_ID_TIME_POSTED_IDX",
+            "SELECT COMMENT_ID FROM COMMENTS WHERE POST_ID=1 ORDER BY TIME_POSTED DESC, COMMENT_ID DESC LIMIT 21"},
+        {"comments of a user", "COMMENTS_HANDLE_IDX",
+            "SELECT COUNT(*) FROM COMMENTS WHERE HANDLE='puppr'"},
+        {"dogs of a user", "DOGS_DOG_OWNER_IDX",
+            "SELECT DOG_ID FROM DOGS WHERE DOG_OWNER='puppr' ORDER BY DOG_NAME ASC"},
+        {"dog ranking", "DOGS_LIKES_IDX",
+            "SELECT DOG_ID FROM DOGS ORDER BY LIKES DESC, DOG_ID LIMIT 10"},
+        {"comments liked by a user", "COMMENTLIKES_HANDLE_COMMENT_ID_KEY",
+            "SELECT COMMENT_ID FROM COMMENTLIKES WHERE HANDLE='puppr'"}};
+
+    int failed = db.execute(connection -> {
+      int misses = 0;
+      try (Statement statement = connection.createStatement())
+      {
+        statement.execute("SET LOCAL ENABLE_SEQSCAN = OFF;");
+      }
+      for (String[] query : queries)
+      {
+        String plan = explain(connection, query[2]);
+        boolean indexed = plan.toUpperCase().contains(query[1]);
+        if (!indexed)
+          misses++;
+        System.out.println((indexed ? "OK    " : "MISS  ") + query[0] + ": " + plan);
+      }
+      return misses;
+    });
+    db.getPool().close();
+    if (failed > 0)
+    {
+      System.out.println(failed + " of " + queries.length + " queries are not served by an index");
+      System.exit(1);
+    }
+    System.out.println("All " + queries.length + " queries are served by an index");
+  }
+
+  /**
+   * A private method reading the plan the database would use for a query
+   * @param connection
+   *        the connection the query is explained on
+   * @param sql
+   *        the query that is explained
+   * @return the lines of the plan, joined by " / "
+   * @throws SQLException if any SQL error occurs while explaining the query
+   */
+  private static String explain(Connection connection, String sql) throws SQLException
+  {
+    StringBuilder plan = new StringBuilder();
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("EXPLAIN " + sql))
+    {
+      while (rs.next())
+      {
+        if (plan.length() > 0)
+          plan.append(" / ");
+        plan.append(rs.getString(1).trim());
+      }
+    }
+    return plan.toString();
+  }
+}
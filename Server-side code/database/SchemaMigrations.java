@@ -0,0 +1,268 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * The SchemaMigrations class brings the database schema up to date when the server starts. Every change made to the
+ * schema after the original database dump is a numbered migration, and the migrations that were applied are recorded
+ * in the Schema_Version table, so each one runs exactly once per database. A migration and its record are saved in
+ * the same transaction, under an advisory lock, so two servers starting at the same time never apply one twice.
+ * New schema changes are added at the end of the list with the next version number and are never edited afterwards.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class SchemaMigrations
+{
+  private static final long LOCK_KEY = 0x5075707072L;
+  private final DatabaseConnection db;
+  private final ArrayList<Migration> migrations;
+
+  /**
+   * A constructor setting up the communication between the class and the database and listing all the migrations
+   * @throws SQLException if any SQL error occurs while setting up the connection
+   */
+  public SchemaMigrations() throws SQLException
+  {
+    db = DatabaseConnection.getInstance();
+    migrations = new ArrayList<>();
+    migrations.add(new Migration(1, "Images tables and IMAGE_HASH columns", connection -> {
+      try (Statement statement = connection.createStatement())
+      {
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS IMAGES (HASH VARCHAR(64) PRIMARY KEY, DATA BYTEA NOT NULL);");
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS IMAGE_RENDITIONS (HASH VARCHAR(64) NOT NULL, "
+            + "RENDITION VARCHAR(16) NOT NULL, DATA BYTEA NOT NULL, PRIMARY KEY (HASH, RENDITION));");
+        moveImages(statement, "POSTS", "IMAGE_URL");
+        moveImages(statement, "DOGS", "IMAGE_URL");
+        moveImages(statement, "USERS", "IMAGEURL");
+      }
+    }));
+    migrations.add(new Migration(2, "Password column wide enough for salted hashes",
+        "ALTER TABLE USERS ALTER COLUMN PASSWORD TYPE VARCHAR(128);"));
+    migrations.add(new Migration(3, "Indexes for the paged timelines, comment threads and liked comments",
+        "CREATE INDEX IF NOT EXISTS POSTS_HANDLE_TIME_POSTED_IDX ON POSTS (HANDLE, TIME_POSTED DESC, POST_ID DESC);",
+        "CREATE INDEX IF NOT EXISTS COMMENTS_POST_ID_TIME_POSTED_IDX ON COMMENTS (POST_ID, TIME_POSTED DESC, COMMENT_ID DESC);",
+        "CREATE INDEX IF NOT EXISTS COMMENTLIKES_HANDLE_COMMENT_ID_IDX ON COMMENTLIKES (HANDLE, COMMENT_ID);"));
+    migrations.add(new Migration(4, "Indexes for the feed, the dogs of a user, the dog ranking and the comments of a user",
+        "CREATE INDEX IF NOT EXISTS POSTS_TIME_POSTED_IDX ON POSTS (TIME_POSTED DESC, POST_ID DESC);",
+        "CREATE INDEX IF NOT EXISTS DOGS_DOG_OWNER_IDX ON DOGS (DOG_OWNER, DOG_NAME);",
+        "CREATE INDEX IF NOT EXISTS DOGS_LIKES_IDX ON DOGS (LIKES DESC, DOG_ID);",
+        "CREATE INDEX IF NOT EXISTS COMMENTS_HANDLE_IDX ON COMMENTS (HANDLE);"));
+    migrations.add(new Migration(5, "Handles renamed along with the user in every table referencing them",
+        handleReference("POSTS", "HANDLE", "POSTS_HANDLE_FKEY"),
+        handleReference("DOGS", "DOG_OWNER", "DOGS_DOG_OWNER_FKEY"),
+        handleReference("LIKES", "HANDLE", "LIKES_HANDLE_FKEY"),
+        handleReference("DOGLIKES", "HANDLE", "DOGLIKES_HANDLE_FKEY"),
+        handleReference("COMMENTLIKES", "HANDLE", "COMMENTLIKES_HANDLE_FKEY")));
+    migrations.add(new Migration(6, "Comment likes unique per user, so saving a batch of likes again has no effect",
+        "DELETE FROM COMMENTLIKES A USING COMMENTLIKES B WHERE A.HANDLE = B.HANDLE AND A.COMMENT_ID = B.COMMENT_ID "
+            + "AND A.CTID > B.CTID;",
+        "ALTER TABLE COMMENTLIKES ADD CONSTRAINT COMMENTLIKES_HANDLE_COMMENT_ID_KEY UNIQUE (HANDLE, COMMENT_ID);",
+        "DROP INDEX IF EXISTS COMMENTLIKES_HANDLE_COMMENT_ID_IDX;"));
+    migrations.add(new Migration(7, "Old image columns dropped, so every image is stored only in the Images table",
+        connection -> {
+          try (Statement statement = connection.createStatement())
+          {
+            dropImages(statement, "POSTS", "IMAGE_URL");
+            dropImages(statement, "DOGS", "IMAGE_URL");
+            dropImages(statement, "USERS", "IMAGEURL");
+          }
+        }));
+  }
+
+  /**
+   * A method applying all the migrations that were not applied to the database yet, in the order of their versions.
+   * The applied migrations are printed out in the console.
+   * @return the version of the schema after the migrations
+   * @throws SQLException if any SQL error occurs while applying a migration. The migration is rolled back
+   * and the ones after it are not applied.
+   */
+  public int migrate() throws SQLException
+  {
+    db.execute(connection -> {
+      try (Statement statement = connection.createStatement())
+      {
+        return statement.executeUpdate("CREATE TABLE IF NOT EXISTS SCHEMA_VERSION (VERSION INTEGER PRIMARY KEY, "
+            + "DESCRIPTION VARCHAR(200) NOT NULL, APPLIED_AT TIMESTAMP NOT NULL DEFAULT NOW());");
+      }
+    });
+    int version = getVersion();
+    for (Migration migration : migrations)
+    {
+      if (migration.version <= version)
+        continue;
+      boolean applied = db.execute(connection -> {
+        try (PreparedStatement lock = connection.prepareStatement("SELECT PG_ADVISORY_XACT_LOCK(?)"))
+        {
+          lock.setLong(1, LOCK_KEY);
+          lock.executeQuery().close();
+        }
+        if (readVersion(connection) >= migration.version)
+          return false;
+        migration.work.run(connection);
+        try (PreparedStatement pst = connection.prepareStatement(
+            "INSERT INTO SCHEMA_VERSION(VERSION, DESCRIPTION) VALUES (?,?);"))
+        {
+          pst.setInt(1, migration.version);
+          pst.setString(2, migration.description);
+          pst.executeUpdate();
+        }
+        return true;
+      });
+      if (applied)
+        System.out.println("SCHEMA MIGRATED: " + migration.version + " " + migration.description);
+    }
+    version = getVersion();
+    System.out.println("Schema version: " + version);
+    return version;
+  }
+
+  /**
+   * Getter for the version of the schema
+   * @return the version of the last migration applied to the database, or 0 if none was applied
+   * @throws SQLException if any SQL error occurs while reading the version
+   */
+  public int getVersion() throws SQLException
+  {
+    return db.execute(SchemaMigrations::readVersion);
+  }
+
+  /**
+   * A private method reading the version of the schema on a connection that is already checked out by the caller
+   * @param connection
+   *        the connection the version is read on
+   * @return the version of the last migration applied to the database, or 0 if none was applied
+   * @throws SQLException if any SQL error occurs while reading the version
+   */
+  private static int readVersion(Connection connection) throws SQLException
+  {
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(VERSION), 0) FROM SCHEMA_VERSION;"))
+    {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  /**
+   * A private method building the statement that makes a column referencing the handle of a user follow the
+   * handle when it is renamed
+   * @param table
+   *        the name of the table
+   * @param column
+   *        the name of the column holding the handle
+   * @param constraint
+   *        the name of the foreign key of the column
+   * @return the ALTER TABLE statement replacing the foreign key
+   */
+  private static String handleReference(String table, String column, String constraint)
+  {
+    return "ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + constraint + ", ADD CONSTRAINT " + constraint
+        + " FOREIGN KEY (" + column + ") REFERENCES USERS(HANDLE) ON UPDATE CASCADE;";
+  }
+
+  /**
+   * A private method adding the IMAGE_HASH column to a table and linking the images stored in its old image
+   * column to the Images table
+   * @param statement
+   *        the statement the updates are executed with
+   * @param table
+   *        the name of the table
+   * @param imageColumn
+   *        the name of the column the images used to be stored in
+   * @throws SQLException if any SQL error occurs while executing the updates
+   */
+  private static void moveImages(Statement statement, String table, String imageColumn) throws SQLException
+  {
+    statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS IMAGE_HASH VARCHAR(64);");
+    statement.executeUpdate("INSERT INTO IMAGES(HASH, DATA) SELECT DISTINCT ENCODE(SHA256(" + imageColumn + "), 'hex'), "
+        + imageColumn + " FROM " + table + " WHERE " + imageColumn + " IS NOT NULL AND IMAGE_HASH IS NULL ON CONFLICT DO NOTHING;");
+    int moved = statement.executeUpdate("UPDATE " + table + " SET IMAGE_HASH=ENCODE(SHA256(" + imageColumn + "), 'hex') WHERE "
+        + imageColumn + " IS NOT NULL AND IMAGE_HASH IS NULL;");
+    if (moved > 0)
+      System.out.println("IMAGES LINKED: " + table + " " + moved);
+  }
+
+  /**
+   * A private method dropping the old image column of a table. Images that are not linked to the Images table yet
+   * are moved first, so no image is lost.
+   * @param statement
+   *        the statement the updates are executed with
+   * @param table
+   *        the name of the table
+   * @param imageColumn
+   *        the name of the column the images used to be stored in
+   * @throws SQLException if any SQL error occurs while executing the updates
+   */
+  private static void dropImages(Statement statement, String table, String imageColumn) throws SQLException
+  {
+    moveImages(statement, table, imageColumn);
+    statement.executeUpdate("ALTER TABLE " + table + " DROP COLUMN " + imageColumn + ";");
+  }
+
+  /**
+   * The MigrationWork interface represents the changes made to the schema by one migration
+   */
+  @FunctionalInterface
+  private interface MigrationWork
+  {
+    /**
+     * A method applying the changes on the given connection
+     * @param connection
+     *        the connection the migration is applied on, inside its transaction
+     * @throws SQLException if any SQL error occurs while applying the changes
+     */
+    void run(Connection connection) throws SQLException;
+  }
+
+  /**
+   * The Migration class holds the version, the description and the changes of one migration
+   */
+  private static class Migration
+  {
+    private final int version;
+    private final String description;
+    private final MigrationWork work;
+
+    /**
+     * A constructor for a migration made of any changes
+     * @param version
+     *        the version of the schema after the migration
+     * @param description
+     *        a short description of the changes, recorded in the Schema_Version table
+     * @param work
+     *        the changes made by the migration
+     */
+    private Migration(int version, String description, MigrationWork work)
+    {
+      this.version = version;
+      this.description = description;
+      this.work = work;
+    }
+
+    /**
+     * A constructor for a migration made of SQL statements executed one after the other
+     * @param version
+     *        the version of the schema after the migration
+     * @param description
+     *        a short description of the changes, recorded in the Schema_Version table
+     * @param statements
+     *        the SQL statements of the migration
+     */
+    private Migration(int version, String description, String... statements)
+    {
+      this(version, description, connection -> {
+        try (Statement statement = connection.createStatement())
+        {
+          for (String sql : statements)
+            statement.executeUpdate(sql);
+        }
+      });
+    }
+  }
+}
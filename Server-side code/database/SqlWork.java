@@ -0,0 +1,27 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The SqlWork interface represents a unit of work that is executed against the database on a single
+ * connection checked out from the pool. The DatabaseConnection class takes care of committing or rolling
+ * back the work and of handing the connection back to the pool afterwards.
+ *
+ * @param <T> the type of the value produced by the work
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface SqlWork<T>
+{
+  /**
+   * A method executing the work on the given connection. The connection must not be closed,
+   * committed or kept after the method returns.
+   * @param connection
+   *        the pooled connection the work is executed on
+   * @return the result of the work, or <code>null</code> if the work does not produce one
+   * @throws SQLException if any SQL error occurs while executing the work
+   */
+  T run(Connection connection) throws SQLException;
+}
@@ -0,0 +1,214 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The StatementCache class keeps the prepared statements of one pooled connection open between calls, so that a
+ * statement that is run again on the same connection is neither created nor parsed again. Once a prepared
+ * statement was executed a few times, the PostgreSQL driver also keeps its query plan on the server, which only
+ * pays off when the same statement object is reused.
+ * The pool hands out connections wrapped by this class. Calling <code>prepareStatement</code> with only the SQL
+ * text returns a cached statement, and closing it hands it back to the cache instead of closing it, so the DAO
+ * classes keep using their usual try-with-resources blocks. Every execution is timed and recorded in the
+ * QueryTimings of the pool. A connection is only used by one thread at a time, so the cache is not synchronized.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+class StatementCache implements InvocationHandler
+{
+  private final Connection connection;
+  private final int maxSize;
+  private final QueryTimings timings;
+  private final LinkedHashMap<String, PreparedStatement> statements;
+
+  /**
+   * A private constructor setting up the cache of a connection
+   * @param connection
+   *        the connection the statements are prepared on
+   * @param maxSize
+   *        the maximum number of statements kept open on the connection
+   * @param timings
+   *        the timings the executions are recorded in
+   */
+  private StatementCache(Connection connection, int maxSize, QueryTimings timings)
+  {
+    this.connection = connection;
+    this.maxSize = maxSize;
+    this.timings = timings;
+    this.statements = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * A method wrapping a connection so that its prepared statements are cached and timed
+   * @param connection
+   *        the connection that is wrapped
+   * @param maxSize
+   *        the maximum number of statements kept open on the connection
+   * @param timings
+   *        the timings the executions are recorded in
+   * @return a connection forwarding all the other calls to the wrapped one
+   */
+  static Connection wrap(Connection connection, int maxSize, QueryTimings timings)
+  {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new StatementCache(connection, maxSize, timings));
+  }
+
+  /**
+   * A method handling the calls made on the wrapped connection. Prepared statements are taken from the cache and
+   * closing the connection also closes all the cached statements.
+   * @param proxy
+   *        the wrapped connection
+   * @param method
+   *        the method called on the connection
+   * @param args
+   *        the arguments of the call
+   * @return the result of the call
+   * @throws Throwable the exception thrown by the connection, if any
+   */
+  @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+  {
+    if (method.getName().equals("prepareStatement") && args.length == 1)
+    {
+      return prepare((String) args[0]);
+    }
+    if (method.getName().equals("close"))
+    {
+      for (PreparedStatement statement : statements.values())
+        closeQuietly(statement);
+      statements.clear();
+    }
+    return forward(connection, method, args);
+  }
+
+  /**
+   * A private method handing out the prepared statement of an SQL text. The statement is taken out of the cache
+   * while it is in use, so a statement prepared again before the first one is closed gets its own object.
+   * @param sql
+   *        the SQL text of the statement
+   * @return a prepared statement going back to the cache when it is closed
+   * @throws SQLException if any SQL error occurs while preparing the statement
+   */
+  private PreparedStatement prepare(String sql) throws SQLException
+  {
+    PreparedStatement statement = statements.remove(sql);
+    if (statement == null)
+    {
+      statement = connection.prepareStatement(sql);
+      timings.prepared(sql);
+    }
+    else
+    {
+      timings.reused(sql);
+    }
+    PreparedStatement cached = statement;
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+          switch (method.getName())
+          {
+            case "close":
+              giveBack(sql, cached);
+              return null;
+            case "execute":
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeBatch":
+              long start = System.nanoTime();
+              try
+              {
+                return forward(cached, method, args);
+              }
+              finally
+              {
+                timings.executed(sql, System.nanoTime() - start);
+              }
+            default:
+              return forward(cached, method, args);
+          }
+        });
+  }
+
+  /**
+   * A private method putting a statement back into the cache after it was closed by its user. The least recently
+   * used statements are closed once the cache holds more than its maximum size.
+   * @param sql
+   *        the SQL text of the statement
+   * @param statement
+   *        the statement that was closed
+   */
+  private void giveBack(String sql, PreparedStatement statement)
+  {
+    try
+    {
+      if (statement.isClosed())
+        return;
+      statement.clearParameters();
+      statement.clearBatch();
+      statement.setFetchSize(0);
+    }
+    catch (SQLException e)
+    {
+      closeQuietly(statement);
+      return;
+    }
+    PreparedStatement replaced = statements.put(sql, statement);
+    if (replaced != null)
+      closeQuietly(replaced);
+    Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+    while (statements.size() > maxSize && eldest.hasNext())
+    {
+      closeQuietly(eldest.next().getValue());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * A private method forwarding a call to the wrapped object
+   * @param target
+   *        the wrapped connection or statement
+   * @param method
+   *        the method that is called
+   * @param args
+   *        the arguments of the call
+   * @return the result of the call
+   * @throws Throwable the exception thrown by the wrapped object, if any
+   */
+  private static Object forward(Object target, Method method, Object[] args) throws Throwable
+  {
+    try
+    {
+      return method.invoke(target, args);
+    }
+    catch (InvocationTargetException e)
+    {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * A private method closing a statement that is dropped from the cache
+   * @param statement
+   *        the statement that is closed
+   */
+  private static void closeQuietly(PreparedStatement statement)
+  {
+    try
+    {
+      statement.close();
+    }
+    catch (SQLException e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+    }
+  }
+}
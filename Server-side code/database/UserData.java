@@ -1,15 +1,22 @@
 package database;
 
+import model.BloomFilter;
+import model.DataAccessException;
+import model.ProfileStats;
 import model.User;
+import model.UserSummary;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.Consumer;
 
 /**
  * The UserData class is the one handling the communication between the server and the Users table in the database.
  * The class contains a set of methods for adding, retrieving, updating and removing user information from the table.
- * In order for the communication to be successful instances of DatabaseConnection and <code>java.sql.Connection</code>
- * classes are used.
+ * In order for the communication to be successful an instance of DatabaseConnection is used, which hands out
+ * a pooled <code>java.sql.Connection</code> for every call.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
@@ -17,9 +24,9 @@ import java.util.ArrayList;
 public class UserData
 {
   DatabaseConnection db;
-  private Connection connection;
-  PreparedStatement pst;
   private DogData dogData;
+  private ImageData imageData;
+  private static final String COLUMNS = "HANDLE,NAME,LASTNAME,PASSWORD,EMAIL,BIRTHDAY,GENDER,BIO,USERTYPE,STATUS,IMAGE_HASH";
 
   /**
    * A constructor setting up the communication between the class and the database
@@ -28,33 +35,37 @@ public class UserData
   public UserData() throws SQLException
   {
     db = DatabaseConnection.getInstance();
-    connection = db.getConnection();
     dogData = new DogData();
+    imageData = new ImageData();
   }
 
   /**
-   * A method for adding a new user's information to the table
+   * A method for adding a new user's information to the table. The profile picture of the user is stored
+   * in the Images table and only its hash is kept in the user row.
    * @param user
    *        the new USer object whose information will be added to the database
-   * @throws SQLException if any SQL related error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void addUser(User user) throws SQLException
-  {
-    String sql = "INSERT INTO users(HANDLE,NAME,LASTNAME,imageURL,PASSWORD,EMAIL,BIRTHDAY,GENDER,BIO,USERTYPE,STATUS) VALUES (?,?,?,?,?,?,?,?,?,?,?);";
-    PreparedStatement pst = connection.prepareStatement(sql);
-
-    pst.setString(1, user.getHandle());
-    pst.setString(2, user.getName());
-    pst.setString(3, user.getLastname());
-    pst.setBytes(4, user.getImageURL());
-    pst.setString(5, user.getPassword());
-    pst.setString(6, user.getEmail());
-    pst.setDate(7, user.getBirthday());
-    pst.setString(8, user.getGender());
-    pst.setString(9,user.getBio());
-    pst.setString(10,user.getUserType());
-    pst.setString(11,user.getStatus());
-    db.operation(pst);
+  public void addUser(User user)
+  {
+    String sql = "INSERT INTO users(HANDLE,NAME,LASTNAME,IMAGE_HASH,PASSWORD,EMAIL,BIRTHDAY,GENDER,BIO,USERTYPE,STATUS) VALUES (?,?,?,?,?,?,?,?,?,?,?);";
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1, user.getHandle());
+        pst.setString(2, user.getName());
+        pst.setString(3, user.getLastname());
+        pst.setString(4, imageData.storeImage(connection, user.getImageURL(), user.getImageHash()));
+        pst.setString(5, user.getPassword());
+        pst.setString(6, user.getEmail());
+        pst.setDate(7, user.getBirthday());
+        pst.setString(8, user.getGender());
+        pst.setString(9,user.getBio());
+        pst.setString(10,user.getUserType());
+        pst.setString(11,user.getStatus());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("ADDED: " + user.getHandle());
   }
 
@@ -62,42 +73,95 @@ public class UserData
    * A method for removing a user's information from the table
    * @param user
    *        the User object that is to be removed from the table
-   * @throws SQLException if any SQL related error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void removeUser(User user) throws SQLException
+  public void removeUser(User user)
   {
     String sql = "DELETE FROM users WHERE HANDLE =?";
-    PreparedStatement pst = connection.prepareStatement(sql);
-    pst.setString(1, user.getHandle());
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1, user.getHandle());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("DELETED: " + user.getHandle());
   }
 
   /**
-   * A method for updating a user's information in the table
+   * A method for changing the handle of a user in a single transaction. The posts, dogs and likes of the user
+   * follow the handle through their foreign keys and the comments of the user are updated with one statement,
+   * so the cost does not depend on how much the user posted.
+   * @param oldHandle
+   *        the current handle of the user
+   * @param newHandle
+   *        the new handle of the user
+   * @return true if the handle was changed, false if there is no user with the old handle or the new
+   * handle is already taken
+   * @throws SQLException if any other SQL error occurs while executing the method
+   */
+  public boolean renameHandle(String oldHandle, String newHandle) throws SQLException
+  {
+    try
+    {
+      boolean renamed = db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("UPDATE USERS SET HANDLE=? WHERE HANDLE=?"))
+        {
+          pst.setString(1, newHandle);
+          pst.setString(2, oldHandle);
+          if (pst.executeUpdate() == 0)
+            return false;
+        }
+        try (PreparedStatement pst = connection.prepareStatement("UPDATE COMMENTS SET HANDLE=? WHERE HANDLE=?"))
+        {
+          pst.setString(1, newHandle);
+          pst.setString(2, oldHandle);
+          pst.executeUpdate();
+        }
+        return true;
+      });
+      if (renamed)
+        System.out.println("RENAMED: " + oldHandle + " -> " + newHandle);
+      return renamed;
+    }
+    catch (SQLException e)
+    {
+      // 23505 is the unique violation raised when the new handle is already taken
+      if ("23505".equals(e.getSQLState()))
+        return false;
+      throw e;
+    }
+  }
+
+  /**
+   * A method for updating a user's information in the table. If the user carries no new profile picture
+   * or no new password, the ones they already have are kept.
    * @param user
    *        the modified User object
-   * @throws SQLException if any SQL related error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void editUser(User user) throws SQLException
+  public void editUser(User user)
   {
     String sql =
-            "UPDATE USERS SET  NAME=?,LASTNAME=?,IMAGEURL=?,PASSWORD=?,EMAIL=?,BIRTHDAY=?,GENDER=?,BIO=?,USERTYPE=?,STATUS=?"
+            "UPDATE USERS SET  NAME=?,LASTNAME=?,IMAGE_HASH=?,PASSWORD=COALESCE(?,PASSWORD),EMAIL=?,BIRTHDAY=?,GENDER=?,BIO=?,USERTYPE=?,STATUS=?"
                     + "WHERE HANDLE=?";
-    PreparedStatement pst = connection.prepareStatement(sql);
-
-    pst.setString(11, user.getHandle());
-    pst.setString(1, user.getName());
-    pst.setString(2, user.getLastname());
-    pst.setBytes(3, user.getImageURL());
-    pst.setString(4, user.getPassword());
-    pst.setString(5, user.getEmail());
-    pst.setDate(6, user.getBirthday());
-    pst.setString(7, user.getGender());
-    pst.setString(8,user.getBio());
-    pst.setString(9,user.getUserType());
-    pst.setString(10,user.getStatus());
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(11, user.getHandle());
+        pst.setString(1, user.getName());
+        pst.setString(2, user.getLastname());
+        pst.setString(3, imageData.storeImage(connection, user.getImageURL(), user.getImageHash()));
+        pst.setString(4, user.getPassword());
+        pst.setString(5, user.getEmail());
+        pst.setDate(6, user.getBirthday());
+        pst.setString(7, user.getGender());
+        pst.setString(8,user.getBio());
+        pst.setString(9,user.getUserType());
+        pst.setString(10,user.getStatus());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("EDITED: " + user.getHandle());
   }
 
@@ -105,17 +169,19 @@ public class UserData
    * A method for updating the user bio for the specified user
    * @param user
    *        the user with the new bio
-   * @throws SQLException if any SQL related error occurs while executing the method
+   * @throws DataAccessException if the operation failed, after the retries
    */
-  public void editBio(User user) throws SQLException{
+  public void editBio(User user){
     String sql = "UPDATE USERS SET BIO=? WHERE HANDLE=?";
 
-    PreparedStatement pst = connection.prepareStatement(sql);
-
-    pst.setString(1,user.getBio());
-    pst.setString(2,user.getHandle());
-
-    db.operation(pst);
+    db.operation(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
+      {
+        pst.setString(1,user.getBio());
+        pst.setString(2,user.getHandle());
+        return pst.executeUpdate();
+      }
+    });
     System.out.println("BIO ADDED: "+ user.getHandle()+": "+user.getBio());
   }
 
@@ -127,30 +193,41 @@ public class UserData
   public ArrayList<User> getUserList()
   {
     ArrayList<User> users = new ArrayList<>();
+    forEachUser(users::add);
+    return users;
+  }
+
+  /**
+   * A method handing every user in the table to an action. The users are read through a database cursor,
+   * <code>puppr.db.fetch.size</code> rows at a time, so only the rows of one fetch are held in memory besides
+   * what the action keeps.
+   * @param action
+   *        the action receiving the users one by one, together with their dogs
+   */
+  public void forEachUser(Consumer<User> action)
+  {
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-
-      ResultSet rs = statement.executeQuery("SELECT * FROM USERS;");
-
-      User user;
-      while (rs.next())
-      {
-        user = new User(rs.getString("HANDLE"), rs.getString("NAME"),
-            rs.getString("LASTNAME"), rs.getBytes("IMAGEURL"),
-            rs.getString("PASSWORD"), rs.getString("EMAIL"),
-            rs.getDate("BIRTHDAY"), rs.getString("GENDER"),
-            dogData.getDogsForUser(rs.getString("HANDLE")),rs.getString("BIO"),rs.getString("USERTYPE"),rs.getString("STATUS"));
-        users.add(user);
-      }
+      db.executeOnce(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM USERS;"))
+        {
+          pst.setFetchSize(db.getFetchSize());
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              action.accept(readUser(connection, rs));
+            }
+          }
+        }
+        return null;
+      });
     }
     catch (Exception e)
     {
       System.err.println(e.getClass().getName() + ": " + e.getMessage());
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
-    return users;
   }
 
   /**
@@ -161,33 +238,296 @@ public class UserData
    */
   public User getUserByHandle(String handle)
   {
-    ArrayList<User> users = new ArrayList<>();
-    User user=null;
-
     try
     {
-      Statement statement = connection.createStatement();
-      connection.commit();
-      ResultSet rs = statement
-          .executeQuery("SELECT * FROM USERS WHERE HANDLE='" + handle + "'");
-      while (rs.next())
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT " + COLUMNS + " FROM USERS WHERE HANDLE=?"))
+        {
+          pst.setString(1, handle);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            if (rs.next())
+            {
+              return readUser(connection, rs);
+            }
+          }
+        }
+        return null;
+      });
+    }
+    catch (Exception e)
+    {
+
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * A method for replacing the password hash of a user
+   * @param handle
+   *        the handle of the user
+   * @param passwordHash
+   *        the new password hash
+   * @throws SQLException if any SQL related error occurs while executing the method
+   */
+  public void updatePassword(String handle, String passwordHash) throws SQLException
+  {
+    String sql = "UPDATE USERS SET PASSWORD=? WHERE HANDLE=?";
+    db.execute(connection -> {
+      try (PreparedStatement pst = connection.prepareStatement(sql))
       {
-      user = new User(rs.getString("HANDLE"), rs.getString("NAME"),
-          rs.getString("LASTNAME"), rs.getBytes("IMAGEURL"),
-          rs.getString("PASSWORD"), rs.getString("EMAIL"),
-          rs.getDate("BIRTHDAY"), rs.getString("GENDER"),
-          dogData.getDogsForUser(rs.getString("HANDLE")),rs.getString("BIO"),rs.getString("USERTYPE"),rs.getString("STATUS"));
-
-        users.add(user);
-        user=users.get(0);
+        pst.setString(1, passwordHash);
+        pst.setString(2, handle);
+        return pst.executeUpdate();
       }
+    });
+  }
+
+  /**
+   * Getter for the summaries of a set of users, read with a single query
+   * @param handles
+   *        the handles of the users
+   * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+   */
+  public HashMap<String, UserSummary> getUserSummaries(Collection<String> handles)
+  {
+    HashMap<String, UserSummary> summaries = new HashMap<>();
+    if (handles.isEmpty())
+    {
+      return summaries;
+    }
+    String sql = "SELECT HANDLE,NAME,LASTNAME,IMAGE_HASH,USERTYPE FROM USERS WHERE HANDLE = ANY(?)";
+    try
+    {
+      db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          pst.setArray(1, connection.createArrayOf("varchar", handles.toArray()));
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              summaries.put(rs.getString("HANDLE"), new UserSummary(rs.getString("HANDLE"), rs.getString("NAME"),
+                  rs.getString("LASTNAME"), rs.getString("IMAGE_HASH"), rs.getString("USERTYPE")));
+            }
+          }
+        }
+        return summaries;
+      });
     }
     catch (Exception e)
     {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+    return summaries;
+  }
 
+  /**
+   * Getter for the totals shown on the profile page of a user, counted by the database in a single query
+   * @param handle
+   *        the handle of the user
+   * @return the totals of the user
+   */
+  public ProfileStats getProfileStats(String handle)
+  {
+    String sql = "SELECT (SELECT COUNT(*) FROM POSTS WHERE HANDLE=?), (SELECT COALESCE(SUM(LIKES),0) FROM POSTS WHERE HANDLE=?), "
+        + "(SELECT COUNT(*) FROM COMMENTS WHERE HANDLE=?), (SELECT COUNT(*) FROM DOGS WHERE DOG_OWNER=?), "
+        + "(SELECT COALESCE(SUM(LIKES),0) FROM DOGS WHERE DOG_OWNER=?)";
+    try
+    {
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          for (int i = 1; i <= 5; i++)
+          {
+            pst.setString(i, handle);
+          }
+          try (ResultSet rs = pst.executeQuery())
+          {
+            rs.next();
+            return new ProfileStats(handle, rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5));
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * A method checking if a handle is used by any user. The lookup is answered by the primary key of the table.
+   * @param handle
+   *        the handle that is checked
+   * @return true if a user has the handle, false otherwise
+   */
+  public boolean isHandleTaken(String handle)
+  {
+    return exists("SELECT 1 FROM USERS WHERE HANDLE=?", handle);
+  }
+
+  /**
+   * A method checking if an email is used by any user. The lookup is answered by the unique index on the
+   * email column.
+   * @param email
+   *        the email that is checked
+   * @return true if a user has the email, false otherwise
+   */
+  public boolean isEmailTaken(String email)
+  {
+    return exists("SELECT 1 FROM USERS WHERE EMAIL=?", email);
+  }
+
+  /**
+   * A method adding the handle and the email of every user to two Bloom filters. Only the two short columns
+   * are read, not the whole rows.
+   * @param handles
+   *        the filter receiving the handles
+   * @param emails
+   *        the filter receiving the emails
+   */
+  public void fillFilters(BloomFilter handles, BloomFilter emails)
+  {
+    try
+    {
+      db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT HANDLE, EMAIL FROM USERS;"))
+        {
+          pst.setFetchSize(db.getFetchSize());
+          try (ResultSet rs = pst.executeQuery())
+          {
+            while (rs.next())
+            {
+              handles.add(rs.getString("HANDLE"));
+              emails.add(rs.getString("EMAIL"));
+            }
+          }
+        }
+        return null;
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * Getter for the number of users in the table
+   * @return the number of users
+   */
+  public int countUsers()
+  {
+    try
+    {
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement("SELECT COUNT(*) FROM USERS;");
+            ResultSet rs = pst.executeQuery())
+        {
+          rs.next();
+          return rs.getInt(1);
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * A private method checking if a query with a single String parameter returns any row
+   * @param sql
+   *        the query that is run
+   * @param value
+   *        the value of the parameter
+   * @return true if the query returned a row, false otherwise
+   */
+  private boolean exists(String sql, String value)
+  {
+    try
+    {
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          pst.setString(1, value);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            return rs.next();
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
+      System.err.println(e.getClass().getName() + ": " + e.getMessage());
+      throw DataAccessException.wrap(e);
+    }
+  }
+
+  /**
+   * Getter for the login details of a user: the handle, name, password hash, type, status and picture hash.
+   * Unlike getUserByHandle, the dogs of the user are not read.
+   * @param handle
+   *        the handle of the user who is logging in
+   * @return an User object carrying only the login details, or <code>null</code> if there is no such user
+   */
+  public User getLoginDetails(String handle)
+  {
+    String sql = "SELECT HANDLE,NAME,LASTNAME,PASSWORD,USERTYPE,STATUS,IMAGE_HASH FROM USERS WHERE HANDLE=?";
+    try
+    {
+      return db.execute(connection -> {
+        try (PreparedStatement pst = connection.prepareStatement(sql))
+        {
+          pst.setString(1, handle);
+          try (ResultSet rs = pst.executeQuery())
+          {
+            if (!rs.next())
+            {
+              return null;
+            }
+            User user = new User(rs.getString("HANDLE"), rs.getString("NAME"), rs.getString("LASTNAME"), null,
+                rs.getString("PASSWORD"), null, null, null, null, null, rs.getString("USERTYPE"),
+                rs.getString("STATUS"));
+            user.setImageHash(rs.getString("IMAGE_HASH"));
+            return user;
+          }
+        }
+      });
+    }
+    catch (Exception e)
+    {
       System.err.println(e.getClass().getName() + ": " + e.getMessage());
-      System.exit(0);
+      throw DataAccessException.wrap(e);
     }
+  }
+
+  /**
+   * A private method building a User object out of the current row of a result set. The dogs
+   * of the user are read on the same connection. The password hash is left out, since it never
+   * has to leave the server.
+   * @param connection
+   *        the connection the result set was read from
+   * @param rs
+   *        the result set positioned on a USERS row
+   * @return the User object for the current row
+   * @throws SQLException if any SQL related error occurs while reading the row
+   */
+  private User readUser(Connection connection, ResultSet rs) throws SQLException
+  {
+    User user = new User(rs.getString("HANDLE"), rs.getString("NAME"),
+        rs.getString("LASTNAME"), null,
+        null, rs.getString("EMAIL"),
+        rs.getDate("BIRTHDAY"), rs.getString("GENDER"),
+        dogData.getDogsForUser(connection, rs.getString("HANDLE")),rs.getString("BIO"),rs.getString("USERTYPE"),rs.getString("STATUS"));
+    user.setImageHash(rs.getString("IMAGE_HASH"));
     return user;
   }
 
@@ -0,0 +1,122 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The BloomFilter class is a compact set of strings that can only answer "definitely not present" or "maybe
+ * present". It is used to answer most availability checks for handles and emails without asking the database:
+ * a value the filter has never seen is certainly free, and only the values it might have seen are looked up.
+ * Values cannot be removed, so a value that was freed again is still reported as maybe present, which only
+ * costs a database lookup.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class BloomFilter
+{
+  private final long[] bits;
+  private final int bitCount;
+  private final int hashCount;
+  private int size;
+
+  /**
+   * A constructor sizing the filter for the expected number of values and the wanted false positive rate
+   * @param expectedValues
+   *        the number of values the filter is expected to hold
+   * @param falsePositiveRate
+   *        the share of absent values that may be reported as maybe present, between 0 and 1
+   */
+  public BloomFilter(int expectedValues, double falsePositiveRate)
+  {
+    int n = Math.max(1, expectedValues);
+    double ln2 = Math.log(2);
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+    this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * ln2));
+    this.bits = new long[(bitCount + 63) / 64];
+  }
+
+  /**
+   * A method adding a value to the filter
+   * @param value
+   *        the value that is added
+   */
+  public synchronized void add(String value)
+  {
+    if (value == null)
+      return;
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++)
+    {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+    size++;
+  }
+
+  /**
+   * A method checking if a value might have been added to the filter
+   * @param value
+   *        the value that is checked
+   * @return false if the value was certainly never added, true if it might have been
+   */
+  public synchronized boolean mightContain(String value)
+  {
+    if (value == null)
+      return false;
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++)
+    {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Getter for the number of values added to the filter
+   * @return the number of values added
+   */
+  public synchronized int size()
+  {
+    return size;
+  }
+
+  /**
+   * A method returning a short summary of the filter.
+   * Example: "{values=120, bits=9600, hashes=7}"
+   * @return a String representation of the BloomFilter object
+   */
+  @Override public synchronized String toString()
+  {
+    return "{" + "values=" + size + ", bits=" + bitCount + ", hashes=" + hashCount + '}';
+  }
+
+  /**
+   * A private method computing a 64 bit hash of a value, FNV-1a over its UTF-8 bytes followed by the
+   * MurmurHash3 finalizer. The two halves of the hash are combined into all the bit positions of the value.
+   * @param value
+   *        the value that is hashed
+   * @return the hash of the value
+   */
+  private static long hash(String value)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8))
+    {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb3fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
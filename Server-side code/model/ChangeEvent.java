@@ -0,0 +1,126 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The ChangeEvent class describes a single change made on the server, so that the clients can update the
+ * objects they already show instead of reloading whole lists. A change only carries the id of the changed
+ * object, the kind of change and the new likes count, never the object itself.
+ * Every change gets a sequence number one higher than the previous one, so a client can tell if it missed any.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ChangeEvent implements Serializable
+{
+  /**
+   * The kinds of changes sent to the clients. <code>RESYNC</code> is sent instead of the changes a client
+   * was too slow to receive, telling it to reload what it shows.
+   */
+  public enum Kind
+  {
+    POST_ADDED, POST_EDITED, POST_REMOVED, POST_LIKED,
+    COMMENT_ADDED, COMMENT_EDITED, COMMENT_REMOVED, COMMENT_LIKED,
+    DOG_ADDED, DOG_EDITED, DOG_REMOVED, DOG_LIKED,
+    USER_EDITED, USER_REMOVED,
+    RESYNC
+  }
+
+  private long sequence;
+  private Kind kind;
+  private int id;
+  private int parentId;
+  private String handle;
+  private int likes;
+
+  /**
+   * A constructor setting all the attributes of the change
+   * @param sequence
+   *        the sequence number of the change
+   * @param kind
+   *        the kind of the change
+   * @param id
+   *        the id of the post, comment or dog that was changed, or 0 for a change of a user
+   * @param parentId
+   *        the id of the post a changed comment belongs to, or 0 if it does not apply
+   * @param handle
+   *        the handle of the user who made the change, or of the user who was changed
+   * @param likes
+   *        the new likes count of the changed object, or -1 if the change did not affect it
+   */
+  public ChangeEvent(long sequence, Kind kind, int id, int parentId, String handle, int likes)
+  {
+    this.sequence = sequence;
+    this.kind = kind;
+    this.id = id;
+    this.parentId = parentId;
+    this.handle = handle;
+    this.likes = likes;
+  }
+
+  /**
+   * Getter for the sequence number of the change
+   * @return the sequence number, one higher than the one of the previous change
+   */
+  public long getSequence()
+  {
+    return sequence;
+  }
+
+  /**
+   * Getter for the kind of the change
+   * @return a reference to the kind of the change
+   */
+  public Kind getKind()
+  {
+    return kind;
+  }
+
+  /**
+   * Getter for the id of the changed object
+   * @return the id of the post, comment or dog that was changed
+   */
+  public int getId()
+  {
+    return id;
+  }
+
+  /**
+   * Getter for the id of the post a changed comment belongs to
+   * @return the id of the post, or 0 if it does not apply
+   */
+  public int getParentId()
+  {
+    return parentId;
+  }
+
+  /**
+   * Getter for the handle of the user who made the change
+   * @return a reference to the handle of the user
+   */
+  public String getHandle()
+  {
+    return handle;
+  }
+
+  /**
+   * Getter for the new likes count of the changed object
+   * @return the new likes count, or -1 if the change did not affect it
+   */
+  public int getLikes()
+  {
+    return likes;
+  }
+
+  /**
+   * A method returning the String interpretation of a ChangeEvent object.
+   * Example: "{#42 POST_LIKED id=12, parentId=0, handle=sunny, likes=7}"
+   * @return a String representation of the ChangeEvent object.
+   */
+  @Override public String toString()
+  {
+    return "{#" + sequence + " " + kind + " id=" + id + ", parentId=" + parentId
+        + ", handle=" + handle + ", likes=" + likes + '}';
+  }
+}
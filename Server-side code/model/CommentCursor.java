@@ -0,0 +1,60 @@
+package model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The CommentCursor class marks the position of the last comment of a page of comments. Comments are ordered
+ * by the time they were posted and then by their id, so the pair of the two values of the last comment is
+ * enough for the server to continue with the next page of the thread.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class CommentCursor implements Serializable
+{
+  private LocalDateTime timePosted;
+  private int commentId;
+
+  /**
+   * A constructor setting the position the next page starts after
+   * @param timePosted
+   *        the time the last comment of the current page was posted at
+   * @param commentId
+   *        the id of the last comment of the current page
+   */
+  public CommentCursor(LocalDateTime timePosted, int commentId)
+  {
+    this.timePosted = timePosted;
+    this.commentId = commentId;
+  }
+
+  /**
+   * Getter for the <code>timePosted</code> attribute of the cursor
+   * @return a reference to the time the last comment of the page was posted at
+   */
+  public LocalDateTime getTimePosted()
+  {
+    return timePosted;
+  }
+
+  /**
+   * Getter for the <code>commentId</code> attribute of the cursor
+   * @return the id of the last comment of the page
+   */
+  public int getCommentId()
+  {
+    return commentId;
+  }
+
+  /**
+   * A method returning the String interpretation of a CommentCursor object.
+   * Example: "{timePosted=2020-05-08T09:20:01, commentId=40}"
+   * @return a String representation of the CommentCursor object.
+   */
+  @Override public String toString()
+  {
+    return "{" + "timePosted=" + timePosted + ", commentId=" + commentId + '}';
+  }
+}
@@ -0,0 +1,59 @@
+package model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * The CommentPage class holds one page of the comments of a post, newest first, together with the cursor
+ * needed to request the page that follows it.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class CommentPage implements Serializable
+{
+  private ArrayList<Comment> comments;
+  private CommentCursor nextCursor;
+
+  /**
+   * A constructor setting all the attributes of the page
+   * @param comments
+   *        the comments on the page, newest first
+   * @param nextCursor
+   *        the cursor of the next page, or <code>null</code> if this is the last page
+   */
+  public CommentPage(ArrayList<Comment> comments, CommentCursor nextCursor)
+  {
+    this.comments = comments;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Getter for the comments on the page
+   * @return an ArrayList of Comment data type containing the comments of the page, newest first
+   */
+  public ArrayList<Comment> getComments()
+  {
+    return comments;
+  }
+
+  /**
+   * Getter for the cursor of the next page
+   * @return the cursor that is to be sent when requesting the next page, or <code>null</code>
+   * if there are no more comments
+   */
+  public CommentCursor getNextCursor()
+  {
+    return nextCursor;
+  }
+
+  /**
+   * A method checking if there are more comments after this page
+   * @return true if there is a next page, false otherwise
+   */
+  public boolean hasMore()
+  {
+    return nextCursor != null;
+  }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import java.sql.SQLException;
+
+/**
+ * The DataAccessException class is thrown by the server when a call to the database failed for good, after
+ * the transient errors were retried. It replaces stopping the whole server on the first failed query: the call
+ * that failed is reported to its caller, and the server and the other clients keep working.
+ * The class is shared by the server and the client, so the error reaches the client with its type. The SQLState
+ * of the original error is kept, so callers can tell a constraint violation from a lost connection, but the
+ * original error is not sent along, since the client does not have the classes of the database driver.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class DataAccessException extends RuntimeException
+{
+  private final String sqlState;
+
+  /**
+   * A constructor setting the message and the SQLState of the exception
+   * @param message
+   *        a description of the failure
+   * @param sqlState
+   *        the SQLState of the original error, or <code>null</code> if it did not come from the database
+   */
+  public DataAccessException(String message, String sqlState)
+  {
+    super(message);
+    this.sqlState = sqlState;
+  }
+
+  /**
+   * A method turning any error thrown while using the database into a DataAccessException. Errors that already
+   * are DataAccessExceptions are returned as they are. The stack trace of the original error is kept.
+   * @param e
+   *        the error thrown while using the database
+   * @return the DataAccessException that is to be thrown
+   */
+  public static DataAccessException wrap(Exception e)
+  {
+    if (e instanceof DataAccessException)
+      return (DataAccessException) e;
+    DataAccessException wrapped = new DataAccessException(e.getClass().getName() + ": " + e.getMessage(),
+        e instanceof SQLException ? ((SQLException) e).getSQLState() : null);
+    wrapped.setStackTrace(e.getStackTrace());
+    return wrapped;
+  }
+
+  /**
+   * Getter for the SQLState of the original error
+   * @return the five character SQLState, or <code>null</code> if the error did not come from the database
+   */
+  public String getSqlState()
+  {
+    return sqlState;
+  }
+}
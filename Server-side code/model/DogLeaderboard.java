@@ -0,0 +1,117 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * The DogLeaderboard class keeps every dog ranked by its number of likes, so the Hall of Fame can be answered
+ * from memory. Dogs with the same number of likes are ranked by their id. The ranking is kept in a sorted tree
+ * next to a map from the dog id, so a like, a new dog or a removed dog is applied in O(log n) time and reading
+ * the top k dogs takes O(k) time, whatever the number of dogs.
+ * The dogs are kept without their photos, only with the hash of the photo.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class DogLeaderboard
+{
+  private static final Comparator<Dog> RANKING = Comparator.comparingInt(Dog::getLikes).reversed()
+      .thenComparingInt(Dog::getDogId);
+
+  private final TreeSet<Dog> ranking;
+  private final HashMap<Integer, Dog> byId;
+
+  /**
+   * A constructor creating an empty ranking. The dogs that already exist are ranked with <code>put</code>.
+   */
+  public DogLeaderboard()
+  {
+    ranking = new TreeSet<>(RANKING);
+    byId = new HashMap<>();
+  }
+
+  /**
+   * A method adding a dog to the ranking, or replacing it if it is already ranked
+   * @param dog
+   *        the new or edited dog; <code>null</code> is ignored
+   */
+  public synchronized void put(Dog dog)
+  {
+    if (dog == null)
+      return;
+    Dog old = byId.put(dog.getDogId(), dog);
+    if (old != null)
+      ranking.remove(old);
+    ranking.add(dog);
+  }
+
+  /**
+   * A method moving a dog to the place given by its new number of likes
+   * @param dogId
+   *        the id of the dog
+   * @param likes
+   *        the new number of likes of the dog
+   */
+  public synchronized void setLikes(int dogId, int likes)
+  {
+    Dog old = byId.get(dogId);
+    if (old == null || old.getLikes() == likes)
+      return;
+    Dog dog = new Dog(old.getDogId(), old.getName(), null, old.getInfo(), old.getOwnerName(), likes);
+    dog.setImageHash(old.getImageHash());
+    put(dog);
+  }
+
+  /**
+   * Getter for the owner of a ranked dog
+   * @param dogId
+   *        the id of the dog
+   * @return the handle of the owner, or <code>null</code> if the dog is not ranked
+   */
+  public synchronized String getOwner(int dogId)
+  {
+    Dog dog = byId.get(dogId);
+    return dog == null ? null : dog.getOwnerName();
+  }
+
+  /**
+   * A method removing a dog from the ranking
+   * @param dogId
+   *        the id of the removed dog
+   */
+  public synchronized void remove(int dogId)
+  {
+    Dog old = byId.remove(dogId);
+    if (old != null)
+      ranking.remove(old);
+  }
+
+  /**
+   * Getter for the most liked dogs
+   * @param k
+   *        the number of dogs wanted
+   * @return an ArrayList with at most k dogs, the most liked first
+   */
+  public synchronized ArrayList<Dog> top(int k)
+  {
+    ArrayList<Dog> top = new ArrayList<>(Math.max(0, Math.min(k, ranking.size())));
+    Iterator<Dog> dogs = ranking.iterator();
+    while (top.size() < k && dogs.hasNext())
+    {
+      top.add(dogs.next());
+    }
+    return top;
+  }
+
+  /**
+   * Getter for the number of ranked dogs
+   * @return the number of dogs
+   */
+  public synchronized int size()
+  {
+    return byId.size();
+  }
+}
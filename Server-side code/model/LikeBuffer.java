@@ -0,0 +1,503 @@
+package model;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The LikeBuffer class accepts the likes of posts, dogs and comments in memory and saves them to the database
+ * in batches, so that a post liked by many users at once gets one update per batch instead of one per like.
+ * A like is accepted as soon as it is checked against the likes already saved and the ones still buffered, so a
+ * user can like an object only once. The buffered likes are kept in stripes chosen by the liked object, so likes
+ * of different objects rarely wait for each other.
+ * The buffer is saved every <code>puppr.likes.flush.ms</code> milliseconds, or as soon as it holds
+ * <code>puppr.likes.flush.size</code> likes, and once more when the server shuts down. A batch is taken out of the
+ * stripes before it is saved and its likes keep counting until the database saved them, so neither likes nor reads
+ * wait for the database while a batch is saved. The likes counts read from the database are brought up to date with
+ * the buffered likes through <code>read</code>, which reads again if a batch was saved in the meantime, so a like
+ * moving to the database is not missed.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class LikeBuffer
+{
+  /**
+   * The kinds of objects that can be liked
+   */
+  public enum Kind
+  {
+    POST, DOG, COMMENT
+  }
+
+  private final Store store;
+  private final Stripe[] stripes;
+  private final int flushSize;
+  private final AtomicLong savedBatches;
+  private final ScheduledExecutorService flusher;
+  private final AtomicInteger pendingCount;
+  private final AtomicBoolean flushQueued;
+  private final AtomicLong savedCount;
+  private final AtomicLong flushCount;
+
+  /**
+   * A constructor setting up the stripes and starting the periodic saving
+   * @param store
+   *        the store the batches of likes are saved with
+   */
+  public LikeBuffer(Store store)
+  {
+    this.store = store;
+    int stripeCount = Integer.highestOneBit(Math.max(1, Integer.getInteger("puppr.likes.stripes", 16)));
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++)
+      stripes[i] = new Stripe();
+    this.flushSize = Integer.getInteger("puppr.likes.flush.size", 1000);
+    this.savedBatches = new AtomicLong();
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "puppr-likes");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.pendingCount = new AtomicInteger();
+    this.flushQueued = new AtomicBoolean();
+    this.savedCount = new AtomicLong();
+    this.flushCount = new AtomicLong();
+    long period = Long.getLong("puppr.likes.flush.ms", 1000);
+    flusher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * A method accepting a like. The likes count saved in the database is read first, which also checks that the
+   * object exists and that the user did not like it already. No lock is held while the count is read.
+   * @param kind
+   *        the kind of the liked object
+   * @param id
+   *        the id of the liked object
+   * @param handle
+   *        the handle of the user who liked the object
+   * @param savedLikes
+   *        reads the likes count saved in the database, or -1 if the object does not exist or the user already
+   *        liked it
+   * @return the likes count of the object including the buffered likes, or -1 if the like was not accepted
+   * @throws SQLException if any SQL related error occurs while reading the saved likes count
+   */
+  public int like(Kind kind, int id, String handle, SavedLikes savedLikes) throws SQLException
+  {
+    Like like = new Like(kind, id, handle);
+    Stripe stripe = stripe(kind, id);
+    if (stripe.contains(like))
+      return -1;
+    int saved = savedLikes.read();
+    if (saved < 0)
+      return -1;
+    int buffered = stripe.add(like);
+    if (buffered < 0)
+      return -1;
+    if (pendingCount.incrementAndGet() >= flushSize && flushQueued.compareAndSet(false, true))
+      flusher.execute(this::flush);
+    return saved + buffered;
+  }
+
+  /**
+   * A method reading from the database and bringing the likes counts that were read up to date with the buffered
+   * likes. If a batch was saved while the read ran, its likes may be missing from both the database rows that were
+   * read and the buffer, so the read is made again, up to three times.
+   * @param read
+   *        the read that is made, adding the buffered likes to what it read
+   * @param <T> the type of the value read
+   * @return the value read
+   */
+  public <T> T read(Supplier<T> read)
+  {
+    T value;
+    int attempts = 0;
+    long batches;
+    do
+    {
+      batches = savedBatches.get();
+      value = read.get();
+    }
+    while (savedBatches.get() != batches && ++attempts < 3);
+    return value;
+  }
+
+  /**
+   * Getter for the number of buffered likes of an object
+   * @param kind
+   *        the kind of the object
+   * @param id
+   *        the id of the object
+   * @return the number of likes of the object that are not saved in the database yet
+   */
+  public int getBuffered(Kind kind, int id)
+  {
+    return stripe(kind, id).count(kind, id);
+  }
+
+  /**
+   * A method adding the buffered likes to the likes counts of posts read from the database, and to the
+   * likes counts of the comments they carry
+   * @param posts
+   *        the posts that were read; <code>null</code> is ignored
+   * @return the same posts
+   */
+  public ArrayList<Post> addToPosts(ArrayList<Post> posts)
+  {
+    if (posts == null || isEmpty())
+      return posts;
+    for (Post post : posts)
+      addToPost(post);
+    return posts;
+  }
+
+  /**
+   * A method adding the buffered likes to the likes count of a post read from the database, and to the
+   * likes counts of the comments it carries
+   * @param post
+   *        the post that was read; <code>null</code> is ignored
+   * @return the same post
+   */
+  public Post addToPost(Post post)
+  {
+    if (post == null || isEmpty())
+      return post;
+    post.setLikes(post.getLikes() + getBuffered(Kind.POST, post.getPostId()));
+    addToComments(post.getComments());
+    return post;
+  }
+
+  /**
+   * A method adding the buffered likes to the likes counts of comments read from the database
+   * @param comments
+   *        the comments that were read; <code>null</code> is ignored
+   * @return the same comments
+   */
+  public ArrayList<Comment> addToComments(ArrayList<Comment> comments)
+  {
+    if (comments == null || isEmpty())
+      return comments;
+    for (Comment comment : comments)
+      comment.setLikes(comment.getLikes() + getBuffered(Kind.COMMENT, comment.getCommentId()));
+    return comments;
+  }
+
+  /**
+   * A method adding the buffered likes to the likes counts of dogs read from the database
+   * @param dogs
+   *        the dogs that were read; <code>null</code> is ignored
+   * @return the same dogs
+   */
+  public ArrayList<Dog> addToDogs(ArrayList<Dog> dogs)
+  {
+    if (dogs == null || isEmpty())
+      return dogs;
+    for (Dog dog : dogs)
+      addToDog(dog);
+    return dogs;
+  }
+
+  /**
+   * A method adding the buffered likes to the likes count of a dog read from the database
+   * @param dog
+   *        the dog that was read; <code>null</code> is ignored
+   * @return the same dog
+   */
+  public Dog addToDog(Dog dog)
+  {
+    if (dog == null || isEmpty())
+      return dog;
+    dog.setLikes(dog.getLikes() + getBuffered(Kind.DOG, dog.getDogId()));
+    return dog;
+  }
+
+  /**
+   * A method saving all the buffered likes, one batch per kind of object. The pending likes are taken out of the
+   * stripes first and saved without holding any lock, so likes keep being accepted meanwhile. The likes of a batch
+   * that fails are kept in the buffer and saved with the next batch. Only one batch is saved at a time.
+   */
+  public synchronized void flush()
+  {
+    flushQueued.set(false);
+    ArrayList<Like> likes = new ArrayList<>();
+    for (Stripe stripe : stripes)
+      stripe.startFlush(likes);
+    if (likes.isEmpty())
+      return;
+    pendingCount.addAndGet(-likes.size());
+    for (Kind kind : Kind.values())
+    {
+      ArrayList<String> handles = new ArrayList<>();
+      ArrayList<Integer> ids = new ArrayList<>();
+      for (Like like : likes)
+      {
+        if (like.kind == kind)
+        {
+          handles.add(like.handle);
+          ids.add(like.id);
+        }
+      }
+      if (handles.isEmpty())
+        continue;
+      boolean saved = false;
+      try
+      {
+        savedCount.addAndGet(store.save(kind, handles.toArray(new String[0]),
+            ids.stream().mapToInt(Integer::intValue).toArray()));
+        saved = true;
+      }
+      catch (SQLException | RuntimeException e)
+      {
+        System.err.println("LIKES NOT SAVED: " + handles.size() + " " + kind + " " + e.getMessage());
+      }
+      finally
+      {
+        for (Stripe stripe : stripes)
+          stripe.endFlush(kind, saved);
+        if (saved)
+          savedBatches.incrementAndGet();
+      }
+      if (!saved)
+        pendingCount.addAndGet(handles.size());
+    }
+    flushCount.incrementAndGet();
+  }
+
+  /**
+   * A method stopping the periodic saving and saving the likes that are still buffered
+   */
+  public void close()
+  {
+    flusher.shutdown();
+    try
+    {
+      flusher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  /**
+   * A method returning a short summary of the buffer.
+   * Example: "likes[buffered=12, saved=5230, flushes=311]"
+   * @return a String representation of the buffer
+   */
+  @Override public String toString()
+  {
+    return "likes[buffered=" + pendingCount.get() + ", saved=" + savedCount.get() + ", flushes="
+        + flushCount.get() + "]";
+  }
+
+  /**
+   * A private method checking if no like is buffered at all, so reads can skip the stripes
+   * @return true if there are no buffered likes
+   */
+  private boolean isEmpty()
+  {
+    for (Stripe stripe : stripes)
+    {
+      if (!stripe.isEmpty())
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * A private method finding the stripe of a liked object
+   * @param kind
+   *        the kind of the object
+   * @param id
+   *        the id of the object
+   * @return the stripe holding the buffered likes of the object
+   */
+  private Stripe stripe(Kind kind, int id)
+  {
+    int hash = (kind.ordinal() * 31 + id) * 0x9E3779B9;
+    return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+  }
+
+  /**
+   * A private key for a liked object
+   * @param kind
+   *        the kind of the object
+   * @param id
+   *        the id of the object
+   * @return a key unique to the object
+   */
+  private static long key(Kind kind, int id)
+  {
+    return ((long) kind.ordinal() << 32) | (id & 0xFFFFFFFFL);
+  }
+
+  /**
+   * The SavedLikes interface reads the likes count of an object saved in the database
+   */
+  @FunctionalInterface
+  public interface SavedLikes
+  {
+    /**
+     * A method reading the saved likes count
+     * @return the likes count, or -1 if the object does not exist or the user already liked it
+     * @throws SQLException if any SQL related error occurs while reading the count
+     */
+    int read() throws SQLException;
+  }
+
+  /**
+   * The Store interface saves a batch of likes of one kind of object in the database
+   */
+  @FunctionalInterface
+  public interface Store
+  {
+    /**
+     * A method saving a batch of likes in a single transaction. Saving a like that is already saved has no effect.
+     * @param kind
+     *        the kind of the liked objects
+     * @param handles
+     *        the handles of the users who liked the objects
+     * @param ids
+     *        the ids of the liked objects, in the same order as the handles
+     * @return the number of likes saved
+     * @throws SQLException if any SQL related error occurs while saving the likes
+     */
+    int save(Kind kind, String[] handles, int[] ids) throws SQLException;
+  }
+
+  /**
+   * One like of a user
+   */
+  private static class Like
+  {
+    private final Kind kind;
+    private final int id;
+    private final String handle;
+
+    private Like(Kind kind, int id, String handle)
+    {
+      this.kind = kind;
+      this.id = id;
+      this.handle = handle;
+    }
+
+    @Override public boolean equals(Object o)
+    {
+      if (this == o)
+        return true;
+      if (!(o instanceof Like))
+        return false;
+      Like like = (Like) o;
+      return kind == like.kind && id == like.id && handle.equals(like.handle);
+    }
+
+    @Override public int hashCode()
+    {
+      return Objects.hash(kind, id, handle);
+    }
+  }
+
+  /**
+   * The likes buffered for a part of the liked objects, with the number of buffered likes of every object.
+   * The likes of a batch being saved are kept apart, so they still count and cannot be added again until
+   * the batch is over.
+   */
+  private static class Stripe
+  {
+    private HashSet<Like> pending = new HashSet<>();
+    private HashSet<Like> flushing = new HashSet<>();
+    private final HashMap<Long, Integer> counts = new HashMap<>();
+
+    /**
+     * A method checking if a like is buffered, whether it is being saved or not
+     * @param like
+     *        the like that is checked
+     * @return true if the like is buffered
+     */
+    private synchronized boolean contains(Like like)
+    {
+      return pending.contains(like) || flushing.contains(like);
+    }
+
+    /**
+     * A method buffering a like
+     * @param like
+     *        the like that is buffered
+     * @return the number of buffered likes of the liked object, or -1 if the like was already buffered
+     */
+    private synchronized int add(Like like)
+    {
+      if (flushing.contains(like) || !pending.add(like))
+        return -1;
+      return counts.merge(key(like.kind, like.id), 1, Integer::sum);
+    }
+
+    /**
+     * Getter for the number of buffered likes of an object
+     * @param kind
+     *        the kind of the object
+     * @param id
+     *        the id of the object
+     * @return the number of buffered likes of the object
+     */
+    private synchronized int count(Kind kind, int id)
+    {
+      return counts.getOrDefault(key(kind, id), 0);
+    }
+
+    /**
+     * A method checking if the stripe holds no likes
+     * @return true if no like is buffered in the stripe
+     */
+    private synchronized boolean isEmpty()
+    {
+      return counts.isEmpty();
+    }
+
+    /**
+     * A method moving the pending likes into the batch being saved
+     * @param likes
+     *        the list the likes of the batch are added to
+     */
+    private synchronized void startFlush(ArrayList<Like> likes)
+    {
+      likes.addAll(pending);
+      flushing.addAll(pending);
+      pending = new HashSet<>();
+    }
+
+    /**
+     * A method ending the saving of the likes of one kind. Saved likes are forgotten, the others are pending again.
+     * @param kind
+     *        the kind of the likes that were saved
+     * @param saved
+     *        true if the batch was saved
+     */
+    private synchronized void endFlush(Kind kind, boolean saved)
+    {
+      Iterator<Like> likes = flushing.iterator();
+      while (likes.hasNext())
+      {
+        Like like = likes.next();
+        if (like.kind != kind)
+          continue;
+        likes.remove();
+        if (saved)
+          counts.computeIfPresent(key(like.kind, like.id), (key, count) -> count == 1 ? null : count - 1);
+        else
+          pending.add(like);
+      }
+    }
+  }
+}
@@ -1,14 +1,19 @@
 package model;
 
+import utility.observer.subject.LocalSubject;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * The Model interface represents a set of methods used to get, set, edit and remove objects and information from the database and notify the clients.
+ * The interface extends LocalSubject, firing a "change" event with a ChangeEvent object as the second value after every
+ * change made to posts, comments, dogs and likes.
  *
  * @author Natali-Munk Jakobsen
  * @version 1.0
  */
-public interface Model
+public interface Model extends LocalSubject<Object, Object>
 {
    /**
     * A setter for the user bio
@@ -166,75 +171,238 @@ public interface Model
     */
    User getUserByHandle(String handle);
 
+
+   /**
+    * A method for liking a post. The like information is saved and the likes count of the post
+    * is incremented by one. Liking the same post twice has no effect.
+    * @param postId
+    *        the id of the post that was liked
+    * @param handle
+    *        the handle of the user who liked the post
+    * @return true if the like was recorded, false if the user had already liked the post
+    */
+   boolean likePost(int postId, String handle);
+
    /**
-    * A method for adding a like to a comment
+    * A method for liking a dog. The like information is saved and the likes count of the dog
+    * is incremented by one. Liking the same dog twice has no effect.
+    * @param dogId
+    *        the id of the Dog object that was liked
+    * @param handle
+    *        the handle of the user who liked the dog
+    * @return true if the like was recorded, false if the user had already liked the dog
+    */
+   boolean likeDog(int dogId, String handle);
+
+   /**
+    * A method for liking a comment. The like information is saved and the likes count of the comment
+    * is incremented by one. Liking the same comment twice has no effect.
     * @param commentId
-    *        the comment id of the Comment object on which the like was added
+    *        the id of the comment that was liked
+    * @param handle
+    *        the handle of the user who liked the comment
+    * @return true if the like was recorded, false if the user had already liked the comment
     */
-   void addLikeToComment(int commentId);
+   boolean likeComment(int commentId, String handle);
 
    /**
-    * A method for adding a like to a post
-    * @param postId
-    *        the unique post id of the Post object on which the like was added
+    * A method for getting one page of the post feed, newest first
+    * @param cursor
+    *        the cursor returned with the previous page, or <code>null</code> for the first page
+    * @param limit
+    *        the maximum number of posts on the page
+    * @return a PostPage object containing the posts of the page and the cursor of the next page
     */
-   void addLikeToPost(int postId);
+   PostPage getFeedPage(PostCursor cursor, int limit);
 
    /**
-    * A method used to add a like to a Dog object
-    * @param dogId
-    *        the unique dog id of the dog on which the like was added
+    * Getter for one page of the posts made by a specific user, newest first
+    * @param handle
+    *        the handle of the user who made the posts
+    * @param cursor
+    *        the cursor returned with the previous page, or <code>null</code> for the first page
+    * @param limit
+    *        the maximum number of posts on the page
+    * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+    * for the first page, the total number of posts made by the user
     */
-   void addLikeToDog(int dogId);
+   PostPage getPostsForUser(String handle, PostCursor cursor, int limit);
 
+   /**
+    * Getter for a whole image
+    * @param hash
+    *        the hash the image is stored under, as carried by a Post, Dog or User object
+    * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+    */
+   byte[] getImage(String hash);
 
    /**
-    * A method used to add a liked to a post and save the user info of the user who liked the post
-    * @param postId
-    *        the id of the post the like was added on
+    * Getter for a range of the bytes of an image, so that large images can be read in parts.
+    * A returned range shorter than requested marks the end of the image.
+    * @param hash
+    *        the hash the image is stored under, as carried by a Post, Dog or User object
+    * @param offset
+    *        the index of the first byte of the range, starting from 0
+    * @param length
+    *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+    * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+    */
+   byte[] getImage(String hash, int offset, int length);
+
+   /**
+    * Getter for several whole images at once
+    * @param hashes
+    *        the hashes the images are stored under
+    * @return a HashMap with the bytes of every image that was found, keyed by its hash
+    */
+   HashMap<String, byte[]> getImages(ArrayList<String> hashes);
+
+   /**
+    * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+    * is not ready yet, the original image is returned.
+    * @param hash
+    *        the hash the image is stored under, as carried by a Post, Dog or User object
+    * @param rendition
+    *        the size the image is drawn in
+    * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+    */
+   byte[] getImage(String hash, ImageRendition rendition);
+
+   /**
+    * Getter for several images of the same size at once
+    * @param hashes
+    *        the hashes the images are stored under
+    * @param rendition
+    *        the size the images are drawn in
+    * @return a HashMap with the bytes of every image that was found, keyed by its hash
+    */
+   HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition);
+
+   /**
+    * Getter for the ids of the posts liked by a user, out of the given ones
     * @param handle
-    *        the handle of the user who liked the specified post
+    *        the handle of the user
+    * @param postIds
+    *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+    * @return the ids of the liked posts in ascending order
     */
-   void addLike(int postId, String handle);
+   int[] getLikedPostIds(String handle, int[] postIds);
 
    /**
-    * A method for getting all the postId and handle info for all the likes added
-    * @return an ArrayList of String data type containing all the postId and handle pairs for every like
-    *         on all the posts ever added
+    * Getter for the ids of the dogs liked by a user, out of the given ones
+    * @param handle
+    *        the handle of the user
+    * @param dogIds
+    *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+    * @return the ids of the liked dogs in ascending order
     */
-   ArrayList<String> getLikes();
+   int[] getLikedDogIds(String handle, int[] dogIds);
 
    /**
-    * A method used to add a like to a Dog object and save the user info of the user who liked the dog
-    * @param dogId
-    *        the id of the Dog object that the like was added on
+    * Getter for the ids of the comments liked by a user, out of the given ones
     * @param handle
-    *        the handle of the user that liked the specified dog
+    *        the handle of the user
+    * @param commentIds
+    *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+    * @return the ids of the liked comments in ascending order
     */
-   void addDogLike(int dogId, String handle);
+   int[] getLikedCommentIds(String handle, int[] commentIds);
 
    /**
-    * A method for getting a list of all the dogId and handle info of all the likes for dogs
-    * @return the dogId and handle pairs for each like added on all the Dog objects that exist in the database
+    * A method checking the login credentials of a user on the server and opening a session for them.
+    * The session of a blocked user carries no token.
+    * @param handle
+    *        the handle of the user logging in
+    * @param password
+    *        the password as typed in by the user
+    * @return the session of the user, or <code>null</code> if the handle or the password is wrong
     */
-   ArrayList<String> getDogLikes();
+   Session authenticate(String handle, String password);
 
    /**
-    * A method for adding a new like to a comment and saving the commentId - handle
-    * information in the database.
-    * @param commentId
-    *        the id of the comment that was added
+    * A method changing the password of the user a session belongs to, after checking their current password
+    * @param token
+    *        the token of the session
+    * @param oldPassword
+    *        the current password as typed in by the user
+    * @param newPassword
+    *        the new password as typed in by the user
+    * @return true if the password was changed, false if the session expired or the current password is wrong
+    */
+   boolean changePassword(String token, String oldPassword, String newPassword);
+
+   /**
+    * A method closing the session of a user
+    * @param token
+    *        the token of the session
+    */
+   void logout(String token);
+
+   /**
+    * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+    * from memory and only the others are looked up in the database.
+    * @param handle
+    *        the handle that is checked
+    * @return true if no user has the handle, false otherwise
+    */
+   boolean isHandleAvailable(String handle);
+
+   /**
+    * A method checking if an email can be used by a new user. Emails that were never used are answered
+    * from memory and only the others are looked up in the database.
+    * @param email
+    *        the email that is checked
+    * @return true if no user has the email, false otherwise
+    */
+   boolean isEmailAvailable(String email);
+
+   /**
+    * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call
+    * @param handles
+    *        the handles of the users; repeated handles are looked up once
+    * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+    */
+   HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles);
+
+   /**
+    * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+    * updated with every like, so no dogs are read from the database.
+    * @param k
+    *        the number of dogs wanted
+    * @return an ArrayList with at most k dogs, the most liked first
+    */
+   ArrayList<Dog> getTopDogs(int k);
+
+   /**
+    * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+    * time they are asked for and then kept up to date in memory by every post, comment, dog and like.
     * @param handle
-    *        the handle of the user who made the comment
+    *        the handle of the user
+    * @return the totals of the user
     */
-   void addCommentLike(int commentId, String handle);
+   ProfileStats getProfileStats(String handle);
 
    /**
-    * Getter for a list of all the comment likes
-    * @return an ArrayList of String data type containing all the pairs in the
-    * for of commentId - handle.
-    * Example: "13 - sunny".
+    * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+    * recent comments, the whole thread is read page by page with this method.
+    * @param postId
+    *        the id of the post with which the comments are related to
+    * @param cursor
+    *        the cursor returned with the previous page, or <code>null</code> for the first page
+    * @param limit
+    *        the maximum number of comments on the page
+    * @return a CommentPage object containing the comments of the page and the cursor of the next page
     */
-   ArrayList<String> getCommentLikes();
+   CommentPage getComments(int postId, CommentCursor cursor, int limit);
 
+   /**
+    * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+    * the user are moved to the new handle in a single transaction on the server.
+    * @param token
+    *        the token of the session
+    * @param newHandle
+    *        the new handle of the user
+    * @return true if the handle was changed, false if the session expired or the new handle is already taken
+    */
+   boolean renameHandle(String token, String newHandle);
 }
@@ -1,9 +1,16 @@
 package model;
 
 import database.*;
+import utility.observer.listener.GeneralListener;
+import utility.observer.subject.PropertyChangeAction;
+import utility.observer.subject.PropertyChangeProxy;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The ModelManager class is an implementation of the Model interface with the purpose of connecting the local
@@ -22,9 +29,27 @@ public class ModelManager implements Model
   private LikesData likesData;
   private DogLikesData dogLikesData;
   private CommentLikesData commentLikesData;
-
-  /**
-   * A constructor initialising all the instance for the database classes
+  private ImageData imageData;
+  private RenditionPipeline renditions;
+  private PasswordHasher passwordHasher;
+  private Sessions sessions;
+  private BloomFilter handleFilter;
+  private BloomFilter emailFilter;
+  private LruCache<String, User> users;
+  private DogLeaderboard leaderboard;
+  private LikeBuffer likeBuffer;
+  private LruCache<String, ProfileStats> profileStats;
+  private PropertyChangeAction<Object, Object> property;
+  private AtomicLong changeSequence;
+
+  /**
+   * A constructor initialising all the instance for the database classes. The Bloom filters used for the
+   * handle and email checks are filled with the users already in the database. They are sized for twice
+   * that many users, or for the <code>puppr.users.expected</code> system property if it is larger.
+   * Up to <code>puppr.users.cache.size</code> users are kept in memory by their handle, and the dogs are
+   * ranked by their likes for the Hall of Fame. The profile totals of as many users as the
+   * <code>puppr.stats.cache.size</code> system property allows are kept up to date in memory.
+   * Likes are buffered in memory and saved in batches by a LikeBuffer.
    * @throws SQLException if any error of SQL type occurs during initialisation
    */
   public ModelManager() throws SQLException
@@ -36,159 +61,156 @@ public class ModelManager implements Model
     this.likesData=new LikesData();
     this.dogLikesData=new DogLikesData();
     this.commentLikesData= new CommentLikesData();
+    this.imageData = new ImageData();
+    this.renditions = new RenditionPipeline(imageData);
+    this.passwordHasher = new PasswordHasher();
+    this.sessions = new Sessions();
+    int expectedUsers = Math.max(Integer.getInteger("puppr.users.expected", 10000), userData.countUsers() * 2);
+    this.handleFilter = new BloomFilter(expectedUsers, 0.01);
+    this.emailFilter = new BloomFilter(expectedUsers, 0.01);
+    userData.fillFilters(handleFilter, emailFilter);
+    this.users = new LruCache<>(Integer.getInteger("puppr.users.cache.size", 1024));
+    this.leaderboard = new DogLeaderboard();
+    dogData.forEachDog(leaderboard::put);
+    this.profileStats = new LruCache<>(Integer.getInteger("puppr.stats.cache.size", 1024));
+    this.likeBuffer = new LikeBuffer(this::saveLikes);
+    this.property = new PropertyChangeProxy<>(this);
+    this.changeSequence = new AtomicLong();
+  }
+
+  /**
+   * A private method notifying the listeners about a change that was saved in the database
+   * @param kind
+   *        the kind of the change
+   * @param id
+   *        the id of the post, comment or dog that was changed, or 0 for a change of a user
+   * @param parentId
+   *        the id of the post a changed comment belongs to, or 0 if it does not apply
+   * @param handle
+   *        the handle of the user who made the change, or of the user who was changed
+   * @param likes
+   *        the new likes count of the changed object, or -1 if the change did not affect it
+   */
+  private void fireChange(ChangeEvent.Kind kind, int id, int parentId, String handle, int likes)
+  {
+    property.firePropertyChange("change", null,
+        new ChangeEvent(changeSequence.incrementAndGet(), kind, id, parentId, handle, likes));
   }
 
   /**
-   * A method used to add a User to the database
+   * A method used to add a User to the database. The password of the user is hashed before it is stored.
    * @param user
    *        the user object that is being added
    */
   @Override public void addUser(User user)
   {
-    try
-    {
-      userData.addUser(user);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    userData.addUser(withPasswordHash(user));
+    handleFilter.add(user.getHandle());
+    emailFilter.add(user.getEmail());
+    renditions.submit(user.getImageURL());
 
   }
 
   /**
-   * A method used to update the user information in the database
+   * A method used to update the user information in the database. A new password is hashed before it is
+   * stored, and the old one is kept if the user carries no password.
    * @param user
    *        the modified User object
    */
   @Override public void editUser(User user)
   {
-    try
-    {
-      userData.editUser(user);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    userData.editUser(withPasswordHash(user));
+    users.invalidate(user.getHandle());
+    emailFilter.add(user.getEmail());
+    renditions.submit(user.getImageURL());
+    fireChange(ChangeEvent.Kind.USER_EDITED, 0, 0, user.getHandle(), -1);
   }
 
   /**
-   * A method used to remove a user from the database
+   * A private method returning a copy of a user carrying the hash of its password instead of the password
    * @param user
-   *        the User that is to be removed
+   *        the user as received from the client
+   * @return the user that is to be stored
    */
-  @Override public void removeUser(User user)
+  private User withPasswordHash(User user)
   {
-    try
-    {
-      userData.removeUser(user);
-    }
-    catch (SQLException e)
+    if (user.getPassword() == null || PasswordHasher.isHash(user.getPassword()))
     {
-      e.printStackTrace();
+      return user;
     }
+    User hashed = new User(user.getHandle(), user.getName(), user.getLastname(), user.getImageURL(),
+        passwordHasher.hash(user.getPassword()), user.getEmail(), user.getBirthday(), user.getGender(),
+        user.getDogList(), user.getBio(), user.getUserType(), user.getStatus());
+    hashed.setImageHash(user.getImageHash());
+    return hashed;
   }
 
   /**
-   * Getter for all the users in the database
-   * @return an ArrayList of User data type containing all the user information
-   * from the database
+   * A private method adding a like to the profile totals of the author of a post, if they are kept in memory.
+   * The author is read together with the likes count of the post, so no query is needed.
+   * @param author
+   *        the handle of the author of the liked post
    */
-  @Override public ArrayList<User> getUserList()
+  private void countPostLike(String author)
   {
-    return userData.getUserList();
+    if (author != null)
+      profileStats.update(author, stats -> stats.add(0, 1, 0, 0, 0));
   }
 
   /**
-   * Getter for a specific User object from the database
-   * @param handle
-   *        the handle of the User object that is retrieved from the database
-   * @return a User object with the handle value equal to the specified parameter value
+   * A private method adding a like to the profile totals of the owner of a dog, if they are kept in memory.
+   * The owner is taken from the dog leaderboard, so no query is needed.
+   * @param dogId
+   *        the id of the liked dog
    */
-  @Override public User getUserByHandle(String handle)
+  private void countDogLike(int dogId)
   {
-
-    return userData.getUserByHandle(handle);
+    String owner = leaderboard.getOwner(dogId);
+    if (owner != null)
+      profileStats.update(owner, stats -> stats.add(0, 0, 0, 0, 1));
   }
 
   /**
-   * A method for adding a like to a comment in the databse
-   * @param commentId
-   *        the id of the comment the like was added on
+   * A method used to remove a user from the database
+   * @param user
+   *        the User that is to be removed
    */
-  @Override public void addLikeToComment(int commentId)
+  @Override public void removeUser(User user)
   {
-    try
-    {
-      commentData.addLikeToComment(commentId);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    userData.removeUser(user);
+    users.invalidate(user.getHandle());
+    profileStats.invalidate(user.getHandle());
+    fireChange(ChangeEvent.Kind.USER_REMOVED, 0, 0, user.getHandle(), -1);
   }
 
   /**
-   * A method for increasing the like count of a post by 1
-   * @param postId
-   *        the id of the post on which the like was added
+   * Getter for all the users in the database
+   * @return an ArrayList of User data type containing all the user information
+   * from the database
    */
-  @Override public void addLikeToPost(int postId)
+  @Override public ArrayList<User> getUserList()
   {
-    try
-    {
-      postData.addLikeToPost(postId);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    return userData.getUserList();
   }
 
   /**
-   * A method for adding a like to a Dog object in the database
-   * @param dogId
-   *         the id of the Dog object the like was added on
+   * Getter for a specific User object. Users are kept in memory once read, until they are changed.
+   * @param handle
+   *        the handle of the User object that is retrieved from the database
+   * @return a User object with the handle value equal to the specified parameter value
    */
-  @Override public void addLikeToDog(int dogId)
+  @Override public User getUserByHandle(String handle)
   {
-    try
-    {
-      dogData.addLikeToDog(dogId);
-    }
-    catch (SQLException e)
+    User user = users.get(handle);
+    if (user == null)
     {
-      e.printStackTrace();
-    }
-  }
-
-
-  /**
-   * A method for adding a new like for a post in the database
-   * @param postId
-   *         the id on the post the like was added on
-   * @param handle
-   *        the handle of the user who liked the post
-   */
-  @Override
-  public void addLike(int postId, String handle) {
-    try {
-      likesData.addLike(postId,handle);
-    } catch (SQLException e) {
-      e.printStackTrace();
+      long version = users.version(handle);
+      user = userData.getUserByHandle(handle);
+      users.putIfVersion(handle, user, version);
     }
+    return user;
   }
 
-  /**
-   * Getter for all the likes added on posts
-   * @return an ArrayList of String data type, containing all the like information
-   * from the database for likes added on posts
-   */
-  @Override
-  public ArrayList<String> getLikes() {
-    return likesData.getLikes();
-  }
 
   /**
    * A method used to update the bio in the database for a user
@@ -197,11 +219,9 @@ public class ModelManager implements Model
    */
   @Override
   public void setBio(User user) {
-    try {
-      userData.editBio(user);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    }
+    userData.editBio(user);
+    users.invalidate(user.getHandle());
+    fireChange(ChangeEvent.Kind.USER_EDITED, 0, 0, user.getHandle(), -1);
   }
 
   /**
@@ -211,14 +231,9 @@ public class ModelManager implements Model
    */
   @Override public void addComment(Comment comment)
   {
-    try
-    {
-      commentData.addComment(comment);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    int commentId = commentData.addComment(comment);
+    profileStats.update(comment.getHandle(), stats -> stats.add(0, 0, 1, 0, 0));
+    fireChange(ChangeEvent.Kind.COMMENT_ADDED, commentId, comment.getPostId(), comment.getHandle(), -1);
   }
 
   /**
@@ -228,14 +243,8 @@ public class ModelManager implements Model
    */
   @Override public void editComment(Comment comment)
   {
-    try
-    {
-      commentData.editComment(comment);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    commentData.editComment(comment);
+    fireChange(ChangeEvent.Kind.COMMENT_EDITED, comment.getCommentId(), comment.getPostId(), comment.getHandle(), -1);
   }
 
   /**
@@ -245,14 +254,9 @@ public class ModelManager implements Model
    */
   @Override public void removeComment(Comment comment)
   {
-    try
-    {
-      commentData.removeComment(comment);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    commentData.removeComment(comment);
+    profileStats.update(comment.getHandle(), stats -> stats.add(0, 0, -1, 0, 0));
+    fireChange(ChangeEvent.Kind.COMMENT_REMOVED, comment.getCommentId(), comment.getPostId(), comment.getHandle(), -1);
   }
 
   /**
@@ -262,7 +266,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Comment> getCommentList()
   {
-    return commentData.getCommentList();
+    return likeBuffer.read(() -> likeBuffer.addToComments(commentData.getCommentList()));
   }
 
   /**
@@ -274,7 +278,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Comment> getCommentForPost(int postId)
   {
-    return commentData.getCommentForPost(postId);
+    return likeBuffer.read(() -> likeBuffer.addToComments(commentData.getCommentForPost(postId)));
   }
 
   /**
@@ -284,14 +288,12 @@ public class ModelManager implements Model
    */
   @Override public void addDog(Dog dog)
   {
-    try
-    {
-      dogData.addDog(dog);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    int dogId = dogData.addDog(dog);
+    profileStats.update(dog.getOwnerName(), stats -> stats.add(0, 0, 0, 1, 0));
+    leaderboard.put(dogData.getDogById(dogId));
+    users.invalidate(dog.getOwnerName());
+    renditions.submit(dog.getImageURL());
+    fireChange(ChangeEvent.Kind.DOG_ADDED, dogId, 0, dog.getOwnerName(), -1);
   }
 
   /**
@@ -301,14 +303,12 @@ public class ModelManager implements Model
    */
   @Override public void editDog(Dog dog)
   {
-    try
-    {
-      dogData.editDog(dog);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    dogData.editDog(dog);
+    profileStats.invalidate(dog.getOwnerName());
+    leaderboard.put(likeBuffer.read(() -> likeBuffer.addToDog(dogData.getDogById(dog.getDogId()))));
+    users.invalidate(dog.getOwnerName());
+    renditions.submit(dog.getImageURL());
+    fireChange(ChangeEvent.Kind.DOG_EDITED, dog.getDogId(), 0, dog.getOwnerName(), -1);
   }
 
   /**
@@ -318,14 +318,11 @@ public class ModelManager implements Model
    */
   @Override public void removeDog(Dog dog)
   {
-    try
-    {
-      dogData.removeDog(dog);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    dogData.removeDog(dog);
+    profileStats.invalidate(dog.getOwnerName());
+    leaderboard.remove(dog.getDogId());
+    users.invalidate(dog.getOwnerName());
+    fireChange(ChangeEvent.Kind.DOG_REMOVED, dog.getDogId(), 0, dog.getOwnerName(), -1);
   }
 
   /**
@@ -337,7 +334,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Dog> getDogsForUser(String handle)
   {
-    return dogData.getDogsForUser(handle);
+    return likeBuffer.read(() -> likeBuffer.addToDogs(dogData.getDogsForUser(handle)));
   }
 
   /**
@@ -347,7 +344,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Dog> getDogList()
   {
-    return dogData.getDogList();
+    return likeBuffer.read(() -> likeBuffer.addToDogs(dogData.getDogList()));
   }
 
   /**
@@ -357,14 +354,10 @@ public class ModelManager implements Model
    */
   @Override public void addPost(Post post)
   {
-    try
-    {
-      postData.addPost(post);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    int postId = postData.addPost(post);
+    profileStats.update(post.getHandle(), stats -> stats.add(1, 0, 0, 0, 0));
+    renditions.submit(post.getImageURL());
+    fireChange(ChangeEvent.Kind.POST_ADDED, postId, 0, post.getHandle(), -1);
   }
 
   /**
@@ -374,14 +367,10 @@ public class ModelManager implements Model
    */
   @Override public void editPost(Post post)
   {
-    try
-    {
-      postData.editPost(post);
-    }
-    catch (SQLException e)
-    {
-      e.printStackTrace();
-    }
+    postData.editPost(post);
+    profileStats.invalidate(post.getHandle());
+    renditions.submit(post.getImageURL());
+    fireChange(ChangeEvent.Kind.POST_EDITED, post.getPostId(), 0, post.getHandle(), -1);
   }
 
   /**
@@ -393,7 +382,12 @@ public class ModelManager implements Model
   {
     try
     {
+      ArrayList<String> commenters = commentData.getCommenters(post.getPostId());
       postData.removePost(post);
+      profileStats.invalidate(post.getHandle());
+      for (String commenter : commenters)
+        profileStats.invalidate(commenter);
+      fireChange(ChangeEvent.Kind.POST_REMOVED, post.getPostId(), 0, post.getHandle(), -1);
     }
     catch (SQLException e)
     {
@@ -408,7 +402,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Post> getPostList()
   {
-    return postData.getPostList();
+    return likeBuffer.read(() -> likeBuffer.addToPosts(postData.getPostList()));
   }
 
   /**
@@ -420,7 +414,7 @@ public class ModelManager implements Model
    */
   @Override public ArrayList<Post> getPostsForUser(String handle)
   {
-    return postData.getPostsForUser(handle);
+    return likeBuffer.read(() -> likeBuffer.addToPosts(postData.getPostsForUser(handle)));
   }
 
   /**
@@ -431,66 +425,531 @@ public class ModelManager implements Model
    */
   @Override public Post getPostById(int postId)
   {
-    return postData.getPostById(postId);
+    return likeBuffer.read(() -> likeBuffer.addToPost(postData.getPostById(postId)));
+  }
+
+  /**
+   * A method for liking a post. The like is buffered and saved together with the other likes of the post
+   * in the next batch. Liking the same post twice has no effect.
+   * @param postId
+   *        the id of the post that was liked
+   * @param handle
+   *        the handle of the user who liked the post
+   * @return true if the like was recorded, false if the user had already liked the post
+   */
+  @Override public boolean likePost(int postId, String handle)
+  {
+    try
+    {
+      AtomicReference<String> author = new AtomicReference<>();
+      int likes = likeBuffer.like(LikeBuffer.Kind.POST, postId, handle,
+          () -> likesData.getLikesIfNotLiked(postId, handle, author::set));
+      if (likes < 0)
+        return false;
+      countPostLike(author.get());
+      fireChange(ChangeEvent.Kind.POST_LIKED, postId, 0, handle, likes);
+      return true;
+    }
+    catch (SQLException e)
+    {
+      e.printStackTrace();
+      return false;
+    }
   }
 
   /**
-   * A method for adding a like for a Dog object
+   * A method for liking a dog. The like is buffered and saved together with the other likes of the dog
+   * in the next batch. Liking the same dog twice has no effect.
    * @param dogId
    *        the id of the Dog object that was liked
    * @param handle
    *        the handle of the user who liked the dog
+   * @return true if the like was recorded, false if the user had already liked the dog
    */
-  @Override public void addDogLike(int dogId, String handle)
+  @Override public boolean likeDog(int dogId, String handle)
   {
     try
     {
-      dogLikesData.addLike(dogId,handle);
+      int likes = likeBuffer.like(LikeBuffer.Kind.DOG, dogId, handle,
+          () -> dogLikesData.getLikesIfNotLiked(dogId, handle));
+      if (likes < 0)
+        return false;
+      countDogLike(dogId);
+      leaderboard.setLikes(dogId, likes);
+      fireChange(ChangeEvent.Kind.DOG_LIKED, dogId, 0, handle, likes);
+      return true;
     }
     catch (SQLException e)
     {
       e.printStackTrace();
+      return false;
     }
   }
 
   /**
-   * Getter for all the likes related to Dog objects
-   * @return an ArrayList of String data type containing all the
-   * dogId - handle pairs for dog likes
+   * A method for liking a comment. The like is buffered and saved together with the other likes of the
+   * comment in the next batch. Liking the same comment twice has no effect.
+   * @param commentId
+   *        the id of the comment that was liked
+   * @param handle
+   *        the handle of the user who liked the comment
+   * @return true if the like was recorded, false if the user had already liked the comment
    */
-  @Override public ArrayList<String> getDogLikes()
+  @Override public boolean likeComment(int commentId, String handle)
   {
-    return dogLikesData.getLikes();
+    try
+    {
+      int likes = likeBuffer.like(LikeBuffer.Kind.COMMENT, commentId, handle,
+          () -> commentLikesData.getLikesIfNotLiked(commentId, handle));
+      if (likes < 0)
+        return false;
+      fireChange(ChangeEvent.Kind.COMMENT_LIKED, commentId, 0, handle, likes);
+      return true;
+    }
+    catch (SQLException e)
+    {
+      e.printStackTrace();
+      return false;
+    }
   }
 
   /**
-   * A method for adding a new like to a comment and saving the commentId - handle
-   * information in the database.
-   * @param commentId
-   *        the id of the comment that was added
+   * A method for getting one page of the post feed, newest first
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page and the cursor of the next page
+   */
+  @Override public PostPage getFeedPage(PostCursor cursor, int limit)
+  {
+    return likeBuffer.read(() -> {
+      PostPage page = postData.getFeedPage(cursor, limit);
+      likeBuffer.addToPosts(page.getPosts());
+      return page;
+    });
+  }
+
+  /**
+   * Getter for one page of the posts made by a specific user, newest first
    * @param handle
-   *        the handle of the user who made the comment
+   *        the handle of the user who made the posts
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+   * for the first page, the total number of posts made by the user
+   */
+  @Override public PostPage getPostsForUser(String handle, PostCursor cursor, int limit)
+  {
+    return likeBuffer.read(() -> {
+      PostPage page = postData.getPostsForUser(handle, cursor, limit);
+      likeBuffer.addToPosts(page.getPosts());
+      return page;
+    });
+  }
+
+  /**
+   * A method for adding a new listener for the changes made through this class
+   * @param listener
+   *        the listener that is being added
+   * @param propertyNames
+   *        the list of names of the properties that the listener is being added for
+   * @return a boolean value representing the successful addition of the listener
    */
-  @Override
-  public void addCommentLike(int commentId, String handle) {
-    try {
-      commentLikesData.addLike(commentId,handle);
+  @Override public boolean addListener(GeneralListener<Object, Object> listener,
+      String... propertyNames)
+  {
+    return property.addListener(listener, propertyNames);
+  }
+
+  /**
+   * A method for removing a listener from this class
+   * @param listener
+   *        the listener that is being removed
+   * @param propertyNames
+   *        the list of property names that the listener will not be listening for anymore
+   * @return a boolean value representing the successful removal of the listener
+   */
+  @Override public boolean removeListener(GeneralListener<Object, Object> listener,
+      String... propertyNames)
+  {
+    return property.removeListener(listener, propertyNames);
+  }
+
+  /**
+   * Getter for a whole image
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash)
+  {
+    return imageData.getImage(hash);
+  }
+
+  /**
+   * Getter for a range of the bytes of an image, so that large images can be read in parts.
+   * A returned range shorter than requested marks the end of the image.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param offset
+   *        the index of the first byte of the range, starting from 0
+   * @param length
+   *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+   * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, int offset, int length)
+  {
+    return imageData.getImage(hash, offset, length);
+  }
+
+  /**
+   * Getter for several whole images at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes)
+  {
+    return imageData.getImages(hashes);
+  }
+
+  /**
+   * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+   * is not ready yet, the original image is returned.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param rendition
+   *        the size the image is drawn in
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override public byte[] getImage(String hash, ImageRendition rendition)
+  {
+    return renditions.getImage(hash, rendition);
+  }
+
+  /**
+   * Getter for several images of the same size at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @param rendition
+   *        the size the images are drawn in
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override public HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition)
+  {
+    return renditions.getImages(hashes, rendition);
+  }
+
+  /**
+   * Getter for the ids of the posts liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param postIds
+   *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+   * @return the ids of the liked posts in ascending order
+   */
+  @Override public int[] getLikedPostIds(String handle, int[] postIds)
+  {
+    return likesData.getLikedPostIds(handle, postIds);
+  }
+
+  /**
+   * Getter for the ids of the dogs liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param dogIds
+   *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+   * @return the ids of the liked dogs in ascending order
+   */
+  @Override public int[] getLikedDogIds(String handle, int[] dogIds)
+  {
+    return dogLikesData.getLikedDogIds(handle, dogIds);
+  }
+
+  /**
+   * Getter for the ids of the comments liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param commentIds
+   *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+   * @return the ids of the liked comments in ascending order
+   */
+  @Override public int[] getLikedCommentIds(String handle, int[] commentIds)
+  {
+    return commentLikesData.getLikedCommentIds(handle, commentIds);
+  }
+
+  /**
+   * A method checking the login credentials of a user on the server and opening a session for them.
+   * The session of a blocked user carries no token.
+   * @param handle
+   *        the handle of the user logging in
+   * @param password
+   *        the password as typed in by the user
+   * @return the session of the user, or <code>null</code> if the handle or the password is wrong
+   */
+  @Override public Session authenticate(String handle, String password)
+  {
+    User user = userData.getLoginDetails(handle);
+    if (user == null || !passwordHasher.verify(password, user.getPassword()))
+    {
+      return null;
+    }
+    if (passwordHasher.needsRehash(user.getPassword()))
+    {
+      try
+      {
+        userData.updatePassword(handle, passwordHasher.hash(password));
+      }
+      catch (SQLException e)
+      {
+        e.printStackTrace();
+      }
+    }
+    if (user.getStatus() != null && user.getStatus().equalsIgnoreCase("blocked"))
+    {
+      return new Session(null, user.getHandle(), user.getName(), user.getLastname(), user.getImageHash(),
+          user.getUserType(), user.getStatus());
+    }
+    return sessions.open(user);
+  }
+
+  /**
+   * A method changing the password of the user a session belongs to, after checking their current password
+   * @param token
+   *        the token of the session
+   * @param oldPassword
+   *        the current password as typed in by the user
+   * @param newPassword
+   *        the new password as typed in by the user
+   * @return true if the password was changed, false if the session expired or the current password is wrong
+   */
+  @Override public boolean changePassword(String token, String oldPassword, String newPassword)
+  {
+    Session session = sessions.get(token);
+    if (session == null)
+    {
+      return false;
+    }
+    User user = userData.getLoginDetails(session.getHandle());
+    if (user == null || !passwordHasher.verify(oldPassword, user.getPassword()))
+    {
+      return false;
+    }
+    try
+    {
+      userData.updatePassword(session.getHandle(), passwordHasher.hash(newPassword));
+      return true;
     }
     catch (SQLException e)
     {
       e.printStackTrace();
+      return false;
     }
   }
 
   /**
-   * Getter for a list of all the comment likes
-   * @return an ArrayList of String data type containing all the pairs in the
-   * for of commentId - handle from the database.
-   * Example: "13 - sunny".
+   * A method closing the session of a user
+   * @param token
+   *        the token of the session
    */
-  @Override
-  public ArrayList<String> getCommentLikes() {
-    return commentLikesData.getLikes();
+  @Override public void logout(String token)
+  {
+    sessions.close(token);
+  }
+
+  /**
+   * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param handle
+   *        the handle that is checked
+   * @return true if no user has the handle, false otherwise
+   */
+  @Override public boolean isHandleAvailable(String handle)
+  {
+    if (handle == null)
+    {
+      return false;
+    }
+    return !handleFilter.mightContain(handle) || !userData.isHandleTaken(handle);
+  }
+
+  /**
+   * A method checking if an email can be used by a new user. Emails that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param email
+   *        the email that is checked
+   * @return true if no user has the email, false otherwise
+   */
+  @Override public boolean isEmailAvailable(String email)
+  {
+    if (email == null)
+    {
+      return false;
+    }
+    return !emailFilter.mightContain(email) || !userData.isEmailTaken(email);
+  }
+
+  /**
+   * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call
+   * @param handles
+   *        the handles of the users; repeated handles are looked up once
+   * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+   */
+  @Override public HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles)
+  {
+    HashMap<String, UserSummary> summaries = new HashMap<>();
+    HashSet<String> missing = new HashSet<>();
+    for (String handle : handles)
+    {
+      User user = users.get(handle);
+      if (user != null)
+        summaries.put(handle, new UserSummary(user));
+      else if (handle != null)
+        missing.add(handle);
+    }
+    summaries.putAll(userData.getUserSummaries(missing));
+    return summaries;
+  }
+
+  /**
+   * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+   * updated with every like, so no dogs are read from the database.
+   * @param k
+   *        the number of dogs wanted
+   * @return an ArrayList with at most k dogs, the most liked first
+   */
+  @Override public ArrayList<Dog> getTopDogs(int k)
+  {
+    return leaderboard.top(k);
   }
 
+  /**
+   * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+   * time they are asked for and then kept up to date in memory by every post, comment, dog and like. The buffered
+   * likes are saved before the totals are counted, so the likes counts they sum are complete; a like buffered
+   * after that changes the version of the totals, so they are not kept.
+   * @param handle
+   *        the handle of the user
+   * @return the totals of the user
+   */
+  @Override public ProfileStats getProfileStats(String handle)
+  {
+    ProfileStats stats = profileStats.get(handle);
+    if (stats == null)
+    {
+      long version = profileStats.version(handle);
+      likeBuffer.flush();
+      stats = userData.getProfileStats(handle);
+      profileStats.putIfVersion(handle, stats, version);
+    }
+    return stats;
+  }
+
+  /**
+   * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+   * recent comments, the whole thread is read page by page with this method.
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of comments on the page
+   * @return a CommentPage object containing the comments of the page and the cursor of the next page
+   */
+  @Override public CommentPage getComments(int postId, CommentCursor cursor, int limit)
+  {
+    return likeBuffer.read(() -> {
+      CommentPage page = commentData.getComments(postId, cursor, limit);
+      likeBuffer.addToComments(page.getComments());
+      return page;
+    });
+  }
+
+  /**
+   * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+   * the user are moved to the new handle in a single transaction on the server.
+   * @param token
+   *        the token of the session
+   * @param newHandle
+   *        the new handle of the user
+   * @return true if the handle was changed, false if the session expired or the new handle is already taken
+   */
+  @Override public boolean renameHandle(String token, String newHandle)
+  {
+    Session session = sessions.get(token);
+    if (session == null || newHandle == null || newHandle.isBlank())
+    {
+      return false;
+    }
+    String oldHandle = session.getHandle();
+    if (oldHandle.equals(newHandle))
+    {
+      return true;
+    }
+    // buffered likes are saved under the handle they were made with
+    likeBuffer.flush();
+    try
+    {
+      if (!userData.renameHandle(oldHandle, newHandle))
+      {
+        return false;
+      }
+    }
+    catch (SQLException e)
+    {
+      e.printStackTrace();
+      return false;
+    }
+    sessions.rename(oldHandle, newHandle);
+    handleFilter.add(newHandle);
+    users.invalidate(oldHandle);
+    users.invalidate(newHandle);
+    profileStats.invalidate(oldHandle);
+    profileStats.invalidate(newHandle);
+    for (Dog dog : getDogsForUser(newHandle))
+      leaderboard.put(dog);
+    fireChange(ChangeEvent.Kind.USER_REMOVED, 0, 0, oldHandle, -1);
+    fireChange(ChangeEvent.Kind.USER_EDITED, 0, 0, newHandle, -1);
+    return true;
+  }
+
+  /**
+   * A method saving the likes that are still buffered and stopping the saving in the background and the
+   * rendition workers. It is called when the server shuts down, before the database connections are closed.
+   */
+  public void close()
+  {
+    likeBuffer.close();
+    renditions.shutdown();
+    System.out.println("Likes saved: " + likeBuffer);
+    System.out.println("Renditions stopped: " + renditions);
+  }
+
+  /**
+   * A private method saving a batch of buffered likes of one kind
+   * @param kind
+   *        the kind of the liked objects
+   * @param handles
+   *        the handles of the users who liked the objects
+   * @param ids
+   *        the ids of the liked objects, in the same order as the handles
+   * @return the number of likes saved
+   * @throws SQLException if any SQL related error occurs while saving the likes
+   */
+  private int saveLikes(LikeBuffer.Kind kind, String[] handles, int[] ids) throws SQLException
+  {
+    switch (kind)
+    {
+      case POST:
+        return likesData.saveLikes(handles, ids);
+      case DOG:
+        return dogLikesData.saveLikes(handles, ids);
+      default:
+        return commentLikesData.saveLikes(handles, ids);
+    }
+  }
 }
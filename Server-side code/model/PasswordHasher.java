@@ -0,0 +1,172 @@
+package model;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The PasswordHasher class turns passwords into the hashes stored in the Users table and checks passwords
+ * against them. Passwords are hashed with PBKDF2 over HMAC-SHA256 and a random salt, and the number of
+ * iterations is stored in the hash itself, so it can be raised with the <code>puppr.auth.iterations</code>
+ * system property without invalidating the hashes already stored.
+ * Hashes made by older versions of the app, a bare SHA-256 of the password, are still accepted so that
+ * they can be upgraded the next time their user logs in.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PasswordHasher
+{
+  private static final String PREFIX = "pbkdf2-sha256";
+  private static final int SALT_BYTES = 16;
+  private static final int HASH_BITS = 256;
+
+  private final int iterations;
+  private final SecureRandom random;
+
+  /**
+   * A constructor taking the number of iterations from the <code>puppr.auth.iterations</code> system property
+   */
+  public PasswordHasher()
+  {
+    this(Integer.getInteger("puppr.auth.iterations", 120000));
+  }
+
+  /**
+   * A constructor setting the number of iterations new hashes are made with
+   * @param iterations
+   *        the number of PBKDF2 iterations
+   */
+  public PasswordHasher(int iterations)
+  {
+    this.iterations = Math.max(1, iterations);
+    this.random = new SecureRandom();
+  }
+
+  /**
+   * A method hashing a password with a new random salt
+   * @param password
+   *        the password as typed in by the user
+   * @return the hash in the form <code>pbkdf2-sha256$iterations$salt$hash</code>
+   */
+  public String hash(String password)
+  {
+    byte[] salt = new byte[SALT_BYTES];
+    random.nextBytes(salt);
+    Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$"
+        + encoder.encodeToString(pbkdf2(password, salt, iterations));
+  }
+
+  /**
+   * A method checking a password against a stored hash
+   * @param password
+   *        the password as typed in by the user
+   * @param stored
+   *        the hash stored for the user
+   * @return true if the password matches the hash, false otherwise
+   */
+  public boolean verify(String password, String stored)
+  {
+    if (password == null || stored == null)
+      return false;
+    byte[] expected;
+    byte[] actual;
+    if (isHash(stored))
+    {
+      String[] parts = stored.split("\\$");
+      if (parts.length != 4)
+        return false;
+      Base64.Decoder decoder = Base64.getDecoder();
+      expected = decoder.decode(parts[3]);
+      actual = pbkdf2(password, decoder.decode(parts[2]), Integer.parseInt(parts[1]));
+    }
+    else
+    {
+      expected = stored.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+      actual = sha256Hex(password).getBytes(StandardCharsets.US_ASCII);
+    }
+    return MessageDigest.isEqual(expected, actual);
+  }
+
+  /**
+   * A method checking if a stored hash should be replaced by a new one, either because it was made by an older
+   * version of the app or with fewer iterations than currently configured
+   * @param stored
+   *        the hash stored for the user
+   * @return true if the password should be hashed again
+   */
+  public boolean needsRehash(String stored)
+  {
+    if (!isHash(stored))
+      return true;
+    String[] parts = stored.split("\\$");
+    return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+  }
+
+  /**
+   * A method checking if a value is a hash made by this class
+   * @param value
+   *        the value checked
+   * @return true if the value is a PBKDF2 hash, false otherwise
+   */
+  public static boolean isHash(String value)
+  {
+    return value != null && value.startsWith(PREFIX + "$");
+  }
+
+  /**
+   * A private method deriving the PBKDF2 key of a password
+   * @param password
+   *        the password as typed in by the user
+   * @param salt
+   *        the salt of the hash
+   * @param iterations
+   *        the number of iterations
+   * @return the derived key
+   */
+  private static byte[] pbkdf2(String password, byte[] salt, int iterations)
+  {
+    PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+    try
+    {
+      return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+    }
+    catch (GeneralSecurityException e)
+    {
+      throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+    }
+    finally
+    {
+      spec.clearPassword();
+    }
+  }
+
+  /**
+   * A private method computing the SHA-256 hash older versions of the app stored for a password
+   * @param password
+   *        the password as typed in by the user
+   * @return the hash as 64 lower case hexadecimal characters
+   */
+  private static String sha256Hex(String password)
+  {
+    try
+    {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest)
+      {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    }
+    catch (GeneralSecurityException e)
+    {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
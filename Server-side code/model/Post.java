@@ -15,11 +15,13 @@ import java.util.ArrayList;
 public class Post implements Serializable {
   private int postId;
   private byte[] imageURL;
+  private String imageHash;
   private String handle;
   private int likes;
   private String text;
   private LocalDateTime timePosted;
   private ArrayList<Comment> comments;
+  private int commentCount = -1;
 
   /**
    * A constructor for setting all the attributes of a Post object. This constructor is mostly used
@@ -136,6 +138,24 @@ public class Post implements Serializable {
     return imageURL;
   }
 
+  /**
+   * Getter for the hash of the post image. Posts read from the server only carry the hash of their image,
+   * the image itself is retrieved separately with <code>getImage</code>.
+   * @return a reference to the hash of the image, or <code>null</code> if the post has no image.
+   */
+  public String getImageHash() {
+    return imageHash;
+  }
+
+  /**
+   * Setter for the hash of the post image
+   * @param imageHash
+   *        the hash the image of the post is stored under
+   */
+  public void setImageHash(String imageHash) {
+    this.imageHash = imageHash;
+  }
+
   /**
    * Getter for the <code>handle</code> of the post
    * @return a reference to the handle of the author of the current post.
@@ -152,6 +172,15 @@ public class Post implements Serializable {
     return likes;
   }
 
+  /**
+   * Setter for the number of likes of the post
+   * @param likes
+   *        the number of likes the post has
+   */
+  public void setLikes(int likes) {
+    this.likes = likes;
+  }
+
   /**
    * Getter for the <code>text</code> attribute of the Post object
    * @return a reference to the text of the current post.
@@ -177,27 +206,48 @@ public class Post implements Serializable {
   }
 
   /**
-   * Getter for the list of comments of the post
-   * @return and ArrayList of data type Comment representing the cumulus
-   * of all the comments posted on the current post.
+   * Getter for the list of comments of the post. Posts read from the server only carry a preview of their
+   * most recent comments, the whole thread is read page by page with <code>getComments</code>.
+   * @return and ArrayList of data type Comment representing the most recent comments
+   * posted on the current post, newest first.
    */
   public ArrayList<Comment> getComments() {
     return comments;
   }
 
+  /**
+   * Getter for the number of comments of the post. Posts read from the server carry the number counted
+   * in the database, other posts count the comments in their list.
+   * @return the number of comments posted on the current post.
+   */
+  public int getCommentCount() {
+    if (commentCount < 0)
+      return comments == null ? 0 : comments.size();
+    return commentCount;
+  }
+
+  /**
+   * Setter for the number of comments of the post
+   * @param commentCount
+   *        the number of comments posted on the post
+   */
+  public void setCommentCount(int commentCount) {
+    this.commentCount = commentCount;
+  }
+
   /**
    * A method returning the String interpretation of a Post object. The attributes are separated by commas
    * and encapsulated in between a set of curly braces.
-   * Example: "{postId=1, imageURL='[B@24792502', handle='andrew01', likes=23, text='Hello guys!
-   *          This is my new dog', timePosted=2020-05-08T09:20:01, comments=['aww']}"
+   * Example: "{postId=1, imageHash='9f86d081...', handle='andrew01', likes=23, text='Hello guys!
+   *          This is my new dog', timePosted=2020-05-08T09:20:01, commentCount=1,
+   *          comments=['aww']}"
    * @return a String representation of the Post object.
    */
-  @SuppressWarnings("ImplicitArrayToString")
   @Override
   public String toString() {
-    return "{" + "postId=" + postId + ", imageURL='" + imageURL.toString() + '\''
+    return "{" + "postId=" + postId + ", imageHash='" + imageHash + '\''
             + ", handle='" + handle + '\'' + ", likes="
             + likes + ", text='" + text + '\'' + ", timePosted=" + timePosted
-            + ", comments=" + comments + '}';
+            + ", commentCount=" + getCommentCount() + ", comments=" + comments + '}';
   }
 }
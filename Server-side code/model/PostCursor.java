@@ -0,0 +1,60 @@
+package model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The PostCursor class marks the position of the last post of a page of posts. Posts are ordered by the
+ * time they were posted and then by their id, so the pair of the two values of the last post is enough for
+ * the server to continue with the next page without counting the posts that came before.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class PostCursor implements Serializable
+{
+  private LocalDateTime timePosted;
+  private int postId;
+
+  /**
+   * A constructor setting the position the next page starts after
+   * @param timePosted
+   *        the time the last post of the current page was posted at
+   * @param postId
+   *        the id of the last post of the current page
+   */
+  public PostCursor(LocalDateTime timePosted, int postId)
+  {
+    this.timePosted = timePosted;
+    this.postId = postId;
+  }
+
+  /**
+   * Getter for the <code>timePosted</code> attribute of the cursor
+   * @return a reference to the time the last post of the page was posted at
+   */
+  public LocalDateTime getTimePosted()
+  {
+    return timePosted;
+  }
+
+  /**
+   * Getter for the <code>postId</code> attribute of the cursor
+   * @return the id of the last post of the page
+   */
+  public int getPostId()
+  {
+    return postId;
+  }
+
+  /**
+   * A method returning the String interpretation of a PostCursor object.
+   * Example: "{timePosted=2020-05-08T09:20:01, postId=12}"
+   * @return a String representation of the PostCursor object.
+   */
+  @Override public String toString()
+  {
+    return "{" + "timePosted=" + timePosted + ", postId=" + postId + '}';
+  }
+}
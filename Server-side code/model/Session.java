@@ -0,0 +1,134 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The Session class is what the server hands back after a successful login. It carries the token identifying
+ * the login on the server together with the few details about the user that the views need right away, so the
+ * whole User object, with its picture and password hash, does not have to travel to the client.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class Session implements Serializable
+{
+  private String token;
+  private String handle;
+  private String name;
+  private String lastname;
+  private String imageHash;
+  private String userType;
+  private String status;
+
+  /**
+   * A constructor setting every attribute of the Session object
+   * @param token
+   *        the token identifying the session on the server, or <code>null</code> if the user is blocked
+   * @param handle
+   *        the handle of the logged in user
+   * @param name
+   *        the first name of the user
+   * @param lastname
+   *        the last name of the user
+   * @param imageHash
+   *        the hash of the user's profile picture
+   * @param userType
+   *        indicates if the user is an admin or a simple app user
+   * @param status
+   *        indicates if the user is blocked by the admin
+   */
+  public Session(String token, String handle, String name, String lastname, String imageHash, String userType,
+      String status)
+  {
+    this.token = token;
+    this.handle = handle;
+    this.name = name;
+    this.lastname = lastname;
+    this.imageHash = imageHash;
+    this.userType = userType;
+    this.status = status;
+  }
+
+  /**
+   * Getter for the <code>token</code> attribute
+   * @return the token of the session, or <code>null</code> if no session was opened
+   */
+  public String getToken()
+  {
+    return token;
+  }
+
+  /**
+   * Getter for the <code>handle</code> attribute
+   * @return a reference to the handle of the logged in user
+   */
+  public String getHandle()
+  {
+    return handle;
+  }
+
+  /**
+   * Getter for the <code>name</code> attribute
+   * @return a reference to the first name of the user
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * Getter for the <code>lastname</code> attribute
+   * @return a reference to the last name of the user
+   */
+  public String getLastname()
+  {
+    return lastname;
+  }
+
+  /**
+   * Getter for the <code>imageHash</code> attribute
+   * @return the hash of the user's profile picture
+   */
+  public String getImageHash()
+  {
+    return imageHash;
+  }
+
+  /**
+   * Getter for the <code>userType</code> attribute
+   * @return a reference to the type of the user
+   */
+  public String getUserType()
+  {
+    return userType;
+  }
+
+  /**
+   * Getter for the <code>status</code> attribute
+   * @return a reference to the status of the user
+   */
+  public String getStatus()
+  {
+    return status;
+  }
+
+  /**
+   * A method checking if the user is blocked by the admin
+   * @return true if the user is blocked, false otherwise
+   */
+  public boolean isBlocked()
+  {
+    return "blocked".equalsIgnoreCase(status);
+  }
+
+  /**
+   * A method returning the String interpretation of a Session object. The token is left out on purpose.
+   * Example: "{handle=natali, userType=user, status=unblocked}"
+   * @return a String representation of the Session object.
+   */
+  @Override public String toString()
+  {
+    return "{" + "handle=" + handle + ", userType=" + userType + ", status=" + status + '}';
+  }
+}
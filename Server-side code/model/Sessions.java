@@ -0,0 +1,160 @@
+package model;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Sessions class keeps the sessions opened by the users who logged in, keyed by their token. Calls made with
+ * a token find the user they belong to here instead of loading the User from the database again.
+ * A session that is not used for longer than the idle timeout is dropped. The timeout can be configured in
+ * minutes with the <code>puppr.auth.session.minutes</code> system property.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class Sessions
+{
+  private final ConcurrentHashMap<String, Entry> sessions;
+  private final SecureRandom random;
+  private final long idleNanos;
+  private volatile long nextSweep;
+
+  /**
+   * A constructor taking the idle timeout from the <code>puppr.auth.session.minutes</code> system property
+   */
+  public Sessions()
+  {
+    this(Long.getLong("puppr.auth.session.minutes", 720) * 60_000_000_000L);
+  }
+
+  /**
+   * A constructor setting the idle timeout of the sessions
+   * @param idleNanos
+   *        the time in nanoseconds a session is kept without being used
+   */
+  public Sessions(long idleNanos)
+  {
+    this.sessions = new ConcurrentHashMap<>();
+    this.random = new SecureRandom();
+    this.idleNanos = idleNanos;
+    this.nextSweep = System.nanoTime() + idleNanos;
+  }
+
+  /**
+   * A method opening a new session for a user who logged in
+   * @param user
+   *        the user who logged in
+   * @return the session, carrying a new random token
+   */
+  public Session open(User user)
+  {
+    sweep();
+    byte[] bytes = new byte[32];
+    random.nextBytes(bytes);
+    Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), user.getHandle(),
+        user.getName(), user.getLastname(), user.getImageHash(), user.getUserType(), user.getStatus());
+    sessions.put(session.getToken(), new Entry(session));
+    return session;
+  }
+
+  /**
+   * Getter for the session of a token. Finding the session counts as using it.
+   * @param token
+   *        the token of the session
+   * @return the session, or <code>null</code> if the token is unknown or the session expired
+   */
+  public Session get(String token)
+  {
+    if (token == null)
+      return null;
+    Entry entry = sessions.get(token);
+    if (entry == null)
+      return null;
+    long now = System.nanoTime();
+    if (now - entry.lastUsed > idleNanos)
+    {
+      sessions.remove(token, entry);
+      return null;
+    }
+    entry.lastUsed = now;
+    return entry.session;
+  }
+
+  /**
+   * A method closing a session
+   * @param token
+   *        the token of the session
+   */
+  public void close(String token)
+  {
+    if (token != null)
+      sessions.remove(token);
+  }
+
+  /**
+   * A method moving all the sessions of a user to their new handle after the handle was renamed
+   * @param oldHandle
+   *        the handle the sessions were opened with
+   * @param newHandle
+   *        the new handle of the user
+   */
+  public void rename(String oldHandle, String newHandle)
+  {
+    for (Entry entry : sessions.values())
+    {
+      Session session = entry.session;
+      if (session.getHandle().equals(oldHandle))
+      {
+        Entry renamed = new Entry(new Session(session.getToken(), newHandle, session.getName(), session.getLastname(),
+            session.getImageHash(), session.getUserType(), session.getStatus()));
+        renamed.lastUsed = entry.lastUsed;
+        sessions.replace(session.getToken(), entry, renamed);
+      }
+    }
+  }
+
+  /**
+   * Getter for the number of open sessions
+   * @return the number of sessions kept
+   */
+  public int size()
+  {
+    return sessions.size();
+  }
+
+  /**
+   * A private method dropping the expired sessions. It runs at most once per idle timeout, so opening a session
+   * stays cheap.
+   */
+  private void sweep()
+  {
+    long now = System.nanoTime();
+    if (now - nextSweep < 0)
+      return;
+    nextSweep = now + idleNanos;
+    Iterator<Map.Entry<String, Entry>> entries = sessions.entrySet().iterator();
+    while (entries.hasNext())
+    {
+      if (now - entries.next().getValue().lastUsed > idleNanos)
+        entries.remove();
+    }
+  }
+
+  /**
+   * A session together with the last time it was used
+   */
+  private static class Entry
+  {
+    private final Session session;
+    private volatile long lastUsed;
+
+    private Entry(Session session)
+    {
+      this.session = session;
+      this.lastUsed = System.nanoTime();
+    }
+  }
+}
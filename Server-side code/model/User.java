@@ -3,7 +3,6 @@ package model;
 import java.io.Serializable;
 import java.sql.Date;
 import java.util.ArrayList;
-import java.util.Arrays;
 
 /**
  *  The User class contains all the needed information about a user of the Puppr app.
@@ -18,6 +17,7 @@ public class User implements Serializable {
   private String name;
   private String lastname;
   private byte[] imageURL;
+  private String imageHash;
   private String password;
   private String email;
   private Date birthday;
@@ -95,6 +95,24 @@ public class User implements Serializable {
     return imageURL;
   }
 
+  /**
+   * Getter for the hash of the user's profile picture. Users read from the server only carry the hash of
+   * their profile picture, the picture itself is retrieved separately with <code>getImage</code>.
+   * @return a reference to the hash of the profile picture. Can be <code>null</code>
+   */
+  public String getImageHash() {
+    return imageHash;
+  }
+
+  /**
+   * Setter for the hash of the user's profile picture
+   * @param imageHash
+   *        the hash the profile picture of the user is stored under
+   */
+  public void setImageHash(String imageHash) {
+    this.imageHash = imageHash;
+  }
+
   /**
    * Getter for the password attribute of the user
    * @return a reference to the password value of the User object
@@ -181,7 +199,7 @@ public class User implements Serializable {
   /**
    * A String representation of the User object. The attributes of the user are separated by commas
    * and encapsulated in a set of curly braces.
-   * Example: "User{handle='andrew01', name='Andrew', lastname='Smith', imageURL=[B@4873020,
+   * Example: "User{handle='andrew01', name='Andrew', lastname='Smith', imageHash=4873020...,
    *          password='asd323', email='andrew01@gmail.com', birthday=1999-12-03, gender='male',
    *          dogList=[], bio='', userType='user'}"
    * @return a String representation of the User object
@@ -191,8 +209,8 @@ public class User implements Serializable {
   @Override public String toString()
   {
     return "User{" + "handle='" + handle + '\'' + ", name='" + name + '\''
-            + ", lastname='" + lastname + '\'' + ", imageURL=" + Arrays
-            .toString(imageURL) + ", password='" + password + '\'' + ", email='"
+            + ", lastname='" + lastname + '\'' + ", imageHash=" + imageHash
+            + ", password='" + password + '\'' + ", email='"
             + email + '\'' + ", birthday=" + birthday + ", gender='" + gender + '\''
             + ", dogList=" + dogList + ", bio='" + bio + '\'' + ", userType='"
             + userType + '\'' + '}';
@@ -0,0 +1,108 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The UserSummary class carries the few details about a user that a post or comment card shows next to what they
+ * wrote: the handle, the name, the hash of the profile picture and the type of the user. It is much smaller than
+ * a User object, which also carries the dogs of the user.
+ * The class implements <code>Serializable</code> in order to be send and received from the Server.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class UserSummary implements Serializable
+{
+  private String handle;
+  private String name;
+  private String lastname;
+  private String imageHash;
+  private String userType;
+
+  /**
+   * A constructor setting every attribute of the UserSummary object
+   * @param handle
+   *        the handle of the user
+   * @param name
+   *        the first name of the user
+   * @param lastname
+   *        the last name of the user
+   * @param imageHash
+   *        the hash of the user's profile picture
+   * @param userType
+   *        indicates if the user is an admin or a simple app user
+   */
+  public UserSummary(String handle, String name, String lastname, String imageHash, String userType)
+  {
+    this.handle = handle;
+    this.name = name;
+    this.lastname = lastname;
+    this.imageHash = imageHash;
+    this.userType = userType;
+  }
+
+  /**
+   * A constructor copying the summary out of a whole User object
+   * @param user
+   *        the user that is summarised
+   */
+  public UserSummary(User user)
+  {
+    this(user.getHandle(), user.getName(), user.getLastname(), user.getImageHash(), user.getUserType());
+  }
+
+  /**
+   * Getter for the <code>handle</code> attribute
+   * @return a reference to the handle of the user
+   */
+  public String getHandle()
+  {
+    return handle;
+  }
+
+  /**
+   * Getter for the <code>name</code> attribute
+   * @return a reference to the first name of the user
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * Getter for the <code>lastname</code> attribute
+   * @return a reference to the last name of the user
+   */
+  public String getLastname()
+  {
+    return lastname;
+  }
+
+  /**
+   * Getter for the <code>imageHash</code> attribute
+   * @return the hash of the user's profile picture
+   */
+  public String getImageHash()
+  {
+    return imageHash;
+  }
+
+  /**
+   * Getter for the <code>userType</code> attribute
+   * @return a reference to the type of the user
+   */
+  public String getUserType()
+  {
+    return userType;
+  }
+
+  /**
+   * A method returning the String interpretation of a UserSummary object.
+   * Example: "{handle=sunny, name=Sunny Day, userType=user}"
+   * @return a String representation of the UserSummary object.
+   */
+  @Override public String toString()
+  {
+    return "{" + "handle=" + handle + ", name=" + name + " " + lastname + ", userType=" + userType + '}';
+  }
+}
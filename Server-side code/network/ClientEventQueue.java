@@ -0,0 +1,149 @@
+package network;
+
+import model.ChangeEvent;
+import utility.observer.event.ObserverEvent;
+import utility.observer.listener.GeneralListener;
+
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ClientEventQueue class delivers the events for a single client. Events are put in a bounded queue and sent
+ * by a thread of their own, in the order they were fired, so a slow or unreachable client never holds up the server
+ * or the other clients. If the client falls so far behind that the queue fills up, the waiting events are dropped
+ * and replaced by a single RESYNC change telling the client to reload what it shows.
+ *
+ * @author Natali Munk-Jakobsen
+ * @version 1.0
+ */
+public class ClientEventQueue {
+
+  private static final int CAPACITY = 1000;
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final Object source;
+  private final GeneralListener<Object, Object> listener;
+  private final Set<String> propertyNames;
+  private final LinkedBlockingQueue<ObserverEvent<Object, Object>> events;
+  private final Runnable onDisconnect;
+  private final Thread worker;
+  private final AtomicLong deliveredCount;
+  private final AtomicLong droppedCount;
+  private volatile boolean closed;
+
+  /**
+   * A constructor setting up the queue and starting the thread sending its events
+   * @param source
+   *        the object the events are sent from
+   * @param listener
+   *        the listener of the client the events are sent to
+   * @param onDisconnect
+   *        the action run once the client cannot be reached anymore
+   */
+  public ClientEventQueue(Object source, GeneralListener<Object, Object> listener, Runnable onDisconnect) {
+    this.source = source;
+    this.listener = listener;
+    this.propertyNames = new HashSet<>();
+    this.events = new LinkedBlockingQueue<>(CAPACITY);
+    this.onDisconnect = onDisconnect;
+    this.deliveredCount = new AtomicLong();
+    this.droppedCount = new AtomicLong();
+    this.worker = new Thread(this::deliver, "puppr-events-" + threadCount.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * A method adding property names to the ones the client listens for. A client listening for no names in
+   * particular receives all the events.
+   * @param names
+   *        the names of the properties that are added
+   */
+  public synchronized void addPropertyNames(String... names) {
+    propertyNames.addAll(Arrays.asList(names));
+  }
+
+  /**
+   * A method removing property names from the ones the client listens for. A client listening for all the
+   * events keeps on doing so.
+   * @param names
+   *        the names of the properties that are removed
+   * @return true if the client still listens for some of the properties, false otherwise
+   */
+  public synchronized boolean removePropertyNames(String... names) {
+    if (propertyNames.isEmpty())
+      return true;
+    propertyNames.removeAll(Arrays.asList(names));
+    return !propertyNames.isEmpty();
+  }
+
+  /**
+   * A method putting an event in the queue without waiting for it to be sent. Events the client does not
+   * listen for are ignored.
+   * @param event
+   *        the event that is to be sent to the client
+   */
+  public synchronized void offer(ObserverEvent<Object, Object> event) {
+    if (closed || (!propertyNames.isEmpty() && !propertyNames.contains(event.getPropertyName())))
+      return;
+    if (!events.offer(event)) {
+      droppedCount.addAndGet(events.size());
+      events.clear();
+      ChangeEvent resync = new ChangeEvent(-1, ChangeEvent.Kind.RESYNC, 0, 0, null, -1);
+      events.offer(new ObserverEvent<>(source, "change", null, resync));
+      System.out.println("Client " + listener + " fell behind, events dropped: " + droppedCount.get());
+    }
+  }
+
+  /**
+   * A method stopping the thread sending the events. The events still waiting in the queue are dropped.
+   */
+  public void close() {
+    closed = true;
+    worker.interrupt();
+  }
+
+  /**
+   * Getter for the number of events sent to the client
+   * @return the number of events the client received
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * Getter for the number of events dropped because the client was too slow
+   * @return the number of events the client never received
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * A private method run by the thread of the queue, sending the events one by one until the queue is closed
+   * or the client cannot be reached anymore
+   */
+  private void deliver() {
+    while (!closed) {
+      ObserverEvent<Object, Object> event;
+      try {
+        event = events.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        listener.propertyChange(event);
+        deliveredCount.incrementAndGet();
+      } catch (RemoteException | RuntimeException e) {
+        System.out.println("Client " + listener + " disconnected: " + e.getMessage());
+        closed = true;
+        onDisconnect.run();
+      }
+    }
+  }
+}
@@ -5,6 +5,7 @@ import utility.observer.subject.RemoteSubject;
 
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * RemoteModel is the interface that allows the client and
@@ -227,97 +228,282 @@ public interface RemoteModel extends RemoteSubject<Object, Object>
     User getUserByHandle(String handle) throws RemoteException;
 
     /**
-     * A method for adding a like to a comment
+     * A method for liking a post. The like information is saved and the likes count of the post
+     * is incremented by one. Liking the same post twice has no effect.
+     * @param postId
+     *        the id of the post that was liked
+     * @param handle
+     *        the handle of the user who liked the post
+     * @return true if the like was recorded, false if the user had already liked the post
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    boolean likePost(int postId, String handle) throws RemoteException;
+
+    /**
+     * A method for liking a dog. The like information is saved and the likes count of the dog
+     * is incremented by one. Liking the same dog twice has no effect.
+     * @param dogId
+     *        the id of the Dog object that was liked
+     * @param handle
+     *        the handle of the user who liked the dog
+     * @return true if the like was recorded, false if the user had already liked the dog
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    boolean likeDog(int dogId, String handle) throws RemoteException;
+
+    /**
+     * A method for liking a comment. The like information is saved and the likes count of the comment
+     * is incremented by one. Liking the same comment twice has no effect.
      * @param commentId
-     *        the id of the comment the like was added on
+     *        the id of the comment that was liked
+     * @param handle
+     *        the handle of the user who liked the comment
+     * @return true if the like was recorded, false if the user had already liked the comment
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addLikeToComment(int commentId) throws RemoteException;
+    boolean likeComment(int commentId, String handle) throws RemoteException;
 
     /**
-     * A method for adding a new like to a post. This method increases the
-     * <code>like</code> attribute value by 1.
-     * @param postId
-     *        the id of the post on which the like was added
+     * A method for getting one page of the post feed, newest first
+     * @param cursor
+     *        the cursor returned with the previous page, or <code>null</code> for the first page
+     * @param limit
+     *        the maximum number of posts on the page
+     * @return a PostPage object containing the posts of the page and the cursor of the next page
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addLikeToPost(int postId) throws RemoteException;
+    PostPage getFeedPage(PostCursor cursor, int limit) throws RemoteException;
 
     /**
-     * A method for adding a new like to a Dog object. This method increases the
-     * <code>like</code> attribute value by 1.
-     * @param dogId
-     *         the id of the Dog object the like was added on
+     * Getter for one page of the posts made by a specific user, newest first
+     * @param handle
+     *        the handle of the user who made the posts
+     * @param cursor
+     *        the cursor returned with the previous page, or <code>null</code> for the first page
+     * @param limit
+     *        the maximum number of posts on the page
+     * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+     * for the first page, the total number of posts made by the user
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addLikeToDog(int dogId) throws RemoteException;
+    PostPage getPostsForUser(String handle, PostCursor cursor, int limit) throws RemoteException;
 
     /**
-     * A method for adding a new like to a post. This method saves
-     * the like information as a pair of the postId and user handle.
-     * Example: "12 - Jennifer03"
-     * @param postId
-     *         the id on the post the like was added on
+     * Getter for a whole image
+     * @param hash
+     *        the hash the image is stored under, as carried by a Post, Dog or User object
+     * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    byte[] getImage(String hash) throws RemoteException;
+
+    /**
+     * Getter for a range of the bytes of an image, so that large images can be read in parts.
+     * A returned range shorter than requested marks the end of the image.
+     * @param hash
+     *        the hash the image is stored under, as carried by a Post, Dog or User object
+     * @param offset
+     *        the index of the first byte of the range, starting from 0
+     * @param length
+     *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+     * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    byte[] getImage(String hash, int offset, int length) throws RemoteException;
+
+    /**
+     * Getter for several whole images at once
+     * @param hashes
+     *        the hashes the images are stored under
+     * @return a HashMap with the bytes of every image that was found, keyed by its hash
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    HashMap<String, byte[]> getImages(ArrayList<String> hashes) throws RemoteException;
+
+    /**
+     * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+     * is not ready yet, the original image is returned.
+     * @param hash
+     *        the hash the image is stored under, as carried by a Post, Dog or User object
+     * @param rendition
+     *        the size the image is drawn in
+     * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    byte[] getImage(String hash, ImageRendition rendition) throws RemoteException;
+
+    /**
+     * Getter for several images of the same size at once
+     * @param hashes
+     *        the hashes the images are stored under
+     * @param rendition
+     *        the size the images are drawn in
+     * @return a HashMap with the bytes of every image that was found, keyed by its hash
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition) throws RemoteException;
+
+    /**
+     * Getter for the ids of the posts liked by a user, out of the given ones
      * @param handle
-     *        the handle of the user who liked the post
+     *        the handle of the user
+     * @param postIds
+     *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+     * @return the ids of the liked posts in ascending order
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addLike(int postId, String handle) throws RemoteException;
+    int[] getLikedPostIds(String handle, int[] postIds) throws RemoteException;
 
     /**
-     * Getter for all the likes made on all the posts
-     * @return an ArrayList of String data type containing all the
-     * postId - handle pairs for the likes.
+     * Getter for the ids of the dogs liked by a user, out of the given ones
+     * @param handle
+     *        the handle of the user
+     * @param dogIds
+     *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+     * @return the ids of the liked dogs in ascending order
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    ArrayList<String> getLikes() throws RemoteException;
+    int[] getLikedDogIds(String handle, int[] dogIds) throws RemoteException;
 
     /**
-     * A method for adding a new like to a Dog object. This method saves the
-     * like information as a pair of dogId - user handle.
-     * Example: "32 - andrew_2000"
-     * @param dogId
-     *        the id of the Dog object that was liked
+     * Getter for the ids of the comments liked by a user, out of the given ones
      * @param handle
-     *        the handle of the user who liked the dog
+     *        the handle of the user
+     * @param commentIds
+     *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+     * @return the ids of the liked comments in ascending order
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addDogLike(int dogId, String handle) throws RemoteException;
+    int[] getLikedCommentIds(String handle, int[] commentIds) throws RemoteException;
 
     /**
-     * Getter for all thr likes made on all the Dog objects
-     * @return an ArrayList of String data type containing all the
-     * dogId - handle pairs of likes
+     * A method checking the login credentials of a user on the server and opening a session for them.
+     * The session of a blocked user carries no token.
+     * @param handle
+     *        the handle of the user logging in
+     * @param password
+     *        the password as typed in by the user
+     * @return the session of the user, or <code>null</code> if the handle or the password is wrong
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    ArrayList<String> getDogLikes() throws RemoteException;
+    Session authenticate(String handle, String password) throws RemoteException;
 
     /**
-     * A method for adding a new like to a comment and saving the commentId - handle
-     * information in the database.
-     * @param commentId
-     *        the id of the comment that was added
+     * A method changing the password of the user a session belongs to, after checking their current password
+     * @param token
+     *        the token of the session
+     * @param oldPassword
+     *        the current password as typed in by the user
+     * @param newPassword
+     *        the new password as typed in by the user
+     * @return true if the password was changed, false if the session expired or the current password is wrong
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    boolean changePassword(String token, String oldPassword, String newPassword) throws RemoteException;
+
+    /**
+     * A method closing the session of a user
+     * @param token
+     *        the token of the session
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    void logout(String token) throws RemoteException;
+
+    /**
+     * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+     * from memory and only the others are looked up in the database.
+     * @param handle
+     *        the handle that is checked
+     * @return true if no user has the handle, false otherwise
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    boolean isHandleAvailable(String handle) throws RemoteException;
+
+    /**
+     * A method checking if an email can be used by a new user. Emails that were never used are answered
+     * from memory and only the others are looked up in the database.
+     * @param email
+     *        the email that is checked
+     * @return true if no user has the email, false otherwise
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    boolean isEmailAvailable(String email) throws RemoteException;
+
+    /**
+     * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call
+     * @param handles
+     *        the handles of the users; repeated handles are looked up once
+     * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles) throws RemoteException;
+
+    /**
+     * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+     * updated with every like, so no dogs are read from the database.
+     * @param k
+     *        the number of dogs wanted
+     * @return an ArrayList with at most k dogs, the most liked first
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    ArrayList<Dog> getTopDogs(int k) throws RemoteException;
+
+    /**
+     * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+     * time they are asked for and then kept up to date in memory by every post, comment, dog and like.
      * @param handle
-     *        the handle of the user who made the comment
+     *        the handle of the user
+     * @return the totals of the user
+     * @throws RemoteException if any error appears during the execution
+     * of the remote method
+     */
+    ProfileStats getProfileStats(String handle) throws RemoteException;
+
+    /**
+     * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+     * recent comments, the whole thread is read page by page with this method.
+     * @param postId
+     *        the id of the post with which the comments are related to
+     * @param cursor
+     *        the cursor returned with the previous page, or <code>null</code> for the first page
+     * @param limit
+     *        the maximum number of comments on the page
+     * @return a CommentPage object containing the comments of the page and the cursor of the next page
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    void addCommentLike(int commentId, String handle) throws RemoteException;
+    CommentPage getComments(int postId, CommentCursor cursor, int limit) throws RemoteException;
 
     /**
-     * Getter for a list of all the comment likes
-     * @return an ArrayList of String data type containing all the pairs in the
-     * for of commentId - handle.
-     * Example: "13 - sunny".
+     * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+     * the user are moved to the new handle in a single transaction on the server.
+     * @param token
+     *        the token of the session
+     * @param newHandle
+     *        the new handle of the user
+     * @return true if the handle was changed, false if the session expired or the new handle is already taken
      * @throws RemoteException if any error appears during the execution
      * of the remote method
      */
-    ArrayList<String> getCommentLikes() throws RemoteException;
+    boolean renameHandle(String token, String newHandle) throws RemoteException;
 }
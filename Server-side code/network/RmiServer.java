@@ -1,9 +1,9 @@
 package network;
 
 import model.*;
+import utility.observer.event.ObserverEvent;
 import utility.observer.listener.GeneralListener;
-import utility.observer.subject.PropertyChangeAction;
-import utility.observer.subject.PropertyChangeProxy;
+import utility.observer.listener.LocalListener;
 
 import java.net.MalformedURLException;
 import java.rmi.Naming;
@@ -12,19 +12,22 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The RmiServer class is the server implementation of the RemoteModel interface, the interface that connects client side with server side.
  * This class creates and uploads the server stub to the registry, binding it to a name and ensuring a communication path
  * for the client. The overridden methods make calls to the local server model which makes calls to the database.
+ * The changes fired by the local server model are passed on to every registered client through a ClientEventQueue of its own.
  *
  * @author Natali Munk-Jakobsen
  * @version 1.0
  */
-public class RmiServer implements RemoteModel {
+public class RmiServer implements RemoteModel, LocalListener<Object, Object> {
 
   private Model localModel;
-  private PropertyChangeAction<Object, Object> property;
+  private ConcurrentHashMap<GeneralListener<Object, Object>, ClientEventQueue> clients;
 
   /**
    * A constructor starting the registry, creating and uploading the server stub to it and binding it to a name.
@@ -37,9 +40,10 @@ public class RmiServer implements RemoteModel {
           throws RemoteException, MalformedURLException {
     startRegistry();
     this.localModel = localModel;
+    this.clients = new ConcurrentHashMap<>();
     UnicastRemoteObject.exportObject(this, 0);
     Naming.rebind("puppr", this);
-    property = new PropertyChangeProxy<>(this, true);
+    localModel.addListener(this, "change");
   }
 
   /**
@@ -108,56 +112,6 @@ public class RmiServer implements RemoteModel {
     return localModel.getUserByHandle(handle);
   }
 
-  /**
-   * A method for adding a like to a comment
-   * @param commentId
-   *        the id of the comment the like was added on
-   */
-  @Override
-  public void addLikeToComment(int commentId)  {
-    localModel.addLikeToComment(commentId);
-  }
-
-  /**
-   * A method for increasing the like count of a post by 1
-   * @param postId
-   *        the id of the post on which the like was added
-   */
-  @Override
-  public void addLikeToPost(int postId)  {
-    localModel.addLikeToPost(postId);
-  }
-
-  /**
-   * A method for adding a like to a Dog object
-   * @param dogId
-   *         the id of the Dog object the like was added on
-   */
-  @Override
-  public void addLikeToDog(int dogId)  {
-    localModel.addLikeToDog(dogId);
-  }
-
-  /**
-   * A method for adding a new like for a post
-   * @param postId
-   *         the id on the post the like was added on
-   * @param handle
-   *        the handle of the user who liked the post
-   */
-  @Override
-  public void addLike(int postId, String handle) {
-    localModel.addLike(postId, handle);
-  }
-
-  /**
-   * Getter for all the likes added on posts
-   * @return an ArrayList of String data type, containing all the like info
-   * for likes added on posts
-   */
-  @Override
-  public ArrayList<String> getLikes() { return localModel.getLikes(); }
-
   /**
    * A method used to update the bio for a user
    * @param user
@@ -326,49 +280,321 @@ public class RmiServer implements RemoteModel {
   }
 
   /**
-   * A method for adding a like for a Dog object
+   * A method for liking a post. The like information is saved and the likes count of the post
+   * is incremented by one. Liking the same post twice has no effect.
+   * @param postId
+   *        the id of the post that was liked
+   * @param handle
+   *        the handle of the user who liked the post
+   * @return true if the like was recorded, false if the user had already liked the post
+   */
+  @Override
+  public boolean likePost(int postId, String handle) {
+    return localModel.likePost(postId, handle);
+  }
+
+  /**
+   * A method for liking a dog. The like information is saved and the likes count of the dog
+   * is incremented by one. Liking the same dog twice has no effect.
    * @param dogId
    *        the id of the Dog object that was liked
    * @param handle
    *        the handle of the user who liked the dog
+   * @return true if the like was recorded, false if the user had already liked the dog
    */
   @Override
-  public void addDogLike(int dogId, String handle) {
-    localModel.addDogLike(dogId, handle);
+  public boolean likeDog(int dogId, String handle) {
+    return localModel.likeDog(dogId, handle);
   }
 
   /**
-   * Getter for all the likes related to Dog objects
-   * @return an ArrayList of String data type containing all the
-   * dogId - handle pairs for dog likes
+   * A method for liking a comment. The like information is saved and the likes count of the comment
+   * is incremented by one. Liking the same comment twice has no effect.
+   * @param commentId
+   *        the id of the comment that was liked
+   * @param handle
+   *        the handle of the user who liked the comment
+   * @return true if the like was recorded, false if the user had already liked the comment
    */
   @Override
-  public ArrayList<String> getDogLikes() {
-    return localModel.getDogLikes();
+  public boolean likeComment(int commentId, String handle) {
+    return localModel.likeComment(commentId, handle);
   }
 
   /**
-   * A method for adding a new like to a comment and saving the commentId - handle
-   * information in the database.
-   * @param commentId
-   *        the id of the comment that was added
+   * A method for getting one page of the post feed, newest first
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page and the cursor of the next page
+   */
+  @Override
+  public PostPage getFeedPage(PostCursor cursor, int limit) {
+    return localModel.getFeedPage(cursor, limit);
+  }
+
+  /**
+   * Getter for one page of the posts made by a specific user, newest first
+   * @param handle
+   *        the handle of the user who made the posts
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of posts on the page
+   * @return a PostPage object containing the posts of the page, the cursor of the next page and,
+   * for the first page, the total number of posts made by the user
+   */
+  @Override
+  public PostPage getPostsForUser(String handle, PostCursor cursor, int limit) {
+    return localModel.getPostsForUser(handle, cursor, limit);
+  }
+
+  /**
+   * A method that is called whenever the local server model fires a change. The event is put in the queue
+   * of every client and the method returns without waiting for any of them.
+   * @param event
+   *        the event fired by the local server model
+   */
+  @Override
+  public void propertyChange(ObserverEvent<Object, Object> event) {
+    ObserverEvent<Object, Object> remoteEvent =
+            new ObserverEvent<>(this, event.getPropertyName(), event.getValue1(), event.getValue2());
+    for (ClientEventQueue client : clients.values()) {
+      client.offer(remoteEvent);
+    }
+  }
+
+  /**
+   * Getter for a whole image
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override
+  public byte[] getImage(String hash) {
+    return localModel.getImage(hash);
+  }
+
+  /**
+   * Getter for a range of the bytes of an image, so that large images can be read in parts.
+   * A returned range shorter than requested marks the end of the image.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param offset
+   *        the index of the first byte of the range, starting from 0
+   * @param length
+   *        the maximum number of bytes in the range, or -1 for all the bytes up to the end of the image
+   * @return the bytes of the range, or <code>null</code> if there is no image with the given hash
+   */
+  @Override
+  public byte[] getImage(String hash, int offset, int length) {
+    return localModel.getImage(hash, offset, length);
+  }
+
+  /**
+   * Getter for several whole images at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override
+  public HashMap<String, byte[]> getImages(ArrayList<String> hashes) {
+    return localModel.getImages(hashes);
+  }
+
+  /**
+   * Getter for an image in the size it is drawn in. If the smaller rendition of a new image
+   * is not ready yet, the original image is returned.
+   * @param hash
+   *        the hash the image is stored under, as carried by a Post, Dog or User object
+   * @param rendition
+   *        the size the image is drawn in
+   * @return the bytes of the image, or <code>null</code> if there is no image with the given hash
+   */
+  @Override
+  public byte[] getImage(String hash, ImageRendition rendition) {
+    return localModel.getImage(hash, rendition);
+  }
+
+  /**
+   * Getter for several images of the same size at once
+   * @param hashes
+   *        the hashes the images are stored under
+   * @param rendition
+   *        the size the images are drawn in
+   * @return a HashMap with the bytes of every image that was found, keyed by its hash
+   */
+  @Override
+  public HashMap<String, byte[]> getImages(ArrayList<String> hashes, ImageRendition rendition) {
+    return localModel.getImages(hashes, rendition);
+  }
+
+  /**
+   * Getter for the ids of the posts liked by a user, out of the given ones
    * @param handle
-   *        the handle of the user who made the comment
+   *        the handle of the user
+   * @param postIds
+   *        the ids of the posts to check, or <code>null</code> for all the posts the user liked
+   * @return the ids of the liked posts in ascending order
    */
   @Override
-  public void addCommentLike(int commentId, String handle) throws RemoteException {
-      localModel.addCommentLike(commentId,handle);
+  public int[] getLikedPostIds(String handle, int[] postIds) {
+    return localModel.getLikedPostIds(handle, postIds);
   }
 
   /**
-   * Getter for a list of all the comment likes
-   * @return an ArrayList of String data type containing all the pairs in the
-   * for of commentId - handle.
-   * Example: "13 - sunny".
+   * Getter for the ids of the dogs liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param dogIds
+   *        the ids of the dogs to check, or <code>null</code> for all the dogs the user liked
+   * @return the ids of the liked dogs in ascending order
    */
   @Override
-  public ArrayList<String> getCommentLikes() throws RemoteException {
-    return localModel.getCommentLikes();
+  public int[] getLikedDogIds(String handle, int[] dogIds) {
+    return localModel.getLikedDogIds(handle, dogIds);
+  }
+
+  /**
+   * Getter for the ids of the comments liked by a user, out of the given ones
+   * @param handle
+   *        the handle of the user
+   * @param commentIds
+   *        the ids of the comments to check, or <code>null</code> for all the comments the user liked
+   * @return the ids of the liked comments in ascending order
+   */
+  @Override
+  public int[] getLikedCommentIds(String handle, int[] commentIds) {
+    return localModel.getLikedCommentIds(handle, commentIds);
+  }
+
+  /**
+   * A method checking the login credentials of a user on the server and opening a session for them.
+   * The session of a blocked user carries no token.
+   * @param handle
+   *        the handle of the user logging in
+   * @param password
+   *        the password as typed in by the user
+   * @return the session of the user, or <code>null</code> if the handle or the password is wrong
+   */
+  @Override
+  public Session authenticate(String handle, String password) {
+    return localModel.authenticate(handle, password);
+  }
+
+  /**
+   * A method changing the password of the user a session belongs to, after checking their current password
+   * @param token
+   *        the token of the session
+   * @param oldPassword
+   *        the current password as typed in by the user
+   * @param newPassword
+   *        the new password as typed in by the user
+   * @return true if the password was changed, false if the session expired or the current password is wrong
+   */
+  @Override
+  public boolean changePassword(String token, String oldPassword, String newPassword) {
+    return localModel.changePassword(token, oldPassword, newPassword);
+  }
+
+  /**
+   * A method closing the session of a user
+   * @param token
+   *        the token of the session
+   */
+  @Override
+  public void logout(String token) {
+    localModel.logout(token);
+  }
+
+  /**
+   * A method checking if a handle can be taken by a new user. Handles that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param handle
+   *        the handle that is checked
+   * @return true if no user has the handle, false otherwise
+   */
+  @Override
+  public boolean isHandleAvailable(String handle) {
+    return localModel.isHandleAvailable(handle);
+  }
+
+  /**
+   * A method checking if an email can be used by a new user. Emails that were never used are answered
+   * from memory and only the others are looked up in the database.
+   * @param email
+   *        the email that is checked
+   * @return true if no user has the email, false otherwise
+   */
+  @Override
+  public boolean isEmailAvailable(String email) {
+    return localModel.isEmailAvailable(email);
+  }
+
+  /**
+   * Getter for the summaries of a set of users, such as the authors of a page of posts, in a single call
+   * @param handles
+   *        the handles of the users; repeated handles are looked up once
+   * @return a HashMap from the handle to the summary of every user found; unknown handles are left out
+   */
+  @Override
+  public HashMap<String, UserSummary> getUsersByHandles(ArrayList<String> handles) {
+    return localModel.getUsersByHandles(handles);
+  }
+
+  /**
+   * Getter for the most liked dogs, as shown in the Hall of Fame. The ranking is kept in memory and
+   * updated with every like, so no dogs are read from the database.
+   * @param k
+   *        the number of dogs wanted
+   * @return an ArrayList with at most k dogs, the most liked first
+   */
+  @Override
+  public ArrayList<Dog> getTopDogs(int k) {
+    return localModel.getTopDogs(k);
+  }
+
+  /**
+   * Getter for the totals shown on the profile page of a user. The totals are counted by the database the first
+   * time they are asked for and then kept up to date in memory by every post, comment, dog and like.
+   * @param handle
+   *        the handle of the user
+   * @return the totals of the user
+   */
+  @Override
+  public ProfileStats getProfileStats(String handle) {
+    return localModel.getProfileStats(handle);
+  }
+
+  /**
+   * Getter for one page of the comments of a post, newest first. Posts only carry a preview of their most
+   * recent comments, the whole thread is read page by page with this method.
+   * @param postId
+   *        the id of the post with which the comments are related to
+   * @param cursor
+   *        the cursor returned with the previous page, or <code>null</code> for the first page
+   * @param limit
+   *        the maximum number of comments on the page
+   * @return a CommentPage object containing the comments of the page and the cursor of the next page
+   */
+  @Override
+  public CommentPage getComments(int postId, CommentCursor cursor, int limit) {
+    return localModel.getComments(postId, cursor, limit);
+  }
+
+  /**
+   * A method changing the handle of the user a session belongs to. The posts, dogs, likes and comments of
+   * the user are moved to the new handle in a single transaction on the server.
+   * @param token
+   *        the token of the session
+   * @param newHandle
+   *        the new handle of the user
+   * @return true if the handle was changed, false if the session expired or the new handle is already taken
+   */
+  @Override
+  public boolean renameHandle(String token, String newHandle) {
+    return localModel.renameHandle(token, newHandle);
   }
 
   /**
@@ -381,7 +607,9 @@ public class RmiServer implements RemoteModel {
   @Override
   public boolean addListener(GeneralListener<Object, Object> listener,
                              String... propertyNames) {
-    return property.addListener(listener, propertyNames);
+    clients.computeIfAbsent(listener, l -> new ClientEventQueue(this, l, () -> clients.remove(l)))
+            .addPropertyNames(propertyNames);
+    return true;
   }
 
   /**
@@ -394,7 +622,14 @@ public class RmiServer implements RemoteModel {
   @Override
   public boolean removeListener(
           GeneralListener<Object, Object> listener, String... propertyNames) {
-    return property.removeListener(listener, propertyNames);
+    ClientEventQueue client = clients.get(listener);
+    if (client == null)
+      return false;
+    if (propertyNames.length == 0 || !client.removePropertyNames(propertyNames)) {
+      clients.remove(listener);
+      client.close();
+    }
+    return true;
   }
 
 